@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic source-like text for the benchmarks, so runs of different releases compare
+ * the same inputs.
+ */
+final class BenchmarkData {
+    private static final String[] WORDS = {
+            "int", "String", "final", "return", "if", "for", "while", "value", "count", "index",
+            "list", "map", "result", "buffer", "length", "offset", "diff", "line", "commit", "path",
+            "=", "+", "(", ")", "{", "}", ";", "null", "true", "false", "new", "this"};
+
+    private BenchmarkData() {
+    }
+
+    /** Returns {@code count} lines that look roughly like indented source code. */
+    static List<String> sourceLines(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(sourceLine(random));
+        }
+        return lines;
+    }
+
+    /**
+     * Returns a copy of {@code lines} in which about {@code density} of the lines are changed,
+     * deleted or preceded by an inserted line, in equal shares.
+     */
+    static List<String> edit(List<String> lines, double density, long seed) {
+        Random random = new Random(seed);
+        List<String> edited = new ArrayList<>(lines.size() + 16);
+        for (String line : lines) {
+            if (random.nextDouble() >= density) {
+                edited.add(line);
+                continue;
+            }
+            switch (random.nextInt(3)) {
+                case 0:
+                    edited.add(sourceLine(random));
+                    break;
+                case 1:
+                    break;
+                default:
+                    edited.add(sourceLine(random));
+                    edited.add(line);
+                    break;
+            }
+        }
+        return edited;
+    }
+
+    /** Joins {@code lines} with {@code \n}, each line terminated, as UTF-8. */
+    static byte[] toBytes(List<String> lines) {
+        return join(lines).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String join(List<String> lines) {
+        StringBuilder text = new StringBuilder(lines.size() * 40);
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String sourceLine(Random random) {
+        StringBuilder line = new StringBuilder(64);
+        int indent = random.nextInt(4) * 4;
+        for (int i = 0; i < indent; i++) {
+            line.append(' ');
+        }
+        int words = 2 + random.nextInt(9);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            line.append(WORDS[random.nextInt(WORDS.length)]);
+            if (random.nextInt(4) == 0) {
+                line.append(random.nextInt(1000));
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DiffUtils#diff(byte[], byte[], java.nio.charset.Charset, DiffUtils.Algorithm, long)}
+ * over file sizes and edit densities. The result blocks are walked so that lazily decoded
+ * lines are counted as they would be by the viewer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int lines;
+
+    @Param({"0.001", "0.01", "0.1"})
+    double editDensity;
+
+    @Param({"MYERS", "HISTOGRAM"})
+    DiffUtils.Algorithm algorithm;
+
+    private byte[] oldContent;
+    private byte[] newContent;
+
+    @Setup
+    public void setUp() {
+        List<String> oldLines = BenchmarkData.sourceLines(lines, 1);
+        oldContent = BenchmarkData.toBytes(oldLines);
+        newContent = BenchmarkData.toBytes(BenchmarkData.edit(oldLines, editDensity, 2));
+    }
+
+    @Benchmark
+    public int diff() {
+        List<DiffUtils.Diff> diffs = DiffUtils.diff(oldContent, newContent, StandardCharsets.UTF_8,
+                algorithm, DiffUtils.DEFAULT_TIME_LIMIT_MILLIS);
+        return DiffRows.countRows(diffs);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * History loading, content reads and diffs of {@link GitService} on a repository from
+ * {@link SyntheticRepoGenerator} with merges, branches and commits not touching the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitServiceBenchmark {
+    private static final String FILE = "src/Main.java";
+
+    @Param({"1000", "10000"})
+    int commits;
+
+    @Param({"100"})
+    int branches;
+
+    @Param({"2000"})
+    int fileLines;
+
+    private Path repoDir;
+    private GitService cachedService;
+    private GitService uncachedService;
+    private List<CommitInfo> history;
+    private DiffLoader diffLoader;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        repoDir = Files.createTempDirectory("gitfilehistory-bench");
+        new SyntheticRepoGenerator(new SyntheticRepoGenerator.Spec()
+                .commits(commits).branches(branches).mergeEvery(10).noiseCommits(1).fileLines(fileLines))
+                .generate(repoDir.toFile());
+        cachedService = new GitService(repoDir.toFile());
+        uncachedService = new GitService(repoDir.toFile(), 0);
+        history = cachedService.loadCommitsForFile(FILE, "UTF-8");
+        diffLoader = new DiffLoader(cachedService, new DiffCache(0), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cachedService.close();
+        uncachedService.close();
+        deleteRecursively(repoDir);
+    }
+
+    /** Loads the history with the on-disk index up to date, as on every reopen of a file. */
+    @Benchmark
+    public int loadCommitsForFile() throws Exception {
+        return cachedService.loadCommitsForFile(FILE, "UTF-8").size();
+    }
+
+    /** Loads the history without an index, as on the first open of a file. */
+    @Benchmark
+    public int loadCommitsForFileWithoutIndex(WithoutIndex withoutIndex) throws Exception {
+        return cachedService.loadCommitsForFile(FILE, "UTF-8").size();
+    }
+
+    /** Reads revisions in turn through the blob cache. */
+    @Benchmark
+    public int getFileContent() throws IOException {
+        return cachedService.getFileContent(nextCommit(), FILE, "UTF-8").length();
+    }
+
+    /** Reads revisions in turn with a zero-sized blob cache, so every read inflates the blob. */
+    @Benchmark
+    public int getFileContentUncached() throws IOException {
+        return uncachedService.getFileContent(nextCommit(), FILE, "UTF-8").length();
+    }
+
+    /** Diffs neighbouring revisions in turn as the viewer does, with no diff cache. */
+    @Benchmark
+    public int loadDiff() throws Exception {
+        CommitInfo newCommit = nextCommit();
+        CommitInfo oldCommit = history.get((next + 1) % history.size());
+        return diffLoader.load(oldCommit, newCommit, FILE, "UTF-8", DiffUtils.Algorithm.AUTO).size();
+    }
+
+    private CommitInfo nextCommit() {
+        next = (next + 1) % history.size();
+        return history.get(next);
+    }
+
+    /** Deletes the history index before each call, outside the measured time. */
+    @State(Scope.Thread)
+    public static class WithoutIndex {
+        @Setup(Level.Invocation)
+        public void deleteIndex(GitServiceBenchmark benchmark) throws IOException {
+            Path index = benchmark.repoDir.resolve(".git").resolve("gitfilehistory");
+            if (Files.exists(index)) {
+                deleteRecursively(index);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTML report generation by {@link HtmlReportWriter} for a full and a folded diff, written to a
+ * discarding writer so that only generation and escaping are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HtmlReportBenchmark {
+    @Param({"10000", "100000"})
+    int lines;
+
+    @Param({"false", "true"})
+    boolean folded;
+
+    private List<DiffUtils.Diff> diffs;
+    private HtmlReportWriter writer;
+
+    @Setup
+    public void setUp() {
+        List<String> oldLines = BenchmarkData.sourceLines(lines, 1);
+        diffs = DiffUtils.diff(BenchmarkData.toBytes(oldLines), BenchmarkData.toBytes(BenchmarkData.edit(oldLines, 0.01, 2)),
+                StandardCharsets.UTF_8);
+        if (folded) {
+            diffs = DiffUtils.fold(diffs, DiffUtils.DEFAULT_CONTEXT_LINES);
+        }
+        writer = new HtmlReportWriter("src/Main.java", "old <revision>", "new <revision>");
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        writer.write(Writer.nullWriter(), diffs);
+    }
+}
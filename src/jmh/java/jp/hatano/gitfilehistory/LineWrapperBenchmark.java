@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.swing.JTextPane;
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LineWrapper#wrap(String)} over 1000 lines of a given length. Lines long enough to be
+ * memoized are answered from the memo after the first pass, as when the viewer is redrawn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class LineWrapperBenchmark {
+    @Param({"80", "400", "4000"})
+    int lineLength;
+
+    @Param({Font.MONOSPACED, Font.SANS_SERIF})
+    String fontFamily;
+
+    private LineWrapper wrapper;
+    private List<String> lines;
+
+    @Setup
+    public void setUp() {
+        JTextPane textPane = new JTextPane();
+        textPane.setFont(new Font(fontFamily, Font.PLAIN, 12));
+        textPane.setSize(600, 400);
+        wrapper = new LineWrapper(textPane);
+
+        List<String> source = BenchmarkData.sourceLines(10_000, 1);
+        lines = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder text = new StringBuilder(lineLength + 80);
+            while (text.length() < lineLength) {
+                text.append(source.get(next++ % source.size()).trim()).append(' ');
+            }
+            lines.add(text.substring(0, lineLength));
+        }
+    }
+
+    @Benchmark
+    public void wrap(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(wrapper.wrap(line));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The matching done by {@link SearchManager} on the text of one diff pane: literal search with
+ * and without case, refining a previous result while typing, and regular expressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"10000", "100000"})
+    int lines;
+
+    private String content;
+    private int[] refinedCandidates;
+    private Pattern regex;
+
+    @Setup
+    public void setUp() {
+        content = BenchmarkData.join(BenchmarkData.sourceLines(lines, 1));
+        refinedCandidates = SearchManager.findLiteral(content, "valu", false, null);
+        regex = SearchManager.compile("\\bresult\\d+", false);
+    }
+
+    @Benchmark
+    public int literal() {
+        return SearchManager.findLiteral(content, "value", false, null).length;
+    }
+
+    @Benchmark
+    public int literalIgnoreCase() {
+        return SearchManager.findLiteral(content, "VALUE", true, null).length;
+    }
+
+    /** "value" typed after "valu": only the previous matches are checked. */
+    @Benchmark
+    public int literalRefined() {
+        return SearchManager.findLiteral(content, "value", false, refinedCandidates).length;
+    }
+
+    @Benchmark
+    public int regex() {
+        return SearchManager.findRegex(content, regex)[0].length;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports an HTML report and a patch for every consecutive pair of revisions of a file.
+ * <p>
+ * Pairs are processed on a fixed-size pool, oldest first, so the revision shared by two
+ * neighbouring pairs is usually still in the blob cache when the second one needs it.
+ * Diffs go through the given {@link DiffLoader} and therefore its {@link DiffCache}.
+ * An {@code index.html} linking every pair is written last.
+ */
+class BatchExporter {
+    /** Worker threads of an export; {@code -Dgitfilehistory.exportThreads}. */
+    static final int DEFAULT_THREADS = Integer.getInteger("gitfilehistory.exportThreads",
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    static final String INDEX_FILE = "index.html";
+
+    /** Progress of a running export. */
+    static class Progress {
+        final int pairsDone;
+        final int pairsTotal;
+        final long bytesWritten;
+        final long elapsedNanos;
+
+        Progress(int pairsDone, int pairsTotal, long bytesWritten, long elapsedNanos) {
+            this.pairsDone = pairsDone;
+            this.pairsTotal = pairsTotal;
+            this.bytesWritten = bytesWritten;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        double pairsPerSecond() {
+            return elapsedNanos > 0 ? pairsDone * 1e9 / elapsedNanos : 0;
+        }
+
+        double megabytesPerSecond() {
+            return elapsedNanos > 0 ? bytesWritten * 1e9 / elapsedNanos / (1024 * 1024) : 0;
+        }
+    }
+
+    /** The files written for one pair and the size of its diff. */
+    static class PairResult {
+        final int number;
+        final CommitInfo oldCommit;
+        final CommitInfo newCommit;
+        final String htmlName;
+        final String patchName;
+        final int deletedLines;
+        final int insertedLines;
+        final long bytes;
+
+        PairResult(int number, CommitInfo oldCommit, CommitInfo newCommit, String htmlName, String patchName,
+                   int deletedLines, int insertedLines, long bytes) {
+            this.number = number;
+            this.oldCommit = oldCommit;
+            this.newCommit = newCommit;
+            this.htmlName = htmlName;
+            this.patchName = patchName;
+            this.deletedLines = deletedLines;
+            this.insertedLines = insertedLines;
+            this.bytes = bytes;
+        }
+    }
+
+    interface Listener {
+        /** Called on the exporting thread after each pair. */
+        void progress(Progress progress);
+    }
+
+    private final GitService gitService;
+    private final DiffLoader diffLoader;
+    private final String filePath;
+    private final String encoding;
+    private final DiffUtils.Algorithm algorithm;
+    private final int threads;
+
+    BatchExporter(GitService gitService, DiffLoader diffLoader, String filePath, String encoding,
+                  DiffUtils.Algorithm algorithm, int threads) {
+        this.gitService = gitService;
+        this.diffLoader = diffLoader;
+        this.filePath = filePath;
+        this.encoding = encoding;
+        this.algorithm = algorithm;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Exports every consecutive pair of {@code commits}, newest first as in the commit list,
+     * into {@code directory}.
+     *
+     * @return the results in chronological order
+     * @throws InterruptedException if the calling thread is interrupted; the pool is stopped
+     */
+    List<PairResult> export(List<CommitInfo> commits, File directory, Listener listener)
+            throws IOException, InterruptedException {
+        Files.createDirectories(directory.toPath());
+        int pairs = Math.max(0, commits.size() - 1);
+        long start = System.nanoTime();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "batch-export-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<PairResult> completion = new ExecutorCompletionService<>(executor);
+            for (int number = 1; number <= pairs; number++) {
+                CommitInfo oldCommit = commits.get(pairs - number + 1);
+                CommitInfo newCommit = commits.get(pairs - number);
+                final int pairNumber = number;
+                completion.submit(() -> exportPair(pairNumber, oldCommit, newCommit, directory));
+            }
+
+            PairResult[] results = new PairResult[pairs];
+            long bytes = 0;
+            for (int done = 1; done <= pairs; done++) {
+                PairResult result = take(completion);
+                results[result.number - 1] = result;
+                bytes += result.bytes;
+                listener.progress(new Progress(done, pairs, bytes, System.nanoTime() - start));
+            }
+
+            List<PairResult> resultList = List.of(results);
+            writeIndex(new File(directory, INDEX_FILE), resultList);
+            return resultList;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private PairResult exportPair(int number, CommitInfo oldCommit, CommitInfo newCommit, File directory)
+            throws IOException, InterruptedException {
+        List<DiffUtils.Diff> diffs = diffLoader.load(oldCommit, newCommit, filePath, encoding, algorithm);
+        String baseName = String.format("%04d_%s_%s", number, fileNamePart(oldCommit), fileNamePart(newCommit));
+
+        File htmlFile = new File(directory, baseName + ".html");
+        new HtmlReportWriter(filePath, oldCommit.toString(), newCommit.toString()).write(htmlFile, diffs);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException();
+        }
+
+        File patchFile = new File(directory, baseName + ".patch");
+        Files.write(patchFile.toPath(), gitService.generatePatch(oldCommit, newCommit, filePath).getBytes(StandardCharsets.UTF_8));
+
+        int deleted = 0, inserted = 0;
+        for (DiffUtils.Diff diff : diffs) {
+            switch (diff.type) {
+                case DELETE:
+                    deleted += diff.lines.size();
+                    break;
+                case INSERT:
+                    inserted += diff.lines.size();
+                    break;
+                case CHANGE:
+                    deleted += diff.oldLines.size();
+                    inserted += diff.newLines.size();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new PairResult(number, oldCommit, newCommit, htmlFile.getName(), patchFile.getName(),
+                deleted, inserted, htmlFile.length() + patchFile.length());
+    }
+
+    private static String fileNamePart(CommitInfo commit) {
+        return commit.isUncommitted() ? "worktree" : commit.getShortHash();
+    }
+
+    private static PairResult take(CompletionService<PairResult> completion) throws IOException, InterruptedException {
+        try {
+            return completion.take().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof InterruptedException) {
+                throw (InterruptedException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void writeIndex(File file, List<PairResult> results) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.write("<!DOCTYPE html><html><head><meta charset='UTF-8'><title>Diff Reports</title><style>");
+            out.write("body { font-family: sans-serif; margin: 20px; }");
+            out.write("table { border-collapse: collapse; font-size: 13px; }");
+            out.write("th, td { padding: 3px 8px; border-bottom: 1px solid #ddd; text-align: left; vertical-align: top; }");
+            out.write(".del { color: #c62828; } .ins { color: #2e7d32; } .hash { font-family: monospace; }");
+            out.write("</style></head><body><h2>Diff Reports</h2>");
+            out.write("<div><strong>File:</strong> " + HtmlReportWriter.escapeHtml(filePath) + "</div>");
+            out.write("<p>" + results.size() + " revision pairs, oldest first.</p>");
+            out.write("<table><tr><th>#</th><th>Old</th><th>New</th><th>Date</th><th>Author</th><th>Message</th><th>Changes</th><th>Files</th></tr>");
+            for (PairResult result : results) {
+                CommitInfo commit = result.newCommit;
+                out.write("<tr><td>" + result.number + "</td>");
+                out.write("<td class='hash'>" + HtmlReportWriter.escapeHtml(result.oldCommit.getShortHash()) + "</td>");
+                out.write("<td class='hash'>" + HtmlReportWriter.escapeHtml(commit.getShortHash()) + "</td>");
+                out.write("<td>" + HtmlReportWriter.escapeHtml(commit.date) + "</td>");
+                out.write("<td>" + HtmlReportWriter.escapeHtml(commit.author) + "</td>");
+                out.write("<td>" + HtmlReportWriter.escapeHtml(commit.message) + "</td>");
+                out.write("<td><span class='del'>-" + result.deletedLines + "</span> <span class='ins'>+" + result.insertedLines + "</span></td>");
+                out.write("<td><a href='" + HtmlReportWriter.escapeHtml(result.htmlName) + "'>html</a> ");
+                out.write("<a href='" + HtmlReportWriter.escapeHtml(result.patchName) + "'>patch</a></td></tr>");
+            }
+            out.write("</table></body></html>");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Per-line authorship of one revision of a file, filled in while {@link GitService#blame} runs.
+ * <p>
+ * Lines are attributed a region at a time, those last changed by the newest commits first.
+ * A line that is not attributed yet has no commit; lines changed in the working tree are
+ * attributed to the uncommitted revision that was blamed.
+ */
+public class Blame {
+    /** Receives the progress of a blame on the blaming thread. */
+    public interface Listener {
+        /** Called once the lines are known and before any of them is attributed. */
+        default void started(Blame blame) {
+        }
+
+        /** Lines {@code [start, end)} have been attributed. */
+        void attributed(int start, int end);
+    }
+
+    private final CommitInfo revision;
+    private final String path;
+    private final byte[] content;
+    private final int lineCount;
+    private final CommitInfo[] commits;
+    private final String[] sourcePaths;
+    private volatile int attributedLines;
+
+    Blame(CommitInfo revision, String path, byte[] content, int lineCount) {
+        this.revision = revision;
+        this.path = path;
+        this.content = content;
+        this.lineCount = lineCount;
+        this.commits = new CommitInfo[lineCount];
+        this.sourcePaths = new String[lineCount];
+    }
+
+    public CommitInfo getRevision() {
+        return revision;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /** The number of lines attributed so far. */
+    public int getAttributedLines() {
+        return attributedLines;
+    }
+
+    public boolean isComplete() {
+        return attributedLines == lineCount;
+    }
+
+    public boolean isAttributed(int line) {
+        return commits[line] != null;
+    }
+
+    /** The revision that last changed {@code line}, or null if it is not attributed yet. */
+    public CommitInfo getCommit(int line) {
+        return commits[line];
+    }
+
+    /** The path of {@code line} in {@link #getCommit(int)}, which differs from the blamed path across renames. */
+    public String getSourcePath(int line) {
+        return sourcePaths[line];
+    }
+
+    /** Returns the lines decoded with {@code charset}, without terminators. */
+    public List<String> lines(Charset charset) {
+        return new DiffText(content, charset).lines();
+    }
+
+    /** Called by the blaming thread only. */
+    void attribute(int line, CommitInfo commit, String sourcePath) {
+        if (commits[line] == null) {
+            attributedLines++;
+        }
+        commits[line] = commit;
+        sourcePaths[line] = sourcePath;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Shows {@link GitService#blame} of one revision, filling in the commits of the lines as they
+ * are attributed. Double-clicking a line hands its commit to the listener given at construction.
+ */
+class BlamePanel extends JPanel {
+    private final BlameTableModel tableModel = new BlameTableModel();
+    private final JTable table = new JTable(tableModel);
+    private final JLabel statusLabel = new JLabel(" ");
+    private SwingWorker<Blame, int[]> worker;
+    private CommitInfo revision;
+    private String filePath;
+
+    BlamePanel(Consumer<CommitInfo> openListener) {
+        super(new BorderLayout(5, 5));
+        setBorder(new EmptyBorder(5, 5, 5, 5));
+
+        table.setFont(new Font(Font.MONOSPACED, Font.PLAIN, table.getFont().getSize()));
+        table.setRowHeight(table.getFontMetrics(table.getFont()).getHeight() + 2);
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_LAST_COLUMN);
+        table.setShowGrid(false);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        int[] widths = {60, 80, 140, 150, 600};
+        for (int column = 0; column < widths.length; column++) {
+            table.getColumnModel().getColumn(column).setPreferredWidth(widths[column]);
+        }
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.rowAtPoint(e.getPoint());
+                if (e.getClickCount() == 2 && row >= 0) {
+                    CommitInfo commit = tableModel.commitAt(row);
+                    if (commit != null && !commit.isUncommitted()) {
+                        openListener.accept(commit);
+                    }
+                }
+            }
+        });
+
+        add(statusLabel, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+    }
+
+    /** Blames {@code filePath} in {@code revision}, replacing any running blame. */
+    void start(GitService gitService, CommitInfo revision, String filePath, String encoding) {
+        if (worker != null && revision.equals(this.revision) && filePath.equals(this.filePath)) {
+            return; // already blaming this revision
+        }
+        cancel();
+        this.revision = revision;
+        this.filePath = filePath;
+        Charset charset = Charset.forName(encoding != null ? encoding : "UTF-8");
+        tableModel.setBlame(null, charset);
+        statusLabel.setText("Blaming " + revision.getShortHash() + "...");
+
+        worker = new SwingWorker<>() {
+            private volatile Blame started;
+
+            @Override
+            protected Blame doInBackground() throws Exception {
+                return gitService.blame(revision, filePath, new Blame.Listener() {
+                    @Override
+                    public void started(Blame blame) {
+                        started = blame;
+                        publish(new int[] {0, 0});
+                    }
+
+                    @Override
+                    public void attributed(int start, int end) {
+                        publish(new int[] {start, end});
+                    }
+                });
+            }
+
+            @Override
+            protected void process(List<int[]> ranges) {
+                if (worker != this) return; // a newer blame has started
+                if (tableModel.blame != started) {
+                    tableModel.setBlame(started, charset);
+                }
+                for (int[] range : ranges) {
+                    tableModel.linesAttributed(range[0], range[1]);
+                }
+                statusLabel.setText(String.format("Blaming %s... %d of %d lines",
+                        revision.getShortHash(), started.getAttributedLines(), started.getLineCount()));
+            }
+
+            @Override
+            protected void done() {
+                if (worker != this) return;
+                worker = null;
+                try {
+                    Blame blame = get();
+                    if (tableModel.blame != blame) {
+                        tableModel.setBlame(blame, charset);
+                    }
+                    statusLabel.setText(String.format("%s at %s: %d lines", filePath, revision.getShortHash(),
+                            blame.getLineCount()));
+                } catch (CancellationException e) {
+                    statusLabel.setText("Stopped");
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    statusLabel.setText("Error: " + cause.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    void cancel() {
+        if (worker != null) {
+            SwingWorker<Blame, int[]> running = worker;
+            worker = null;
+            running.cancel(true);
+            statusLabel.setText("Stopped");
+        }
+        revision = null;
+    }
+
+    /** One row per line; the commit columns are only filled on the first line of a run. */
+    private static class BlameTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Line", "Commit", "Author", "Date", "Text"};
+
+        private Blame blame;
+        private List<String> lines = List.of();
+
+        void setBlame(Blame blame, Charset charset) {
+            this.blame = blame;
+            this.lines = blame != null ? blame.lines(charset) : List.of();
+            fireTableDataChanged();
+        }
+
+        void linesAttributed(int start, int end) {
+            if (start < end) {
+                // the line after the range may now continue a run and hide its commit
+                fireTableRowsUpdated(start, Math.min(end, getRowCount() - 1));
+            }
+        }
+
+        CommitInfo commitAt(int row) {
+            return blame != null ? blame.getCommit(row) : null;
+        }
+
+        @Override
+        public int getRowCount() {
+            return lines.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            if (column == 0) {
+                return row + 1;
+            }
+            if (column == 4) {
+                return lines.get(row);
+            }
+            CommitInfo commit = blame.getCommit(row);
+            if (commit == null || (row > 0 && commit.equals(blame.getCommit(row - 1)))) {
+                return "";
+            }
+            switch (column) {
+                case 1:
+                    return commit.getShortHash();
+                case 2:
+                    return commit.author;
+                default:
+                    return commit.date;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.blame.cache.BlameCache;
+import org.eclipse.jgit.blame.cache.CacheRegion;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * LRU cache of finished blames keyed by (commit id, path), stored as runs of lines with the
+ * same source commit.
+ * <p>
+ * JGit's blame generator asks the cache for every commit it reaches. A blame of a revision
+ * next to one already blamed therefore only diffs the commits in between and takes the
+ * remaining lines from the cached blame instead of walking the rest of the history.
+ * Entries are weighed by their number of regions. All methods are thread-safe.
+ */
+public class BlameRegionCache implements BlameCache {
+    /** Default budget in regions; overridable with {@code -Dgitfilehistory.blameCacheRegions}. */
+    public static final int DEFAULT_MAX_REGIONS = Integer.getInteger("gitfilehistory.blameCacheRegions", 1_000_000);
+
+    private static final Metrics.Counter HITS = Metrics.counter("blame.cacheHits");
+    private static final Metrics.Counter MISSES = Metrics.counter("blame.cacheMisses");
+
+    private final int maxRegions;
+    private int usedRegions;
+    private final LinkedHashMap<Key, List<CacheRegion>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public BlameRegionCache() {
+        this(DEFAULT_MAX_REGIONS);
+    }
+
+    public BlameRegionCache(int maxRegions) {
+        this.maxRegions = maxRegions;
+    }
+
+    @Override
+    public synchronized List<CacheRegion> get(Repository repository, ObjectId commitId, String path) {
+        List<CacheRegion> regions = entries.get(new Key(commitId, path));
+        if (regions == null) {
+            MISSES.increment();
+        } else {
+            HITS.increment();
+        }
+        return regions;
+    }
+
+    /** Stores a complete blame of {@code path} in {@code commitId}. */
+    void put(ObjectId commitId, String path, Blame blame) {
+        List<CacheRegion> regions = new ArrayList<>();
+        int start = 0;
+        for (int line = 1; line <= blame.getLineCount(); line++) {
+            if (line == blame.getLineCount()
+                    || !blame.getCommit(line).equals(blame.getCommit(start))
+                    || !blame.getSourcePath(line).equals(blame.getSourcePath(start))) {
+                regions.add(new CacheRegion(blame.getSourcePath(start), blame.getCommit(start).getCommit().getId(),
+                        start, line));
+                start = line;
+            }
+        }
+        put(commitId, path, regions);
+    }
+
+    private synchronized void put(ObjectId commitId, String path, List<CacheRegion> regions) {
+        if (regions.size() > maxRegions) {
+            return;
+        }
+        List<CacheRegion> previous = entries.put(new Key(commitId.copy(), path), regions);
+        if (previous != null) {
+            usedRegions -= previous.size();
+        }
+        usedRegions += regions.size();
+
+        Iterator<List<CacheRegion>> eldest = entries.values().iterator();
+        while (usedRegions > maxRegions && eldest.hasNext()) {
+            usedRegions -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedRegions = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getUsedRegions() {
+        return usedRegions;
+    }
+
+    private static class Key {
+        final ObjectId commitId;
+        final String path;
+
+        Key(ObjectId commitId, String path) {
+            this.commitId = commitId;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return commitId.equals(other.commitId) && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(commitId, path);
+        }
+    }
+}
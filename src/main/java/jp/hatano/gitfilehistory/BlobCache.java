@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-memory cache of file contents read from the object database.
+ * <p>
+ * Two maps are kept: (commit id, path) to blob id, which saves the tree lookup, and
+ * blob id to raw bytes, which is bounded by a byte budget and evicted in LRU order.
+ * All methods are thread-safe.
+ */
+public class BlobCache {
+    /** Default memory budget for blob contents; overridable with {@code -Dgitfilehistory.blobCacheBytes}. */
+    public static final long DEFAULT_BUDGET_BYTES = Long.getLong("gitfilehistory.blobCacheBytes", 64L * 1024 * 1024);
+
+    /** Blob id recorded for paths that do not exist in a commit. */
+    static final ObjectId MISSING = ObjectId.zeroId();
+
+    private static final int MAX_BLOB_ID_ENTRIES = 100_000;
+
+    private final long budgetBytes;
+    private long usedBytes;
+    private final LinkedHashMap<ObjectId, byte[]> blobs = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<PathKey, ObjectId> blobIds = new LinkedHashMap<PathKey, ObjectId>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PathKey, ObjectId> eldest) {
+            return size() > MAX_BLOB_ID_ENTRIES;
+        }
+    };
+
+    private long blobHits;
+    private long blobMisses;
+    private long blobIdHits;
+    private long blobIdMisses;
+
+    public BlobCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Returns the cached blob id of {@code path} in {@code commitId}, {@link #MISSING} if the
+     * path is known to be absent, or null if it has not been looked up yet.
+     */
+    synchronized ObjectId getBlobId(ObjectId commitId, String path) {
+        ObjectId blobId = blobIds.get(new PathKey(commitId, path));
+        if (blobId != null) {
+            blobIdHits++;
+        } else {
+            blobIdMisses++;
+        }
+        return blobId;
+    }
+
+    synchronized void putBlobId(ObjectId commitId, String path, ObjectId blobId) {
+        blobIds.put(new PathKey(commitId.copy(), path), blobId.copy());
+    }
+
+    synchronized byte[] getBlob(ObjectId blobId) {
+        byte[] bytes = blobs.get(blobId);
+        if (bytes != null) {
+            blobHits++;
+        } else {
+            blobMisses++;
+        }
+        return bytes;
+    }
+
+    synchronized void putBlob(ObjectId blobId, byte[] bytes) {
+        if (bytes.length > budgetBytes) {
+            return; // would evict everything else and still not fit
+        }
+        byte[] previous = blobs.put(blobId.copy(), bytes);
+        if (previous != null) {
+            usedBytes -= previous.length;
+        }
+        usedBytes += bytes.length;
+
+        Iterator<byte[]> eldest = blobs.values().iterator();
+        while (usedBytes > budgetBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        blobs.clear();
+        blobIds.clear();
+        usedBytes = 0;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getBlobHits() {
+        return blobHits;
+    }
+
+    public synchronized long getBlobMisses() {
+        return blobMisses;
+    }
+
+    public synchronized long getBlobIdHits() {
+        return blobIdHits;
+    }
+
+    public synchronized long getBlobIdMisses() {
+        return blobIdMisses;
+    }
+
+    private static class PathKey {
+        final ObjectId commitId;
+        final String path;
+
+        PathKey(ObjectId commitId, String path) {
+            this.commitId = commitId;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PathKey)) return false;
+            PathKey other = (PathKey) o;
+            return commitId.equals(other.commitId) && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(commitId, path);
+        }
+    }
+}
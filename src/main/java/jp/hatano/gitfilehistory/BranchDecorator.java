@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Computes which branches contain a given set of commits.
+ * <p>
+ * All branch tips are walked together in topological order, so every commit
+ * is visited once regardless of the number of branches. Branch membership is
+ * carried from children to parents as a bitset indexed by branch, and names
+ * are only materialized for the requested commits.
+ */
+class BranchDecorator {
+    private final Repository repository;
+
+    BranchDecorator(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Returns the names of the branches containing each of {@code targets}.
+     * Commits not reachable from any branch are absent from the result.
+     */
+    Map<ObjectId, List<String>> decorate(List<Ref> branches, Set<ObjectId> targets) throws IOException {
+        Map<ObjectId, List<String>> result = new HashMap<>();
+        if (branches.isEmpty() || targets.isEmpty()) {
+            return result;
+        }
+
+        String[] names = new String[branches.size()];
+        // identical memberships share one list, which matters when most commits are on every branch
+        Map<BitSet, List<String>> namesByMembership = new HashMap<>();
+
+        try (DecoratingWalk walk = new DecoratingWalk(repository)) {
+            walk.setRetainBody(false);
+            walk.sort(RevSort.TOPO);
+            for (int i = 0; i < branches.size(); i++) {
+                Ref branch = branches.get(i);
+                names[i] = Repository.shortenRefName(branch.getName());
+                ObjectId tipId = branch.getObjectId();
+                if (tipId == null) {
+                    continue;
+                }
+                DecoratedCommit tip = (DecoratedCommit) walk.parseCommit(tipId);
+                if (tip.branches == null) {
+                    tip.branches = new BitSet(names.length);
+                }
+                tip.branches.set(i);
+                walk.markStart(tip);
+            }
+
+            int remaining = targets.size();
+            for (RevCommit commit : walk) {
+                DecoratedCommit current = (DecoratedCommit) commit;
+                BitSet membership = current.branches;
+                current.branches = null;
+                if (membership == null) {
+                    continue;
+                }
+
+                if (targets.contains(current)) {
+                    List<String> branchNames = namesByMembership.computeIfAbsent(membership, m -> toNames(m, names));
+                    result.put(current.copy(), branchNames);
+                    if (--remaining == 0) {
+                        break; // every requested commit is decorated
+                    }
+                }
+
+                // in topological order all children are emitted before their parents, so the
+                // membership is final here and can be handed down without further bookkeeping
+                RevCommit[] parents = current.getParents();
+                for (int p = 0; p < parents.length; p++) {
+                    DecoratedCommit parent = (DecoratedCommit) parents[p];
+                    if (parent.branches == null) {
+                        boolean canShare = p == parents.length - 1 && !namesByMembership.containsKey(membership);
+                        parent.branches = canShare ? membership : (BitSet) membership.clone();
+                    } else {
+                        parent.branches.or(membership);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<String> toNames(BitSet membership, String[] names) {
+        List<String> list = new ArrayList<>(membership.cardinality());
+        for (int i = membership.nextSetBit(0); i >= 0; i = membership.nextSetBit(i + 1)) {
+            list.add(names[i]);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private static class DecoratingWalk extends RevWalk {
+        DecoratingWalk(Repository repository) {
+            super(repository);
+        }
+
+        @Override
+        protected RevCommit createCommit(AnyObjectId id) {
+            return new DecoratedCommit(id);
+        }
+    }
+
+    private static class DecoratedCommit extends RevCommit {
+        BitSet branches;
+
+        DecoratedCommit(AnyObjectId id) {
+            super(id);
+        }
+    }
+}
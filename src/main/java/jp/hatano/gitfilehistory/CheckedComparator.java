@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.diff.SequenceComparator;
+
+/**
+ * Checks a {@link DiffUtils.Deadline} on every comparison of the wrapped comparator.
+ * <p>
+ * JGit wraps every comparator in a {@code HashedSequenceComparator}, which only calls
+ * {@code equals} when the hashes match. An {@link #everyStep} comparator reports the same hash
+ * for every line, so each step of a Myers diff reaches {@code equals} and is counted, including
+ * the steps over lines that differ.
+ */
+final class CheckedComparator<S extends Sequence> extends SequenceComparator<S> {
+    private final SequenceComparator<? super S> cmp;
+    private final DiffUtils.Deadline deadline;
+    private final boolean hashed;
+
+    private CheckedComparator(SequenceComparator<? super S> cmp, DiffUtils.Deadline deadline, boolean hashed) {
+        this.cmp = cmp;
+        this.deadline = deadline;
+        this.hashed = hashed;
+    }
+
+    /**
+     * Counts every comparison. Hashes are hidden, so only use this for algorithms that do not
+     * index lines by hash, such as Myers.
+     */
+    static <S extends Sequence> CheckedComparator<S> everyStep(SequenceComparator<? super S> cmp,
+            DiffUtils.Deadline deadline) {
+        return new CheckedComparator<>(cmp, deadline, false);
+    }
+
+    /**
+     * Keeps the hashes of {@code cmp}, so only comparisons of lines with equal hashes are counted.
+     * For algorithms such as histogram diff that bound their own work and need real hashes.
+     */
+    static <S extends Sequence> CheckedComparator<S> hashed(SequenceComparator<? super S> cmp,
+            DiffUtils.Deadline deadline) {
+        return new CheckedComparator<>(cmp, deadline, true);
+    }
+
+    @Override
+    public boolean equals(S a, int ai, S b, int bi) {
+        deadline.check();
+        return cmp.equals(a, ai, b, bi);
+    }
+
+    @Override
+    public int hash(S seq, int ptr) {
+        return hashed ? cmp.hash(seq, ptr) : 0;
+    }
+}
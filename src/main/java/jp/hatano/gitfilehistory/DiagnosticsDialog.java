@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.slf4j.Logger;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.Map;
+
+/**
+ * Shows the timers and counters of {@link Metrics}, refreshed every second while open.
+ */
+class DiagnosticsDialog extends JDialog {
+    private static final int REFRESH_MILLIS = 1000;
+
+    private final DefaultTableModel timerModel = new DefaultTableModel(
+            new Object[]{"Timer", "Count", "Total ms", "Mean ms", "Max ms"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final DefaultTableModel counterModel = new DefaultTableModel(new Object[]{"Counter", "Value"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+
+    DiagnosticsDialog(Frame owner, Logger logger) {
+        super(owner, "Diagnostics", false);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JSplitPane tables = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JScrollPane(new JTable(timerModel)), new JScrollPane(new JTable(counterModel)));
+        tables.setResizeWeight(0.6);
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh());
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            Metrics.reset();
+            refresh();
+        });
+        JButton copyButton = new JButton("Copy");
+        copyButton.addActionListener(e -> Toolkit.getDefaultToolkit().getSystemClipboard()
+                .setContents(new StringSelection(Metrics.report()), null));
+        JButton logButton = new JButton("Write to Log");
+        // asked for explicitly, so written at a level the default configuration keeps
+        logButton.addActionListener(e -> logger.warn("Metrics:{}{}", System.lineSeparator(), Metrics.report()));
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(refreshButton);
+        buttonPanel.add(resetButton);
+        buttonPanel.add(copyButton);
+        buttonPanel.add(logButton);
+        buttonPanel.add(closeButton);
+
+        JPanel content = new JPanel(new BorderLayout(5, 5));
+        content.setBorder(new EmptyBorder(5, 5, 5, 5));
+        content.add(tables, BorderLayout.CENTER);
+        content.add(buttonPanel, BorderLayout.SOUTH);
+        setContentPane(content);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refreshTimer.stop();
+            }
+        });
+        refresh();
+        refreshTimer.start();
+        setSize(640, 520);
+        setLocationRelativeTo(owner);
+    }
+
+    private void refresh() {
+        timerModel.setRowCount(0);
+        for (Map.Entry<String, Metrics.Timer> entry : Metrics.timers().entrySet()) {
+            Metrics.Timer timer = entry.getValue();
+            long count = timer.getCount();
+            double total = Metrics.millis(timer.getTotalNanos());
+            timerModel.addRow(new Object[]{entry.getKey(), count, format(total),
+                    format(count > 0 ? total / count : 0.0), format(Metrics.millis(timer.getMaxNanos()))});
+        }
+        counterModel.setRowCount(0);
+        for (Map.Entry<String, Metrics.Counter> entry : Metrics.counters().entrySet()) {
+            counterModel.addRow(new Object[]{entry.getKey(), entry.getValue().get()});
+        }
+    }
+
+    private static String format(double millis) {
+        return String.format("%.3f", millis);
+    }
+}
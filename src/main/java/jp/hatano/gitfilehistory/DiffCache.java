@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU cache of computed diffs keyed by the blob ids of both sides.
+ * <p>
+ * Keying by content rather than by commit means that every commit pair mapping to the
+ * same blob pair (merges, cherry-picks, reverts) shares one entry. Entries are weighed
+ * by the size of the contents they keep alive and evicted beyond a byte budget.
+ * All methods are thread-safe.
+ */
+public class DiffCache {
+    /** Default budget; overridable with {@code -Dgitfilehistory.diffCacheBytes}. */
+    public static final long DEFAULT_BUDGET_BYTES = Long.getLong("gitfilehistory.diffCacheBytes", 128L * 1024 * 1024);
+
+    private final long budgetBytes;
+    private long usedBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+
+    public DiffCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    public DiffCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public synchronized List<DiffUtils.Diff> get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.diffs;
+    }
+
+    /**
+     * @param weightBytes memory kept alive by {@code diffs}, normally the size of both contents
+     */
+    public synchronized void put(Key key, List<DiffUtils.Diff> diffs, long weightBytes) {
+        if (weightBytes > budgetBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(diffs, weightBytes));
+        if (previous != null) {
+            usedBytes -= previous.weightBytes;
+        }
+        usedBytes += weightBytes;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (usedBytes > budgetBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().weightBytes;
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Identifies a diff by both blob ids and every option that changes its result.
+     */
+    public static final class Key {
+        final ObjectId oldBlobId;
+        final ObjectId newBlobId;
+        final String encoding;
+        final DiffUtils.Algorithm algorithm;
+
+        public Key(ObjectId oldBlobId, ObjectId newBlobId, String encoding, DiffUtils.Algorithm algorithm) {
+            this.oldBlobId = oldBlobId.copy();
+            this.newBlobId = newBlobId.copy();
+            this.encoding = encoding;
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return oldBlobId.equals(other.oldBlobId)
+                    && newBlobId.equals(other.newBlobId)
+                    && encoding.equals(other.encoding)
+                    && algorithm == other.algorithm;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(oldBlobId, newBlobId, encoding, algorithm);
+        }
+    }
+
+    private static class Entry {
+        final List<DiffUtils.Diff> diffs;
+        final long weightBytes;
+
+        Entry(List<DiffUtils.Diff> diffs, long weightBytes) {
+            this.diffs = diffs;
+            this.weightBytes = weightBytes;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import javax.swing.text.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Builds the two documents of the side-by-side view from a diff.
+ * <p>
+ * The documents are created detached from any component, so building them is safe off the
+ * event dispatch thread. Their element structure is created in one bulk operation instead
+ * of one {@code insertString} per line, which keeps the number of document events constant.
+ */
+class DiffDocumentBuilder {
+    static final Color ADD_COLOR = new Color(220, 255, 220);
+    static final Color DELETE_COLOR = new Color(255, 220, 220);
+    static final Color MODIFIED_COLOR = new Color(220, 220, 255);
+    static final Color FOLDED_COLOR = new Color(235, 240, 245);
+
+    private static final AttributeSet PLAIN_STYLE = SimpleAttributeSet.EMPTY;
+    private static final AttributeSet ADD_STYLE = background(ADD_COLOR);
+    private static final AttributeSet DELETE_STYLE = background(DELETE_COLOR);
+    private static final AttributeSet MODIFIED_STYLE = background(MODIFIED_COLOR);
+    private static final AttributeSet FOLDED_STYLE = folded();
+
+    private static final Metrics.Timer BUILD = Metrics.timer("view.build");
+    private static final Metrics.Timer WRAP = Metrics.timer("view.wrap");
+    private static final Metrics.Timer CREATE_DOCUMENT = Metrics.timer("view.createDocument");
+    private static final Metrics.Counter ROWS = Metrics.counter("view.rows");
+    private static final Metrics.Counter PARAGRAPHS = Metrics.counter("view.paragraphs");
+
+    /**
+     * The built documents with the source line number of each paragraph,
+     * {@link LineNumberView#BLANK} for filler rows, and the diff block index of each folded
+     * placeholder paragraph. {@code rowStarts[i]} is the first paragraph of {@link DiffRows}
+     * row {@code firstRow + i}.
+     */
+    static class Result {
+        final StyledDocument leftDocument;
+        final StyledDocument rightDocument;
+        final int[] leftLineNumbers;
+        final int[] rightLineNumbers;
+        final Map<Integer, Integer> foldedBlockByRow;
+        final int firstRow;
+        final int[] rowStarts;
+
+        Result(StyledDocument leftDocument, StyledDocument rightDocument,
+               int[] leftLineNumbers, int[] rightLineNumbers,
+               Map<Integer, Integer> foldedBlockByRow, int firstRow, int[] rowStarts) {
+            this.leftDocument = leftDocument;
+            this.rightDocument = rightDocument;
+            this.leftLineNumbers = leftLineNumbers;
+            this.rightLineNumbers = rightLineNumbers;
+            this.foldedBlockByRow = foldedBlockByRow;
+            this.firstRow = firstRow;
+            this.rowStarts = rowStarts;
+        }
+
+        /** Returns the row shown at {@code paragraph}, or -1 if the result has no rows. */
+        int rowAtParagraph(int paragraph) {
+            if (rowStarts.length == 0) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(rowStarts, paragraph);
+            return firstRow + (index >= 0 ? index : Math.max(0, -index - 2));
+        }
+
+        /** Returns the first paragraph of {@code row}, or -1 if the row is not in this result. */
+        int paragraphOfRow(int row) {
+            int index = row - firstRow;
+            return index >= 0 && index < rowStarts.length ? rowStarts[index] : -1;
+        }
+    }
+
+    private final LineWrapper leftWrapper;
+    private final LineWrapper rightWrapper;
+    private final Font font;
+
+    /**
+     * @param leftWrapper  wrapper measured against the left pane; create it on the EDT
+     * @param rightWrapper wrapper measured against the right pane; create it on the EDT
+     * @param font         font of the panes, applied to the default style of the new documents
+     */
+    DiffDocumentBuilder(LineWrapper leftWrapper, LineWrapper rightWrapper, Font font) {
+        this.leftWrapper = leftWrapper;
+        this.rightWrapper = rightWrapper;
+        this.font = font;
+    }
+
+    /**
+     * Builds both documents. Checks the interrupt flag between lines and throws
+     * {@link CancellationException} when it is set.
+     */
+    Result build(List<DiffUtils.Diff> diffs) {
+        return build(new DiffRows(diffs), 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Builds documents holding only the rows {@code [firstRow, firstRow + maxRows)} of
+     * {@code rows}, with their real line numbers.
+     */
+    Result build(DiffRows rows, int firstRow, int maxRows) {
+        FlightEvents.DocumentBuild event = new FlightEvents.DocumentBuild();
+        event.begin();
+        long start = System.nanoTime();
+        Side left = new Side(leftWrapper);
+        Side right = new Side(rightWrapper);
+        Map<Integer, Integer> foldedBlockByRow = new HashMap<>();
+        int endRow = (int) Math.min(rows.getRowCount(), (long) firstRow + maxRows);
+        int[] rowStarts = new int[Math.max(0, endRow - firstRow)];
+
+        for (int row = firstRow; row < endRow; row++) {
+            rowStarts[row - firstRow] = left.paragraphs;
+            DiffUtils.DiffType type = rows.getType(row);
+            if (type == DiffUtils.DiffType.FOLDED) {
+                // one unwrapped placeholder row instead of the hidden lines
+                foldedBlockByRow.put(left.paragraphs, rows.getBlockIndex(row));
+                String label = foldedLabel(rows.getFoldedLineCount(row));
+                left.append(label, FOLDED_STYLE, LineNumberView.BLANK);
+                right.append(label, FOLDED_STYLE, LineNumberView.BLANK);
+                continue;
+            }
+            String oldLine = rows.getLeftText(row);
+            String newLine = rows.getRightText(row);
+            int oldLineNum = rows.getLeftLineNumber(row);
+            int newLineNum = rows.getRightLineNumber(row);
+            appendLines(left, right, oldLine != null ? oldLine : "", newLine != null ? newLine : "",
+                    leftStyleOf(type), rightStyleOf(type), oldLineNum, newLineNum);
+        }
+        // wrapping is timed per line, so record the sum once instead of one sample per line
+        WRAP.record(left.wrapNanos);
+        ROWS.add(rowStarts.length);
+        PARAGRAPHS.add(left.paragraphs + right.paragraphs);
+
+        long createStart = System.nanoTime();
+        StyledDocument leftDocument = left.toDocument();
+        StyledDocument rightDocument = right.toDocument();
+        CREATE_DOCUMENT.recordSince(createStart);
+        BUILD.recordSince(start);
+        if (event.shouldCommit()) {
+            event.firstRow = firstRow;
+            event.rows = rowStarts.length;
+            event.paragraphs = left.paragraphs;
+            event.commit();
+        }
+        return new Result(leftDocument, rightDocument, left.lineNumbers(), right.lineNumbers(),
+                foldedBlockByRow, firstRow, rowStarts);
+    }
+
+    private static AttributeSet leftStyleOf(DiffUtils.DiffType type) {
+        switch (type) {
+            case DELETE:
+                return DELETE_STYLE;
+            case CHANGE:
+                return MODIFIED_STYLE;
+            default:
+                return PLAIN_STYLE;
+        }
+    }
+
+    private static AttributeSet rightStyleOf(DiffUtils.DiffType type) {
+        switch (type) {
+            case INSERT:
+                return ADD_STYLE;
+            case CHANGE:
+                return MODIFIED_STYLE;
+            default:
+                return PLAIN_STYLE;
+        }
+    }
+
+    private static void appendLines(Side left, Side right, String oldLine, String newLine,
+                                    AttributeSet oldStyle, AttributeSet newStyle,
+                                    int oldLineNum, int newLineNum) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+        long wrapStart = System.nanoTime();
+        List<String> wrappedOld = left.wrapper.wrap(oldLine);
+        List<String> wrappedNew = right.wrapper.wrap(newLine);
+        left.wrapNanos += System.nanoTime() - wrapStart;
+        int wrappedLinesCount = Math.max(wrappedOld.size(), wrappedNew.size());
+
+        for (int j = 0; j < wrappedLinesCount; j++) {
+            // Line numbers only go on the first physical line of a logical line
+            left.append(j < wrappedOld.size() ? wrappedOld.get(j) : "", oldLineNum > 0 ? oldStyle : null,
+                    j == 0 ? oldLineNum : LineNumberView.BLANK);
+            right.append(j < wrappedNew.size() ? wrappedNew.get(j) : "", newLineNum > 0 ? newStyle : null,
+                    j == 0 ? newLineNum : LineNumberView.BLANK);
+        }
+    }
+
+    /** Text shown in place of {@code lines} folded unchanged lines. */
+    static String foldedLabel(int lines) {
+        return "... " + lines + " unchanged lines (click to expand) ...";
+    }
+
+    private static AttributeSet folded() {
+        SimpleAttributeSet style = new SimpleAttributeSet();
+        StyleConstants.setBackground(style, FOLDED_COLOR);
+        StyleConstants.setForeground(style, Color.GRAY);
+        return style;
+    }
+
+    private static AttributeSet background(Color color) {
+        SimpleAttributeSet style = new SimpleAttributeSet();
+        StyleConstants.setBackground(style, color);
+        return style;
+    }
+
+    /** Accumulates the element specs of one pane. */
+    private class Side {
+        final LineWrapper wrapper;
+        final BulkDocument document = new BulkDocument();
+        final SimpleAttributeSet paragraphStyle = new SimpleAttributeSet();
+        final List<DefaultStyledDocument.ElementSpec> specs = new ArrayList<>();
+        int[] lineNumbers = new int[256];
+        int paragraphs;
+        long wrapNanos;
+
+        Side(LineWrapper wrapper) {
+            this.wrapper = wrapper;
+            // create() takes the first spec as the start tag of the root element
+            specs.add(new DefaultStyledDocument.ElementSpec(null, DefaultStyledDocument.ElementSpec.StartTagType));
+            Style defaultStyle = document.getStyle(StyleContext.DEFAULT_STYLE);
+            StyleConstants.setFontFamily(defaultStyle, font.getFamily());
+            StyleConstants.setFontSize(defaultStyle, font.getSize());
+            paragraphStyle.setResolveParent(defaultStyle);
+        }
+
+        void append(String text, AttributeSet style, int lineNumber) {
+            char[] chars = new char[text.length() + 1];
+            text.getChars(0, text.length(), chars, 0);
+            chars[text.length()] = '\n';
+            specs.add(new DefaultStyledDocument.ElementSpec(paragraphStyle, DefaultStyledDocument.ElementSpec.StartTagType));
+            specs.add(new DefaultStyledDocument.ElementSpec(style != null ? style : PLAIN_STYLE,
+                    DefaultStyledDocument.ElementSpec.ContentType, chars, 0, chars.length));
+            specs.add(new DefaultStyledDocument.ElementSpec(paragraphStyle, DefaultStyledDocument.ElementSpec.EndTagType));
+            if (paragraphs == lineNumbers.length) {
+                lineNumbers = Arrays.copyOf(lineNumbers, paragraphs * 2);
+            }
+            lineNumbers[paragraphs++] = lineNumber;
+        }
+
+        int[] lineNumbers() {
+            return Arrays.copyOf(lineNumbers, paragraphs);
+        }
+
+        StyledDocument toDocument() {
+            // the document keeps its implicit trailing paragraph, as it did with per-line inserts
+            document.createFrom(specs);
+            return document;
+        }
+    }
+
+    /** Exposes the protected bulk initialization of {@link DefaultStyledDocument}. */
+    private static class BulkDocument extends DefaultStyledDocument {
+        void createFrom(List<ElementSpec> specs) {
+            create(specs.toArray(new ElementSpec[0]));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.diff.EditList;
+
+/**
+ * A line diff algorithm used by {@link DiffUtils}. Lines are compared as interned ids.
+ */
+interface DiffEngine {
+    /**
+     * Computes the edits turning {@code oldLines} into {@code newLines}.
+     * Implementations call {@link DiffUtils.Deadline#check()} while comparing lines, usually
+     * through a {@link CheckedComparator}, so that long-running or too costly diffs can be abandoned.
+     */
+    EditList diff(IntSequence oldLines, IntSequence newLines, DiffUtils.Deadline deadline);
+}
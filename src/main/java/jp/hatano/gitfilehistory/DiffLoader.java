@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Produces the diff of a file between two commits, going through a {@link DiffCache}
+ * so that the on-screen view and every export path share computed results.
+ */
+public class DiffLoader {
+    private static final Metrics.Counter CACHE_HITS = Metrics.counter("diff.cacheHits");
+    private static final Metrics.Counter CACHE_MISSES = Metrics.counter("diff.cacheMisses");
+    private static final Metrics.Timer READ_CONTENTS = Metrics.timer("diff.readContents");
+    private static final Metrics.Timer LOAD = Metrics.timer("diff.load");
+
+    private final GitService gitService;
+    private final DiffCache diffCache;
+    private final ExecutorService contentLoader;
+    private final long timeLimitMillis;
+
+    /**
+     * @param contentLoader executor used to read both sides in parallel, or null to read them
+     *                      on the calling thread
+     */
+    public DiffLoader(GitService gitService, DiffCache diffCache, ExecutorService contentLoader) {
+        this(gitService, diffCache, contentLoader, DiffUtils.DEFAULT_TIME_LIMIT_MILLIS);
+    }
+
+    DiffLoader(GitService gitService, DiffCache diffCache, ExecutorService contentLoader, long timeLimitMillis) {
+        this.gitService = gitService;
+        this.diffCache = diffCache;
+        this.contentLoader = contentLoader;
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    public List<DiffUtils.Diff> load(CommitInfo oldCommit, CommitInfo newCommit, String filePath,
+            String encoding, DiffUtils.Algorithm algorithm) throws IOException, InterruptedException {
+        FlightEvents.Diff event = new FlightEvents.Diff();
+        event.begin();
+        long start = System.nanoTime();
+        // the working tree file has to be read to be hashed anyway; keep it for the diff
+        byte[] oldWorktree = oldCommit.isUncommitted() ? gitService.getFileBytes(oldCommit, filePath) : null;
+        byte[] newWorktree = newCommit.isUncommitted() ? gitService.getFileBytes(newCommit, filePath) : null;
+        ObjectId oldBlobId = oldWorktree != null ? GitService.blobIdOf(oldWorktree) : gitService.getBlobId(oldCommit, filePath);
+        ObjectId newBlobId = newWorktree != null ? GitService.blobIdOf(newWorktree) : gitService.getBlobId(newCommit, filePath);
+        DiffCache.Key key = new DiffCache.Key(oldBlobId, newBlobId, encoding, algorithm);
+        List<DiffUtils.Diff> diffs = diffCache.get(key);
+        if (diffs != null) {
+            CACHE_HITS.increment();
+            if (event.shouldCommit()) {
+                describe(event, oldCommit, newCommit, filePath, oldBlobId, newBlobId);
+                event.cacheHit = true;
+                event.commit();
+            }
+            return diffs;
+        }
+        CACHE_MISSES.increment();
+
+        long readStart = System.nanoTime();
+        byte[] oldContent;
+        byte[] newContent;
+        if (contentLoader != null) {
+            Future<byte[]> oldFuture = oldWorktree != null ? CompletableFuture.completedFuture(oldWorktree)
+                    : contentLoader.submit(() -> gitService.getFileBytes(oldCommit, filePath));
+            Future<byte[]> newFuture = newWorktree != null ? CompletableFuture.completedFuture(newWorktree)
+                    : contentLoader.submit(() -> gitService.getFileBytes(newCommit, filePath));
+            try {
+                oldContent = oldFuture.get();
+                newContent = newFuture.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } finally {
+                oldFuture.cancel(true);
+                newFuture.cancel(true);
+            }
+        } else {
+            oldContent = oldWorktree != null ? oldWorktree : gitService.getFileBytes(oldCommit, filePath);
+            newContent = newWorktree != null ? newWorktree : gitService.getFileBytes(newCommit, filePath);
+        }
+        READ_CONTENTS.recordSince(readStart);
+
+        DiffUtils.Stats stats = new DiffUtils.Stats();
+        diffs = DiffUtils.diff(oldContent, newContent, Charset.forName(encoding), algorithm, timeLimitMillis, stats);
+        if (!stats.isTimedOut()) {
+            // a coarse fallback would otherwise stick even once the machine is idle again
+            diffCache.put(key, diffs, (long) oldContent.length + newContent.length);
+        }
+        LOAD.recordSince(start);
+        if (event.shouldCommit()) {
+            describe(event, oldCommit, newCommit, filePath, oldBlobId, newBlobId);
+            event.algorithm = stats.getAlgorithm().name();
+            event.oldBytes = oldContent.length;
+            event.newBytes = newContent.length;
+            event.oldLines = stats.getOldLines();
+            event.newLines = stats.getNewLines();
+            event.edits = stats.getEdits();
+            event.timedOut = stats.isTimedOut();
+            event.overBudget = stats.isOverBudget();
+            event.commit();
+        }
+        return diffs;
+    }
+
+    private void describe(FlightEvents.Diff event, CommitInfo oldCommit, CommitInfo newCommit, String filePath,
+            ObjectId oldBlobId, ObjectId newBlobId) {
+        event.repository = gitService.repositoryName();
+        event.path = filePath;
+        event.oldCommit = GitService.revisionOf(oldCommit);
+        event.newCommit = GitService.revisionOf(newCommit);
+        event.oldBlob = oldBlobId.getName();
+        event.newBlob = newBlobId.getName();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Row index over a diff for the side-by-side layout without wrapping.
+ * <p>
+ * One row shows one line of each side; {@code CHANGE} blocks take as many rows as their
+ * longer side, and a {@code FOLDED} block takes a single placeholder row. Only the first
+ * row and first line numbers of each block are stored, so the index stays small for huge
+ * files and a row is found by binary search over the blocks.
+ */
+class DiffRows {
+    private final List<DiffUtils.Diff> diffs;
+    private final int[] blockStartRow;
+    private final int[] blockLeftLine;
+    private final int[] blockRightLine;
+    private final int rowCount;
+
+    DiffRows(List<DiffUtils.Diff> diffs) {
+        this.diffs = diffs;
+        int n = diffs.size();
+        blockStartRow = new int[n];
+        blockLeftLine = new int[n];
+        blockRightLine = new int[n];
+        int row = 0, leftLine = 1, rightLine = 1;
+        for (int i = 0; i < n; i++) {
+            DiffUtils.Diff diff = diffs.get(i);
+            blockStartRow[i] = row;
+            blockLeftLine[i] = leftLine;
+            blockRightLine[i] = rightLine;
+            leftLine += leftSize(diff);
+            rightLine += rightSize(diff);
+            row += rowsOf(diff);
+        }
+        rowCount = row;
+    }
+
+    /** Returns the number of rows {@code diffs} takes without building the index. */
+    static int countRows(List<DiffUtils.Diff> diffs) {
+        int rows = 0;
+        for (DiffUtils.Diff diff : diffs) {
+            rows += rowsOf(diff);
+        }
+        return rows;
+    }
+
+    List<DiffUtils.Diff> getDiffs() {
+        return diffs;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    DiffUtils.DiffType getType(int row) {
+        return diffs.get(blockOf(row)).type;
+    }
+
+    /** Returns the index in {@link #getDiffs()} of the block shown at {@code row}. */
+    int getBlockIndex(int row) {
+        return blockOf(row);
+    }
+
+    /** Returns the number of lines hidden by the placeholder at {@code row}, or 0 for other rows. */
+    int getFoldedLineCount(int row) {
+        DiffUtils.Diff diff = diffs.get(blockOf(row));
+        return diff.type == DiffUtils.DiffType.FOLDED ? diff.lines.size() : 0;
+    }
+
+    /** Returns the line on the left at {@code row}, or null for a filler or placeholder row. */
+    String getLeftText(int row) {
+        int block = blockOf(row);
+        int offset = row - blockStartRow[block];
+        DiffUtils.Diff diff = diffs.get(block);
+        return diff.type != DiffUtils.DiffType.FOLDED && offset < leftSize(diff) ? leftLines(diff).get(offset) : null;
+    }
+
+    /** Returns the line on the right at {@code row}, or null for a filler or placeholder row. */
+    String getRightText(int row) {
+        int block = blockOf(row);
+        int offset = row - blockStartRow[block];
+        DiffUtils.Diff diff = diffs.get(block);
+        return diff.type != DiffUtils.DiffType.FOLDED && offset < rightSize(diff) ? rightLines(diff).get(offset) : null;
+    }
+
+    /** Returns the 1-based line number on the left at {@code row}, or 0 for a filler or placeholder row. */
+    int getLeftLineNumber(int row) {
+        int block = blockOf(row);
+        int offset = row - blockStartRow[block];
+        DiffUtils.Diff diff = diffs.get(block);
+        return diff.type != DiffUtils.DiffType.FOLDED && offset < leftSize(diff) ? blockLeftLine[block] + offset : 0;
+    }
+
+    /** Returns the 1-based line number on the right at {@code row}, or 0 for a filler or placeholder row. */
+    int getRightLineNumber(int row) {
+        int block = blockOf(row);
+        int offset = row - blockStartRow[block];
+        DiffUtils.Diff diff = diffs.get(block);
+        return diff.type != DiffUtils.DiffType.FOLDED && offset < rightSize(diff) ? blockRightLine[block] + offset : 0;
+    }
+
+    /** Returns the highest line number shown on either side. */
+    int getMaxLineNumber() {
+        int n = diffs.size();
+        if (n == 0) {
+            return 0;
+        }
+        DiffUtils.Diff last = diffs.get(n - 1);
+        return Math.max(blockLeftLine[n - 1] + leftSize(last), blockRightLine[n - 1] + rightSize(last)) - 1;
+    }
+
+    /**
+     * Returns the first row from {@code fromRow} on, or back from it if not {@code forward},
+     * whose text on either side contains a match of {@code pattern}, wrapping around at the ends.
+     * Placeholder rows are skipped. Returns -1 if no row matches.
+     * <p>
+     * Lines are decoded as they are read, so this is meant to run off the event dispatch thread.
+     *
+     * @throws CancellationException if the calling thread is interrupted, even inside a slow match
+     */
+    int findRow(Pattern pattern, int fromRow, boolean forward) {
+        Matcher matcher = pattern.matcher("");
+        for (int i = 0; i < rowCount; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+            int row = Math.floorMod(forward ? fromRow + i : fromRow - i, rowCount);
+            if (matches(matcher, getLeftText(row)) || matches(matcher, getRightText(row))) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the start and end offsets of the matches of {@code pattern} in {@code text} as
+     * consecutive pairs, in order; empty for a null text. Like {@link #findRow}, this is meant to
+     * run off the event dispatch thread.
+     *
+     * @throws CancellationException if the calling thread is interrupted, even inside a slow match
+     */
+    static int[] findMatches(Pattern pattern, String text) {
+        if (text == null) {
+            return new int[0];
+        }
+        Matcher matcher = pattern.matcher(new SearchManager.InterruptibleCharSequence(text));
+        int[] offsets = new int[8];
+        int n = 0;
+        while (matcher.find()) {
+            if (n == offsets.length) {
+                offsets = Arrays.copyOf(offsets, n * 2);
+            }
+            offsets[n++] = matcher.start();
+            offsets[n++] = matcher.end();
+        }
+        return Arrays.copyOf(offsets, n);
+    }
+
+    private static boolean matches(Matcher matcher, String text) {
+        return text != null && matcher.reset(new SearchManager.InterruptibleCharSequence(text)).find();
+    }
+
+    private int blockOf(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + rowCount);
+        }
+        int index = Arrays.binarySearch(blockStartRow, row);
+        if (index < 0) {
+            return -index - 2;
+        }
+        // empty blocks share their start row with the next one; take the last of them
+        while (index + 1 < blockStartRow.length && blockStartRow[index + 1] == row) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int rowsOf(DiffUtils.Diff diff) {
+        return diff.type == DiffUtils.DiffType.FOLDED ? 1 : Math.max(leftSize(diff), rightSize(diff));
+    }
+
+    private static List<String> leftLines(DiffUtils.Diff diff) {
+        switch (diff.type) {
+            case EQUAL:
+            case FOLDED:
+            case DELETE:
+                return diff.lines;
+            case CHANGE:
+                return diff.oldLines;
+            default:
+                return null;
+        }
+    }
+
+    private static List<String> rightLines(DiffUtils.Diff diff) {
+        switch (diff.type) {
+            case EQUAL:
+            case FOLDED:
+            case INSERT:
+                return diff.lines;
+            case CHANGE:
+                return diff.newLines;
+            default:
+                return null;
+        }
+    }
+
+    private static int leftSize(DiffUtils.Diff diff) {
+        List<String> lines = leftLines(diff);
+        return lines != null ? lines.size() : 0;
+    }
+
+    private static int rightSize(DiffUtils.Diff diff) {
+        List<String> lines = rightLines(diff);
+        return lines != null ? lines.size() : 0;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.util.RawParseUtils;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The raw bytes of one side of a diff, split into lines without decoding them.
+ * <p>
+ * Lines are decoded with the given charset only when they are read, with the
+ * line terminator ({@code \n} or {@code \r\n}) removed.
+ */
+class DiffText extends RawText {
+    /**
+     * Line equality ignoring the line terminator, so CRLF and LF lines compare equal.
+     * Only valid for {@code DiffText} sequences.
+     */
+    static final RawTextComparator COMPARATOR = new RawTextComparator() {
+        @Override
+        public boolean equals(RawText a, int ai, RawText b, int bi) {
+            DiffText aText = (DiffText) a;
+            DiffText bText = (DiffText) b;
+            int aStart = aText.lineStart(ai);
+            int aEnd = aText.lineContentEnd(ai);
+            int bStart = bText.lineStart(bi);
+            int bEnd = bText.lineContentEnd(bi);
+            if (aEnd - aStart != bEnd - bStart) {
+                return false;
+            }
+            byte[] aRaw = aText.content;
+            byte[] bRaw = bText.content;
+            while (aStart < aEnd) {
+                if (aRaw[aStart++] != bRaw[bStart++]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected int hashRegion(byte[] raw, int ptr, int end) {
+            end = contentEnd(raw, ptr, end);
+            int hash = 5381;
+            for (; ptr < end; ptr++) {
+                hash = ((hash << 5) + hash) + (raw[ptr] & 0xff);
+            }
+            return hash;
+        }
+    };
+
+    private static final Metrics.Counter DECODED_LINES = Metrics.counter("text.decodedLines");
+
+    private final Charset charset;
+
+    DiffText(byte[] content, Charset charset) {
+        super(content);
+        this.charset = charset;
+    }
+
+    int lineStart(int i) {
+        return lines.get(i + 1);
+    }
+
+    /** End of line {@code i}, excluding its terminator. */
+    int lineContentEnd(int i) {
+        return contentEnd(content, lines.get(i + 1), lines.get(i + 2));
+    }
+
+    String getLine(int i) {
+        return getString(i, i + 1, true);
+    }
+
+    /**
+     * Returns a read-only view of the lines, decoded on each access.
+     */
+    List<String> lines() {
+        return new LineList();
+    }
+
+    @Override
+    protected String decode(int start, int end) {
+        if (end > start && content[end - 1] == '\r') {
+            end--;
+        }
+        DECODED_LINES.increment();
+        return RawParseUtils.decode(charset, content, start, end);
+    }
+
+    private static int contentEnd(byte[] raw, int start, int end) {
+        if (end > start && raw[end - 1] == '\n') {
+            end--;
+        }
+        if (end > start && raw[end - 1] == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    private class LineList extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Line " + index + " of " + size());
+            }
+            return getLine(index);
+        }
+
+        @Override
+        public int size() {
+            return DiffText.this.size();
+        }
+    }
+}
@@ -5,19 +5,55 @@
  */
 package jp.hatano.gitfilehistory;
 
-import com.github.difflib.patch.AbstractDelta;
-import com.github.difflib.patch.DeltaType;
-import com.github.difflib.patch.Patch;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.errors.DiffInterruptedException;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A simple diff utility class to find differences between two lists of strings.
- * Uses a basic Longest Common Subsequence (LCS) approach.
+ * Lines are first interned to int ids by {@link LineInterner}, then diffed with Myers' algorithm.
+ * <p>
+ * Byte contents can also be diffed with a selectable {@link Algorithm}; see
+ * {@link #diff(byte[], byte[], Charset, Algorithm, long, Stats)}.
  */
 public class DiffUtils {
-    public enum DiffType { EQUAL, DELETE, INSERT, CHANGE }
+    /** Block types; {@code FOLDED} is an unchanged run hidden by {@link #fold(List, int)}. */
+    public enum DiffType { EQUAL, DELETE, INSERT, CHANGE, FOLDED }
+
+    /** Line diff algorithm used for byte contents. */
+    public enum Algorithm {
+        /** Myers for inputs up to {@link #HISTOGRAM_THRESHOLD_LINES}, histogram beyond. */
+        AUTO,
+        MYERS,
+        HISTOGRAM
+    }
+
+    /** Combined line count above which {@link Algorithm#AUTO} switches to histogram diff. */
+    public static final int HISTOGRAM_THRESHOLD_LINES = 10_000;
+
+    /** Unchanged lines kept around each change by {@link #fold(List, int)}. */
+    public static final int DEFAULT_CONTEXT_LINES = 3;
+
+    /** Time after which a diff is abandoned and replaced by a coarse one. */
+    public static final long DEFAULT_TIME_LIMIT_MILLIS = 5_000;
+
+    /**
+     * Line comparisons after which a diff is abandoned and replaced by a coarse one, whatever the
+     * time limit; overridable with {@code -Dgitfilehistory.diffMaxComparisons}.
+     */
+    public static final long DEFAULT_MAX_COMPARISONS = Long.getLong("gitfilehistory.diffMaxComparisons", 200_000_000L);
+
+    private static final Metrics.Timer INTERN = Metrics.timer("diff.intern");
+    private static final Metrics.Timer ALGORITHM = Metrics.timer("diff.algorithm");
+    private static final Metrics.Counter LINES = Metrics.counter("diff.lines");
+    private static final Metrics.Counter TIMEOUTS = Metrics.counter("diff.timeouts");
+    private static final Metrics.Counter OVER_BUDGET = Metrics.counter("diff.overBudget");
 
     public static class Diff {
         public final DiffType type;
@@ -40,36 +76,293 @@ public class DiffUtils {
     }
 
     public static List<Diff> diff(List<String> oldLines, List<String> newLines) {
-        final List<Diff> diffs = new ArrayList<>();
-        final Patch<String> patch = com.github.difflib.DiffUtils.diff(oldLines, newLines);
+        LineInterner interner = new LineInterner();
+        IntSequence oldIds = interner.intern(oldLines);
+        IntSequence newIds = interner.intern(newLines);
+        EditList edits = new MyersDiffEngine().diff(oldIds, newIds, Deadline.unlimited());
+        return toDiffs(edits, oldLines, newLines);
+    }
 
-        int lastOldPos = 0;
-        for (final AbstractDelta<String> delta : patch.getDeltas()) {
-            final int currentOldPos = delta.getSource().getPosition();
+    /**
+     * Describes how one diff of byte contents was computed; filled in by
+     * {@link #diff(byte[], byte[], Charset, Algorithm, long, Stats)}.
+     */
+    public static class Stats {
+        Algorithm algorithm;
+        int oldLines;
+        int newLines;
+        int edits;
+        boolean timedOut;
+        boolean overBudget;
 
-            // Add EQUAL block for lines between the last delta and this one
-            if (lastOldPos < currentOldPos) {
-                diffs.add(new Diff(DiffType.EQUAL, oldLines.subList(lastOldPos, currentOldPos)));
-            }
+        /** The algorithm that ran, never {@link Algorithm#AUTO}. */
+        public Algorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        public int getOldLines() {
+            return oldLines;
+        }
+
+        public int getNewLines() {
+            return newLines;
+        }
+
+        public int getEdits() {
+            return edits;
+        }
+
+        /** True if the time limit ran out and the result is a coarse diff. */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
 
-            // Handle the delta itself
-            if (delta.getType() == DeltaType.CHANGE) {
-                diffs.add(new Diff(DiffType.CHANGE, delta.getTarget().getLines(), delta.getSource().getLines()));
-            } else if (delta.getType() == DeltaType.DELETE) {
-                diffs.add(new Diff(DiffType.DELETE, delta.getSource().getLines()));
-            } else if (delta.getType() == DeltaType.INSERT) {
-                diffs.add(new Diff(DiffType.INSERT, delta.getTarget().getLines()));
+        /**
+         * True if the algorithm needed more than {@link #DEFAULT_MAX_COMPARISONS} line comparisons
+         * and the result is a coarse diff. Unlike a timeout this only depends on the contents.
+         */
+        public boolean isOverBudget() {
+            return overBudget;
+        }
+    }
+
+    public static List<Diff> diff(byte[] oldContent, byte[] newContent, Charset charset) {
+        return diff(oldContent, newContent, charset, Algorithm.AUTO, DEFAULT_TIME_LIMIT_MILLIS);
+    }
+
+    public static List<Diff> diff(byte[] oldContent, byte[] newContent, Charset charset,
+            Algorithm algorithm, long timeLimitMillis) {
+        return diff(oldContent, newContent, charset, algorithm, timeLimitMillis, new Stats());
+    }
+
+    /**
+     * Diffs two byte contents line by line. Lines are split on {@code \n}, a trailing {@code \r}
+     * is ignored, and line strings are only decoded when the returned blocks are read.
+     * <p>
+     * If the algorithm does not finish within {@code timeLimitMillis} or within
+     * {@link #DEFAULT_MAX_COMPARISONS} line comparisons, the result falls back to a coarse diff
+     * that trims the common head and tail and reports the rest as one change.
+     * A timed-out result depends on the machine's load, so callers should not cache it;
+     * {@code stats} tells them whether it happened.
+     *
+     * @param stats receives the algorithm used, the line and edit counts and whether a limit ran out
+     * @throws CancellationException if the calling thread is interrupted
+     */
+    public static List<Diff> diff(byte[] oldContent, byte[] newContent, Charset charset,
+            Algorithm algorithm, long timeLimitMillis, Stats stats) {
+        return diff(oldContent, newContent, charset, algorithm, new Deadline(timeLimitMillis, DEFAULT_MAX_COMPARISONS),
+                stats);
+    }
+
+    static List<Diff> diff(byte[] oldContent, byte[] newContent, Charset charset,
+            Algorithm algorithm, Deadline deadline, Stats stats) {
+        long start = System.nanoTime();
+        DiffText oldText = new DiffText(oldContent, charset);
+        DiffText newText = new DiffText(newContent, charset);
+
+        // hash every line once; the algorithms then only compare ints
+        LineInterner interner = new LineInterner();
+        IntSequence oldIds = interner.intern(oldText);
+        IntSequence newIds = interner.intern(newText);
+        DiffEngine engine = selectEngine(algorithm, oldIds.size() + newIds.size());
+        INTERN.recordSince(start);
+        LINES.add(oldIds.size() + newIds.size());
+
+        start = System.nanoTime();
+        EditList edits;
+        stats.timedOut = false;
+        stats.overBudget = false;
+        try {
+            edits = engine.diff(oldIds, newIds, deadline);
+        } catch (DiffLimitException e) {
+            if (e.timedOut) {
+                TIMEOUTS.increment();
+                stats.timedOut = true;
+            } else {
+                OVER_BUDGET.increment();
+                stats.overBudget = true;
             }
-            
-            // Update the position for the next EQUAL block
-            lastOldPos = delta.getSource().getPosition() + delta.getSource().size();
+            edits = coarseDiff(oldIds, newIds);
+        } catch (DiffInterruptedException e) {
+            // JGit's Myers polls for interrupts itself and clears the flag
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Diff cancelled");
+        }
+        ALGORITHM.recordSince(start);
+        List<Diff> diffs = toDiffs(edits, oldText.lines(), newText.lines());
+        stats.algorithm = engine instanceof HistogramDiffEngine ? Algorithm.HISTOGRAM : Algorithm.MYERS;
+        stats.oldLines = oldIds.size();
+        stats.newLines = newIds.size();
+        stats.edits = edits.size();
+        return diffs;
+    }
+
+    static DiffEngine selectEngine(Algorithm algorithm, int totalLines) {
+        switch (algorithm) {
+            case MYERS:
+                return new MyersDiffEngine();
+            case HISTOGRAM:
+                return new HistogramDiffEngine();
+            default:
+                return totalLines > HISTOGRAM_THRESHOLD_LINES ? new HistogramDiffEngine() : new MyersDiffEngine();
+        }
+    }
+
+    /**
+     * Reports everything between the common head and tail as a single edit.
+     */
+    static EditList coarseDiff(IntSequence oldIds, IntSequence newIds) {
+        EditList edits = new EditList();
+        int beginA = 0;
+        int beginB = 0;
+        int endA = oldIds.size();
+        int endB = newIds.size();
+        while (beginA < endA && beginB < endB && oldIds.ids[beginA] == newIds.ids[beginB]) {
+            beginA++;
+            beginB++;
+        }
+        while (endA > beginA && endB > beginB && oldIds.ids[endA - 1] == newIds.ids[endB - 1]) {
+            endA--;
+            endB--;
         }
+        if (beginA < endA || beginB < endB) {
+            edits.add(new Edit(beginA, endA, beginB, endB));
+        }
+        return edits;
+    }
 
-        // Add the final EQUAL block if there are any lines left at the end
+    static List<Diff> toDiffs(EditList edits, List<String> oldLines, List<String> newLines) {
+        final List<Diff> diffs = new ArrayList<>();
+        int lastOldPos = 0;
+        for (Edit edit : edits) {
+            if (lastOldPos < edit.getBeginA()) {
+                diffs.add(new Diff(DiffType.EQUAL, oldLines.subList(lastOldPos, edit.getBeginA())));
+            }
+            List<String> oldBlock = oldLines.subList(edit.getBeginA(), edit.getEndA());
+            List<String> newBlock = newLines.subList(edit.getBeginB(), edit.getEndB());
+            switch (edit.getType()) {
+                case REPLACE:
+                    diffs.add(new Diff(DiffType.CHANGE, newBlock, oldBlock));
+                    break;
+                case DELETE:
+                    diffs.add(new Diff(DiffType.DELETE, oldBlock));
+                    break;
+                case INSERT:
+                    diffs.add(new Diff(DiffType.INSERT, newBlock));
+                    break;
+                default:
+                    break;
+            }
+            lastOldPos = edit.getEndA();
+        }
         if (lastOldPos < oldLines.size()) {
             diffs.add(new Diff(DiffType.EQUAL, oldLines.subList(lastOldPos, oldLines.size())));
         }
-
         return diffs;
     }
-}
\ No newline at end of file
+
+    /**
+     * Replaces the middle of each unchanged run with a {@link DiffType#FOLDED} block, keeping
+     * {@code context} lines next to each change. The folded block keeps its lines as a view of
+     * the original list, so {@link #expand(List, int)} is cheap. Runs that would hide fewer
+     * than two lines are left as they are.
+     */
+    public static List<Diff> fold(List<Diff> diffs, int context) {
+        List<Diff> folded = new ArrayList<>(diffs.size() + 8);
+        for (int i = 0; i < diffs.size(); i++) {
+            Diff diff = diffs.get(i);
+            int lead = i > 0 ? context : 0;
+            int trail = i < diffs.size() - 1 ? context : 0;
+            if (diff.type != DiffType.EQUAL || diff.lines.size() - lead - trail < 2) {
+                folded.add(diff);
+                continue;
+            }
+            int n = diff.lines.size();
+            if (lead > 0) {
+                folded.add(new Diff(DiffType.EQUAL, diff.lines.subList(0, lead)));
+            }
+            folded.add(new Diff(DiffType.FOLDED, diff.lines.subList(lead, n - trail)));
+            if (trail > 0) {
+                folded.add(new Diff(DiffType.EQUAL, diff.lines.subList(n - trail, n)));
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * Returns a copy of {@code diffs} with the {@link DiffType#FOLDED} block at {@code index}
+     * shown as unchanged lines again.
+     */
+    public static List<Diff> expand(List<Diff> diffs, int index) {
+        Diff diff = diffs.get(index);
+        if (diff.type != DiffType.FOLDED) {
+            throw new IllegalArgumentException("block " + index + " is not folded");
+        }
+        List<Diff> expanded = new ArrayList<>(diffs);
+        expanded.set(index, new Diff(DiffType.EQUAL, diff.lines));
+        return expanded;
+    }
+
+    /**
+     * Returns true if any block is a change, i.e. neither {@link DiffType#EQUAL} nor {@link DiffType#FOLDED}.
+     */
+    public static boolean hasChanges(List<Diff> diffs) {
+        for (Diff diff : diffs) {
+            if (diff.type != DiffType.EQUAL && diff.type != DiffType.FOLDED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Time and comparison limit for a running diff. Checking is cheap enough to be called on every
+     * line comparison. The comparison count bounds the work of pathological inputs the same way on
+     * every machine, while the time limit also catches slow machines.
+     */
+    static final class Deadline {
+        private final boolean limited;
+        private final long deadlineNanos;
+        private final long maxComparisons;
+        private long comparisons;
+
+        Deadline(long timeLimitMillis, long maxComparisons) {
+            this(true, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis), maxComparisons);
+        }
+
+        private Deadline(boolean limited, long deadlineNanos, long maxComparisons) {
+            this.limited = limited;
+            this.deadlineNanos = deadlineNanos;
+            this.maxComparisons = maxComparisons;
+        }
+
+        /** A deadline that never expires but still honours thread interruption. */
+        static Deadline unlimited() {
+            return new Deadline(false, 0, Long.MAX_VALUE);
+        }
+
+        void check() {
+            if ((++comparisons & 0x3ff) != 0) {
+                return;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Diff cancelled");
+            }
+            if (comparisons > maxComparisons) {
+                throw new DiffLimitException(false);
+            }
+            if (limited && System.nanoTime() - deadlineNanos > 0) {
+                throw new DiffLimitException(true);
+            }
+        }
+    }
+
+    static class DiffLimitException extends RuntimeException {
+        final boolean timedOut;
+
+        DiffLimitException(boolean timedOut) {
+            super(timedOut ? "Diff time limit exceeded" : "Diff comparison limit exceeded", null, false, false);
+            this.timedOut = timedOut;
+        }
+    }
+}
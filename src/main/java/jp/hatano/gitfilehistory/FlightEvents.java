@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for the Git, diff and rendering phases, so that a recording shows
+ * which repository and file a slow operation or UI stall belongs to.
+ * <p>
+ * The events are disabled unless the recording enables them, for example with the bundled
+ * {@code gitfilehistory.jfc} settings. Call sites follow the usual pattern of {@code begin()}
+ * before the work and filling in the fields only when {@code shouldCommit()} is true, so a
+ * disabled event costs little more than its allocation.
+ */
+final class FlightEvents {
+    static final String PREFIX = "jp.hatano.gitfilehistory.";
+
+    private FlightEvents() {
+    }
+
+    @Name(PREFIX + "HistoryLoad")
+    @Label("History Load")
+    @Description("Walk of the commits that changed a file, with branch decoration")
+    @Category({"Git File History", "Git"})
+    @StackTrace(false)
+    static class HistoryLoad extends Event {
+        @Label("Repository")
+        String repository;
+
+        @Label("Path")
+        String path;
+
+        @Label("Commits")
+        int commits;
+    }
+
+    @Name(PREFIX + "FileRead")
+    @Label("File Read")
+    @Description("Contents of a file at a commit or in the working tree")
+    @Category({"Git File History", "Git"})
+    @StackTrace(false)
+    static class FileRead extends Event {
+        @Label("Repository")
+        String repository;
+
+        @Label("Path")
+        String path;
+
+        @Label("Commit")
+        String commit;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name(PREFIX + "PatchGenerate")
+    @Label("Patch Generation")
+    @Description("Unified patch of a file between two commits")
+    @Category({"Git File History", "Git"})
+    @StackTrace(false)
+    static class PatchGenerate extends Event {
+        @Label("Repository")
+        String repository;
+
+        @Label("Path")
+        String path;
+
+        @Label("Old Commit")
+        String oldCommit;
+
+        @Label("New Commit")
+        String newCommit;
+
+        @Label("Patch Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name(PREFIX + "Diff")
+    @Label("Diff")
+    @Description("Diff of a file between two commits, computed or taken from the diff cache")
+    @Category({"Git File History", "Diff"})
+    @StackTrace(false)
+    static class Diff extends Event {
+        @Label("Repository")
+        String repository;
+
+        @Label("Path")
+        String path;
+
+        @Label("Old Commit")
+        String oldCommit;
+
+        @Label("New Commit")
+        String newCommit;
+
+        @Label("Old Blob")
+        String oldBlob;
+
+        @Label("New Blob")
+        String newBlob;
+
+        @Label("Cache Hit")
+        @Description("The diff came from the diff cache; the fields below are then left empty")
+        boolean cacheHit;
+
+        @Label("Algorithm")
+        String algorithm;
+
+        @Label("Old Size")
+        @DataAmount
+        long oldBytes;
+
+        @Label("New Size")
+        @DataAmount
+        long newBytes;
+
+        @Label("Old Lines")
+        int oldLines;
+
+        @Label("New Lines")
+        int newLines;
+
+        @Label("Edits")
+        int edits;
+
+        @Label("Timed Out")
+        @Description("The algorithm hit its time limit and a coarse diff was used")
+        boolean timedOut;
+
+        @Label("Over Budget")
+        @Description("The algorithm hit its line comparison limit and a coarse diff was used")
+        boolean overBudget;
+    }
+
+    @Name(PREFIX + "DocumentBuild")
+    @Label("Document Build")
+    @Description("Wrapping and styling of diff rows into the text view documents")
+    @Category({"Git File History", "Rendering"})
+    @StackTrace(false)
+    static class DocumentBuild extends Event {
+        @Label("First Row")
+        int firstRow;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Paragraphs")
+        int paragraphs;
+    }
+
+    @Name(PREFIX + "DiffDisplay")
+    @Label("Diff Display")
+    @Description("Installation of a diff into the view on the event dispatch thread")
+    @Category({"Git File History", "Rendering"})
+    @StackTrace(false)
+    static class DiffDisplay extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("View")
+        @Description("text, partial or virtual")
+        String view;
+
+        @Label("Rows")
+        int rows;
+    }
+}
@@ -7,20 +7,25 @@ package jp.hatano.gitfilehistory;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.Rectangle2D;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.prefs.Preferences;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import javax.swing.*;
+import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.*;
+import javax.management.JMException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,17 +39,16 @@ public class GitDiffViewer extends JFrame {
     private final DefaultListModel<CommitInfo> commitListModel;
     private final JTextPane leftDiffPane;
     private final JTextPane rightDiffPane;
+    private final VirtualDiffView virtualDiffView;
+    private final JPanel diffPanel;
     private final JLabel statusBar;
     private final JComboBox<String> encodingComboBox;
+    private final JComboBox<DiffUtils.Algorithm> algorithmComboBox;
+    private final JCheckBox foldCheckBox;
     private final JSplitPane mainSplitPane;
 
     private GitService gitService;
 
-    // 差分表示用のスタイル
-    private static final Color ADD_COLOR = new Color(220, 255, 220);
-    private static final Color DELETE_COLOR = new Color(255, 220, 220);
-    private static final Color MODIFIED_COLOR = new Color(220, 220, 255);
-
     // 検索機能用UI
     private JTextField searchField;
     private JCheckBox caseCheckBox;
@@ -52,6 +56,15 @@ public class GitDiffViewer extends JFrame {
 
     // ハイライト関連
     private SearchManager searchManager;
+    private VirtualViewSearch virtualViewSearch;
+
+    // 全履歴検索 (git log -S 相当) の結果ウィンドウ
+    private JDialog historySearchDialog;
+    private HistorySearchPanel historySearchPanel;
+
+    // 選択中のリビジョンの blame (行ごとの最終変更コミット) を表示するウィンドウ
+    private JDialog blameDialog;
+    private BlamePanel blamePanel;
 
 
 
@@ -64,15 +77,56 @@ public class GitDiffViewer extends JFrame {
     private static final String PREF_HEIGHT = "height";
     private static final String PREF_DIVIDER_LOCATION = "dividerLocation";
     private static final String PREF_ENCODING = "encoding";
+    private static final String PREF_DIFF_ALGORITHM = "diffAlgorithm";
+    private static final String PREF_FOLD_UNCHANGED = "foldUnchanged";
     private final Preferences prefs;
     private final JButton loadCommitsButton;
 
     // 差分結果のキャッシュ
     private List<DiffUtils.Diff> cachedDiffs;
-    private String cachedOldContent;
-    private String cachedNewContent;
     private CommitInfo cachedFirstCommit;
     private CommitInfo cachedSecondCommit;
+    private String cachedEncoding;
+    private DiffUtils.Algorithm cachedAlgorithm;
+
+    // 変更のない行の折りたたみ (-Dgitfilehistory.contextLines で前後の行数を変更可)
+    static final int FOLD_CONTEXT_LINES = Integer.getInteger("gitfilehistory.contextLines", DiffUtils.DEFAULT_CONTEXT_LINES);
+    private List<DiffUtils.Diff> displayedDiffs; // cachedDiffs を折りたたみ・展開したもの
+    private Map<Integer, Integer> foldedBlockByRow = Map.of();
+    private boolean keepScrollPosition;
+
+    // リサイズ時の再折り返し
+    private static final int RESIZE_DEBOUNCE_MS = 150;
+    private final Timer resizeTimer;
+    private DiffDocumentBuilder.Result lastRender; // 表示中の文書 (displayedDiffs から作ったもの)
+    private List<DiffUtils.Diff> lastRenderDiffs;
+    private int renderedLeftWidth = -1;
+    private int renderedRightWidth = -1;
+
+    // 差分計算の非同期実行
+    private static final int DIFF_COALESCE_DELAY_MS = 120;
+    private final Timer diffCoalesceTimer;
+    private final ExecutorService contentLoader = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "diff-content-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private SwingWorker<List<DiffUtils.Diff>, Void> diffWorker;
+    private SwingWorker<DiffDocumentBuilder.Result, Void> renderWorker;
+    private int diffGeneration;
+
+    // 大きな差分は仮想化ビューで表示する (-Dgitfilehistory.virtualViewRows で変更可)
+    static final int VIRTUAL_VIEW_THRESHOLD_ROWS = Integer.getInteger("gitfilehistory.virtualViewRows", 20_000);
+    private static final String TEXT_VIEW_CARD = "text";
+    private static final String VIRTUAL_VIEW_CARD = "virtual";
+
+    // 表示フェーズの計測 (Help > Diagnostics... および JMX で参照できる)
+    private static final Metrics.Timer SET_DOCUMENT = Metrics.timer("view.setDocument");
+    private static final Metrics.Counter VIRTUAL_ROWS = Metrics.counter("view.virtualRows");
+
+    // blob の組で引く差分キャッシュ (画面表示とエクスポートで共有)
+    private final DiffCache diffCache = new DiffCache();
+    private DiffLoader diffLoader;
 
     public GitDiffViewer() {
         setTitle("Git File Diff Viewer");
@@ -123,12 +177,26 @@ public class GitDiffViewer extends JFrame {
         exportHtmlButton.addActionListener(e -> exportHtml());
         JButton exportPatchButton = new JButton("Export Patch");
         exportPatchButton.addActionListener(e -> exportPatch());
+        JButton batchExportButton = new JButton("Export All...");
+        batchExportButton.setToolTipText("Export an HTML report and a patch for every consecutive pair of commits");
+        batchExportButton.addActionListener(e -> batchExport());
+        JButton blameButton = new JButton("Blame");
+        blameButton.setToolTipText("Show the commit that last changed each line of the selected revision");
+        blameButton.addActionListener(e -> showBlame());
 
         encodingComboBox = new JComboBox<>(new String[] { "UTF-8", "Shift_JIS", "EUC-JP" });
         rightTopPanel.add(new JLabel("Encoding:"));
         rightTopPanel.add(encodingComboBox);
+        algorithmComboBox = new JComboBox<>(DiffUtils.Algorithm.values());
+        rightTopPanel.add(new JLabel("Diff:"));
+        rightTopPanel.add(algorithmComboBox);
+        foldCheckBox = new JCheckBox("Fold unchanged");
+        foldCheckBox.setToolTipText("Show only " + FOLD_CONTEXT_LINES + " lines around each change");
+        rightTopPanel.add(foldCheckBox);
         rightTopPanel.add(exportHtmlButton);
         rightTopPanel.add(exportPatchButton);
+        rightTopPanel.add(batchExportButton);
+        rightTopPanel.add(blameButton);
         rightTopPanel.add(loadCommitsButton);
 
         topPanel.add(pathPanel, BorderLayout.CENTER);
@@ -247,7 +315,15 @@ public class GitDiffViewer extends JFrame {
         JSplitPane diffSplitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, leftScrollPane, rightScrollPane);
         diffSplitPane.setResizeWeight(0.5);
 
-        mainSplitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(commitList), diffSplitPane);
+        // 巨大な差分は表示行だけを描画する仮想化ビューに切り替える
+        virtualDiffView = new VirtualDiffView();
+        virtualViewSearch = new VirtualViewSearch(virtualDiffView, statusBar);
+        JScrollPane virtualScrollPane = new JScrollPane(virtualDiffView);
+        diffPanel = new JPanel(new CardLayout());
+        diffPanel.add(diffSplitPane, TEXT_VIEW_CARD);
+        diffPanel.add(virtualScrollPane, VIRTUAL_VIEW_CARD);
+
+        mainSplitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(commitList), diffPanel);
         mainSplitPane.setResizeWeight(0.3);
 
         // --- メニューバー (ヘルプ/About) ---
@@ -256,6 +332,9 @@ public class GitDiffViewer extends JFrame {
         JMenuItem aboutItem = new JMenuItem("About");
         aboutItem.addActionListener(e -> showAboutDialog());
         helpMenu.add(aboutItem);
+        JMenuItem diagnosticsItem = new JMenuItem("Diagnostics...");
+        diagnosticsItem.addActionListener(e -> new DiagnosticsDialog(this, logger).setVisible(true));
+        helpMenu.add(diagnosticsItem);
         menuBar.add(helpMenu);
         setJMenuBar(menuBar);
 
@@ -275,25 +354,78 @@ public class GitDiffViewer extends JFrame {
         browseRepoButton.addActionListener(e -> browseForDirectory(repoPathField));
         browseFileButton.addActionListener(e -> browseForFile(filePathField));
         loadCommitsButton.addActionListener(e -> loadCommits());
+        // 連続した選択変更はまとめて、最後の選択だけを計算する
+        diffCoalesceTimer = new Timer(DIFF_COALESCE_DELAY_MS, e -> startDiffJob());
+        diffCoalesceTimer.setRepeats(false);
+
         encodingComboBox.addActionListener(e -> {
             if (commitList.getSelectedIndices().length == 2) {
                 calculateAndShowDiff(); // Recalculate with new encoding
             }
         });
+        algorithmComboBox.addActionListener(e -> {
+            if (commitList.getSelectedIndices().length == 2) {
+                calculateAndShowDiff(); // Recalculate with new algorithm
+            }
+        });
+        // 折りたたまれた行をクリックすると展開する
+        MouseAdapter foldExpander = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                JTextPane pane = (JTextPane) e.getSource();
+                int offset = pane.viewToModel2D(e.getPoint());
+                Integer block = foldedBlockByRow.get(pane.getDocument().getDefaultRootElement().getElementIndex(offset));
+                if (block != null) {
+                    expandFold(block);
+                }
+            }
+        };
+        leftDiffPane.addMouseListener(foldExpander);
+        rightDiffPane.addMouseListener(foldExpander);
+        virtualDiffView.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                DiffRows rows = virtualDiffView.getRows();
+                if (e.getY() >= rows.getRowCount() * virtualDiffView.getRowHeight()) {
+                    return;
+                }
+                int row = virtualDiffView.rowAtPoint(e.getY());
+                if (rows.getType(row) == DiffUtils.DiffType.FOLDED) {
+                    expandFold(rows.getBlockIndex(row));
+                }
+            }
+        });
+        foldCheckBox.addActionListener(e -> {
+            if (cachedDiffs != null) {
+                displayedDiffs = foldIfEnabled(cachedDiffs);
+                redisplayDiff();
+            }
+        });
         commitList.addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
                 calculateAndShowDiff(); // New selection, so recalculate
+                if (blameDialog != null && blameDialog.isVisible()) {
+                    updateBlame(); // blame ウィンドウは選択に追従する
+                }
                 searchManager.clearHighlights();
                 if (searchField != null) searchField.setText("");
             }
         });
 
-        addComponentListener(new ComponentAdapter() {
+        // ペインの幅が変わったら、リサイズが落ち着いてから折り返し直す
+        resizeTimer = new Timer(RESIZE_DEBOUNCE_MS, e -> rewrapAfterResize());
+        resizeTimer.setRepeats(false);
+        ComponentAdapter paneResizeListener = new ComponentAdapter() {
             @Override
             public void componentResized(ComponentEvent e) {
-                redisplayDiff(); // Just re-render with cached diff
+                if (leftDiffPane.getWidth() != renderedLeftWidth || rightDiffPane.getWidth() != renderedRightWidth) {
+                    cancelRenderJob(); // its wrapping is already outdated
+                    resizeTimer.restart();
+                }
             }
-        });
+        };
+        leftDiffPane.addComponentListener(paneResizeListener);
+        rightDiffPane.addComponentListener(paneResizeListener);
 
         addWindowListener(new WindowAdapter() {
             @Override
@@ -307,6 +439,8 @@ public class GitDiffViewer extends JFrame {
                 prefs.putInt(PREF_HEIGHT, getHeight());
                 prefs.putInt(PREF_DIVIDER_LOCATION, mainSplitPane.getDividerLocation());
                 prefs.put(PREF_ENCODING, (String) encodingComboBox.getSelectedItem());
+                prefs.put(PREF_DIFF_ALGORITHM, ((DiffUtils.Algorithm) algorithmComboBox.getSelectedItem()).name());
+                prefs.putBoolean(PREF_FOLD_UNCHANGED, foldCheckBox.isSelected());
             }
         });
 
@@ -320,6 +454,12 @@ public class GitDiffViewer extends JFrame {
         }
         mainSplitPane.setDividerLocation(prefs.getInt(PREF_DIVIDER_LOCATION, 300));
         encodingComboBox.setSelectedItem(prefs.get(PREF_ENCODING, "UTF-8"));
+        try {
+            algorithmComboBox.setSelectedItem(DiffUtils.Algorithm.valueOf(prefs.get(PREF_DIFF_ALGORITHM, "AUTO")));
+        } catch (IllegalArgumentException e) {
+            algorithmComboBox.setSelectedItem(DiffUtils.Algorithm.AUTO);
+        }
+        foldCheckBox.setSelected(prefs.getBoolean(PREF_FOLD_UNCHANGED, false));
     }
 
     /**
@@ -333,7 +473,6 @@ public class GitDiffViewer extends JFrame {
                 + "  - JGit (EPL-1.0)\n"
                 + "  - SLF4J (MIT)\n"
                 + "  - Logback (EPL-1.0 / LGPL2.1)\n"
-                + "  - java-diff-utils (MIT)\n"
                 + "  - JUnit (EPL-1.0)\n";
         JOptionPane.showMessageDialog(this, message, "About", JOptionPane.INFORMATION_MESSAGE);
     }
@@ -347,12 +486,15 @@ public class GitDiffViewer extends JFrame {
         regexCheckBox = new JCheckBox("Regex");
         JButton prevButton = new JButton("< Prev");
         JButton nextButton = new JButton("Next >");
+        JButton historyButton = new JButton("Search History");
+        historyButton.setToolTipText("Find the commits that added or removed matches");
 
         searchPanel.add(searchField);
         searchPanel.add(caseCheckBox);
         searchPanel.add(regexCheckBox);
         searchPanel.add(prevButton);
         searchPanel.add(nextButton);
+        searchPanel.add(historyButton);
 
         // イベントリスナー
         DocumentListener updateListener = new DocumentListener() {
@@ -365,9 +507,10 @@ public class GitDiffViewer extends JFrame {
         caseCheckBox.addActionListener(e -> updateHighlights());
         regexCheckBox.addActionListener(e -> updateHighlights());
 
-        nextButton.addActionListener(e -> searchManager.navigateHighlights(true));
-        prevButton.addActionListener(e -> searchManager.navigateHighlights(false));
-        searchField.addActionListener(e -> searchManager.navigateHighlights(true)); // Enterで次へ
+        nextButton.addActionListener(e -> navigateSearch(true));
+        prevButton.addActionListener(e -> navigateSearch(false));
+        searchField.addActionListener(e -> navigateSearch(true)); // Enterで次へ
+        historyButton.addActionListener(e -> searchHistory());
 
         return searchPanel;
     }
@@ -428,17 +571,20 @@ public class GitDiffViewer extends JFrame {
         }
 
         commitListModel.clear();
+        if (historySearchPanel != null) {
+            historySearchPanel.cancel();
+        }
+        if (blamePanel != null) {
+            blamePanel.cancel();
+        }
         // Also clear the diff cache
-        cachedDiffs = null;
-        cachedOldContent = null;
-        cachedNewContent = null;
-        cachedFirstCommit = null;
-        cachedSecondCommit = null;
+        diffGeneration++;
+        cancelDiffJob();
+        clearDiffCache();
 
         searchManager.clearHighlights(); // ハイライトをクリア
         if (searchField != null) searchField.setText(""); // 検索フィールドをクリア
-        leftDiffPane.setText("");
-        rightDiffPane.setText("");
+        clearDiffPanes();
         statusBar.setText("Loading commits...");
 
         try {
@@ -446,6 +592,7 @@ public class GitDiffViewer extends JFrame {
                 gitService.close();
             }
             gitService = new GitService(new File(repoPath));
+            diffLoader = new DiffLoader(gitService, diffCache, contentLoader);
         } catch (IOException e) {
             handleException("Error connecting to repository", e);
             return;
@@ -456,20 +603,33 @@ public class GitDiffViewer extends JFrame {
 
         final String encoding = (String) encodingComboBox.getSelectedItem();
 
-        SwingWorker<List<CommitInfo>, Void> worker = new SwingWorker<>() {
+        SwingWorker<List<CommitInfo>, CommitInfo> worker = new SwingWorker<>() {
+            // chunks may still be delivered after done(); the final list supersedes them
+            private boolean finished;
+
             @Override
             protected List<CommitInfo> doInBackground() throws Exception {
-                return gitService.loadCommitsForFile(filePath, encoding);
+                return gitService.loadCommitsForFile(filePath, encoding,
+                        batch -> publish(batch.toArray(new CommitInfo[0])));
+            }
+
+            @Override
+            protected void process(List<CommitInfo> chunks) {
+                if (finished) return;
+                chunks.forEach(commitListModel::addElement);
+                statusBar.setText("Loading commits... " + commitListModel.size() + " so far");
             }
 
             @Override
             protected void done() {
+                finished = true;
                 try {
                     List<CommitInfo> commits = get();
                     if (commits.isEmpty()) {
+                        commitListModel.clear();
                         statusBar.setText("No commits found for this file.");
                     } else {
-                        commits.forEach(commitListModel::addElement);
+                        applyFinalCommitList(commits);
                         statusBar.setText(commits.size() + " commits loaded.");
                     }
                 } catch (InterruptedException | ExecutionException e) {
@@ -482,19 +642,51 @@ public class GitDiffViewer extends JFrame {
         worker.execute();
     }
 
+    /**
+     * Replaces the streamed commit list with the final sorted and decorated one, keeping
+     * the user's selection on the same commits.
+     */
+    private void applyFinalCommitList(List<CommitInfo> commits) {
+        List<CommitInfo> selected = commitList.getSelectedValuesList();
+        for (int i = 0; i < commits.size(); i++) {
+            if (i < commitListModel.size()) {
+                commitListModel.set(i, commits.get(i));
+            } else {
+                commitListModel.addElement(commits.get(i));
+            }
+        }
+        if (commitListModel.size() > commits.size()) {
+            commitListModel.removeRange(commits.size(), commitListModel.size() - 1);
+        }
+
+        if (!selected.isEmpty() && !selected.equals(commitList.getSelectedValuesList())) {
+            int[] indices = selected.stream().mapToInt(commits::indexOf).filter(i -> i >= 0).toArray();
+            commitList.setSelectedIndices(indices);
+        }
+    }
+
+    /**
+     * Schedules a diff of the current selection. Rapid selection changes are coalesced,
+     * and any diff still running for an older selection is cancelled.
+     */
     private void calculateAndShowDiff() {
-        List<CommitInfo> selectedCommits = commitList.getSelectedValuesList();
         searchManager.clearHighlights(); // 新しいdiffを表示する前にハイライトをクリア
+        diffGeneration++;
+        cancelDiffJob();
 
-        if (selectedCommits.size() != 2) {
+        if (commitList.getSelectedIndices().length != 2) {
+            diffCoalesceTimer.stop();
             // Clear panes and cache
-            leftDiffPane.setText("");
-            rightDiffPane.setText("");
-            cachedDiffs = null;
-            cachedOldContent = null;
-            cachedNewContent = null;
-            cachedFirstCommit = null;
-            cachedSecondCommit = null;
+            clearDiffPanes();
+            clearDiffCache();
+            return;
+        }
+        diffCoalesceTimer.restart();
+    }
+
+    private void startDiffJob() {
+        List<CommitInfo> selectedCommits = commitList.getSelectedValuesList();
+        if (selectedCommits.size() != 2) {
             return;
         }
 
@@ -502,9 +694,13 @@ public class GitDiffViewer extends JFrame {
         CommitInfo[] sorted = sortCommits(selectedCommits.get(0), selectedCommits.get(1));
         CommitInfo first = sorted[0];
         CommitInfo second = sorted[1];
+        String filePath = filePathField.getText();
+        String encoding = (String) encodingComboBox.getSelectedItem();
+        DiffUtils.Algorithm algorithm = (DiffUtils.Algorithm) algorithmComboBox.getSelectedItem();
 
         // cache hit check – if the same pair of commits is already stored, just redraw
-        if (first.equals(cachedFirstCommit) && second.equals(cachedSecondCommit)) {
+        if (first.equals(cachedFirstCommit) && second.equals(cachedSecondCommit)
+                && encoding.equals(cachedEncoding) && algorithm == cachedAlgorithm) {
             statusBar.setText("Using cached diff between " + first.getShortHash() + " and " + second.getShortHash());
             redisplayDiff();
             return;
@@ -512,29 +708,64 @@ public class GitDiffViewer extends JFrame {
 
         statusBar.setText("Generating diff between " + first.getShortHash() + " and " + second.getShortHash());
 
-        try {
-            String filePath = filePathField.getText();
-            String encoding = (String) encodingComboBox.getSelectedItem();
-            String oldContent = gitService.getFileContent(first, filePath, encoding);
-            String newContent = gitService.getFileContent(second, filePath, encoding);
-
-            // Cache the results
-            this.cachedFirstCommit = first;
-            this.cachedSecondCommit = second;
-            this.cachedOldContent = oldContent;
-            this.cachedNewContent = newContent;
-            List<String> oldLines = oldContent.isEmpty() ? Collections.emptyList() : Arrays.asList(oldContent.split("\\r?\\n"));
-            List<String> newLines = newContent.isEmpty() ? Collections.emptyList() : Arrays.asList(newContent.split("\\r?\\n"));
-            this.cachedDiffs = DiffUtils.diff(oldLines, newLines);
-
-            // Now display it using the new redisplay method
-            redisplayDiff();
+        final int generation = ++diffGeneration;
+        final DiffLoader loader = diffLoader;
+        diffWorker = new SwingWorker<>() {
+            @Override
+            protected List<DiffUtils.Diff> doInBackground() throws Exception {
+                return loader.load(first, second, filePath, encoding, algorithm);
+            }
 
-        } catch (Exception e) {
-            handleException("Error generating diff", e);
-            // Clear cache on error
-            cachedDiffs = null;
+            @Override
+            protected void done() {
+                // only the newest request is rendered
+                if (isCancelled() || generation != diffGeneration) {
+                    return;
+                }
+                diffWorker = null;
+                try {
+                    cachedDiffs = get();
+                    displayedDiffs = foldIfEnabled(cachedDiffs);
+                    cachedFirstCommit = first;
+                    cachedSecondCommit = second;
+                    cachedEncoding = encoding;
+                    cachedAlgorithm = algorithm;
+
+                    // Now display it using the new redisplay method
+                    redisplayDiff();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    handleException("Error generating diff", cause instanceof Exception ? (Exception) cause : e);
+                    // Clear cache on error
+                    cachedDiffs = null;
+                }
+            }
+        };
+        diffWorker.execute();
+    }
+
+    private void cancelDiffJob() {
+        if (diffWorker != null) {
+            diffWorker.cancel(true);
+            diffWorker = null;
         }
+        cancelRenderJob();
+    }
+
+    private void cancelRenderJob() {
+        if (renderWorker != null) {
+            renderWorker.cancel(true);
+            renderWorker = null;
+        }
+    }
+
+    private void clearDiffCache() {
+        cachedDiffs = null;
+        displayedDiffs = null;
+        cachedFirstCommit = null;
+        cachedSecondCommit = null;
+        cachedEncoding = null;
+        cachedAlgorithm = null;
     }
 
     private void redisplayDiff() {
@@ -542,94 +773,213 @@ public class GitDiffViewer extends JFrame {
             // This can happen on resize before a selection is made.
             // If no selection, ensure panes are empty.
             if (commitList.getSelectedIndices().length != 2) {
-                leftDiffPane.setText("");
-                rightDiffPane.setText("");
+                clearDiffPanes();
             }
             return;
         }
 
         statusBar.setText("Rendering diff...");
-        try {
-            displaySideBySideDiff(cachedOldContent, cachedNewContent, cachedDiffs);
-            statusBar.setText(cachedOldContent.equals(cachedNewContent) ? "No difference found." : "Diff loaded successfully.");
-        } catch (Exception e) {
-            handleException("Error displaying diff", e);
+        cancelRenderJob();
+        final boolean keepPosition = keepScrollPosition;
+        keepScrollPosition = false;
+
+        if (DiffRows.countRows(displayedDiffs) > VIRTUAL_VIEW_THRESHOLD_ROWS) {
+            // no per-line layout at all; release the text documents of the previous diff
+            leftDiffPane.setDocument(new DefaultStyledDocument());
+            rightDiffPane.setDocument(new DefaultStyledDocument());
+            setLineNumbers(leftDiffPane, new int[0]);
+            setLineNumbers(rightDiffPane, new int[0]);
+            searchManager.clearHighlights();
+            virtualViewSearch.cancel();
+            if (virtualDiffView.getRows().getDiffs() != displayedDiffs) {
+                // an expanded fold keeps the rows above it and therefore the scroll position
+                int firstRow = keepPosition ? virtualDiffView.rowAtPoint(virtualDiffView.getVisibleRect().y) : 0;
+                FlightEvents.DiffDisplay event = new FlightEvents.DiffDisplay();
+                event.begin();
+                DiffRows rows = new DiffRows(displayedDiffs);
+                VIRTUAL_ROWS.add(rows.getRowCount());
+                virtualDiffView.setRows(rows);
+                commitDisplayEvent(event, "virtual", rows.getRowCount());
+                SwingUtilities.invokeLater(() -> virtualDiffView.scrollToRow(firstRow));
+            }
+            showDiffCard(VIRTUAL_VIEW_CARD);
+            boolean searching = searchField != null && !searchField.getText().isEmpty();
+            virtualDiffView.setSearch(searching ? compileSearchPattern() : null, -1);
+            statusBar.setText(DiffUtils.hasChanges(displayedDiffs) ? "Diff loaded successfully." : "No difference found.");
+            return;
         }
+        if (virtualDiffView.getRows().getRowCount() > 0) {
+            virtualViewSearch.clear();
+            virtualDiffView.setRows(new DiffRows(List.of()));
+        }
+        showDiffCard(TEXT_VIEW_CARD);
+        renderTextView(keepPosition, -1);
     }
 
+    /**
+     * Builds the text view documents in the background. With {@code anchorRow} set, the rows from
+     * there to the bottom of the viewport are built on the EDT and shown first, and the full
+     * documents are then scrolled so that the same row stays on top.
+     */
+    private void renderTextView(boolean keepPosition, int anchorRow) {
+        cancelRenderJob();
+        // the wrappers measure the panes, so they are created here on the EDT
+        DiffDocumentBuilder builder = new DiffDocumentBuilder(new LineWrapper(leftDiffPane),
+                new LineWrapper(rightDiffPane), leftDiffPane.getFont());
+        final List<DiffUtils.Diff> diffs = displayedDiffs;
+        final DiffRows rows = new DiffRows(diffs);
+        final int generation = diffGeneration;
+        final int leftWidth = leftDiffPane.getWidth();
+        final int rightWidth = rightDiffPane.getWidth();
+
+        if (anchorRow >= 0) {
+            int rowHeight = leftDiffPane.getFontMetrics(leftDiffPane.getFont()).getHeight();
+            int visibleRows = leftDiffPane.getVisibleRect().height / rowHeight + 2;
+            showPartialDiff(builder.build(rows, anchorRow, visibleRows));
+        }
 
+        renderWorker = new SwingWorker<>() {
+            @Override
+            protected DiffDocumentBuilder.Result doInBackground() {
+                return builder.build(rows, 0, Integer.MAX_VALUE);
+            }
 
-    private void displaySideBySideDiff(String oldText, String newText, List<DiffUtils.Diff> diffs) throws BadLocationException {
-        StyledDocument leftDoc = leftDiffPane.getStyledDocument();
-        StyledDocument rightDoc = rightDiffPane.getStyledDocument();
-        leftDoc.remove(0, leftDoc.getLength());
-        rightDoc.remove(0, rightDoc.getLength());
+            @Override
+            protected void done() {
+                if (isCancelled() || generation != diffGeneration) {
+                    return;
+                }
+                renderWorker = null;
+                try {
+                    DiffDocumentBuilder.Result result = get();
+                    statusBar.setText(DiffUtils.hasChanges(diffs) ? "Diff loaded successfully." : "No difference found.");
+                    lastRenderDiffs = diffs;
+                    renderedLeftWidth = leftWidth;
+                    renderedRightWidth = rightWidth;
+                    displaySideBySideDiff(result, keepPosition, anchorRow);
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    handleException("Error displaying diff", cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+        };
+        renderWorker.execute();
+    }
 
-        SimpleAttributeSet plainStyle = new SimpleAttributeSet();
-        SimpleAttributeSet addStyle = new SimpleAttributeSet();
-        StyleConstants.setBackground(addStyle, ADD_COLOR);
-        SimpleAttributeSet deleteStyle = new SimpleAttributeSet();
-        StyleConstants.setBackground(deleteStyle, DELETE_COLOR);
-        SimpleAttributeSet modifiedStyle = new SimpleAttributeSet();
-        StyleConstants.setBackground(modifiedStyle, MODIFIED_COLOR);
+    /**
+     * Re-wraps the text view for the new pane widths, keeping the row at the top of the viewport.
+     */
+    private void rewrapAfterResize() {
+        if (displayedDiffs == null || virtualDiffView.getRows().getRowCount() > 0) {
+            return; // the virtual view does not wrap
+        }
+        boolean upToDate = renderWorker == null && lastRenderDiffs == displayedDiffs;
+        if (upToDate && leftDiffPane.getWidth() == renderedLeftWidth && rightDiffPane.getWidth() == renderedRightWidth) {
+            return; // only the height changed
+        }
+        int anchorRow = -1;
+        if (lastRender != null && lastRenderDiffs == displayedDiffs) {
+            Rectangle visible = leftDiffPane.getVisibleRect();
+            int offset = leftDiffPane.viewToModel2D(new Point(0, visible.y));
+            anchorRow = lastRender.rowAtParagraph(leftDiffPane.getDocument().getDefaultRootElement().getElementIndex(offset));
+        }
+        statusBar.setText("Re-wrapping diff...");
+        renderTextView(false, anchorRow);
+    }
 
-        List<Integer> leftLineNumbers = new ArrayList<>();
-        List<Integer> rightLineNumbers = new ArrayList<>();
-        int leftLine = 1, rightLine = 1;
+    private void clearDiffPanes() {
+        leftDiffPane.setText("");
+        rightDiffPane.setText("");
+        setLineNumbers(leftDiffPane, new int[0]);
+        setLineNumbers(rightDiffPane, new int[0]);
+        foldedBlockByRow = Map.of();
+        lastRender = null;
+        lastRenderDiffs = null;
+        if (virtualDiffView.getRows().getRowCount() > 0) {
+            virtualViewSearch.clear();
+            virtualDiffView.setRows(new DiffRows(List.of()));
+        }
+        showDiffCard(TEXT_VIEW_CARD);
+    }
 
-        LineWrapper leftWrapper = new LineWrapper(leftDiffPane);
-        LineWrapper rightWrapper = new LineWrapper(rightDiffPane);
+    private List<DiffUtils.Diff> foldIfEnabled(List<DiffUtils.Diff> diffs) {
+        return foldCheckBox.isSelected() ? DiffUtils.fold(diffs, FOLD_CONTEXT_LINES) : diffs;
+    }
 
-        for (DiffUtils.Diff diff : diffs) {
-            switch (diff.type) {
-                case EQUAL:
-                    for (int i = 0; i < diff.lines.size(); i++) {
-                        appendLines(leftWrapper, rightWrapper, leftDoc, rightDoc, diff.lines.get(i), diff.lines.get(i),
-                                plainStyle, plainStyle, leftLineNumbers, rightLineNumbers, leftLine++, rightLine++);
-                    }
-                    break;
-                case DELETE:
-                    for (int i = 0; i < diff.lines.size(); i++) {
-                        appendLines(leftWrapper, rightWrapper, leftDoc, rightDoc, diff.lines.get(i), "", deleteStyle,
-                                plainStyle, leftLineNumbers, rightLineNumbers, leftLine++, null);
-                    }
-                    break;
-                case INSERT:
-                    for (int i = 0; i < diff.lines.size(); i++) {
-                        appendLines(leftWrapper, rightWrapper, leftDoc, rightDoc, "", diff.lines.get(i), plainStyle,
-                                addStyle, leftLineNumbers, rightLineNumbers, null, rightLine++);
-                    }
-                    break;
-                case CHANGE:
-                    for (int i = 0; i < Math.max(diff.oldLines.size(), diff.newLines.size()); i++) {
-                        String oldLine = i < diff.oldLines.size() ? diff.oldLines.get(i) : "";
-                        String newLine = i < diff.newLines.size() ? diff.newLines.get(i) : "";
-                        Integer oldLineNum = i < diff.oldLines.size() ? leftLine++ : null;
-                        Integer newLineNum = i < diff.newLines.size() ? rightLine++ : null;
-                        appendLines(leftWrapper, rightWrapper, leftDoc, rightDoc, oldLine, newLine, modifiedStyle,
-                                modifiedStyle, leftLineNumbers, rightLineNumbers, oldLineNum, newLineNum);
-                    }
-                    break;
-            }
+    /**
+     * Shows the lines hidden by the folded block at {@code blockIndex} of the displayed diff,
+     * re-rendering at the current scroll position.
+     */
+    private void expandFold(int blockIndex) {
+        if (displayedDiffs == null || blockIndex >= displayedDiffs.size()
+                || displayedDiffs.get(blockIndex).type != DiffUtils.DiffType.FOLDED) {
+            return;
         }
+        displayedDiffs = DiffUtils.expand(displayedDiffs, blockIndex);
+        keepScrollPosition = true;
+        redisplayDiff();
+    }
 
-        // Update line number views
-        JScrollPane leftScrollPane = (JScrollPane) leftDiffPane.getParent().getParent();
-        JViewport leftRowHeader = leftScrollPane.getRowHeader();
-        if (leftRowHeader != null) {
-            Component leftHeaderView = leftRowHeader.getView();
-            if (leftHeaderView instanceof LineNumberView) {
-                ((LineNumberView) leftHeaderView).setLineNumbers(leftLineNumbers);
-            }
+    private void showDiffCard(String card) {
+        ((CardLayout) diffPanel.getLayout()).show(diffPanel, card);
+    }
+
+    /**
+     * Shows the first rows of a re-wrap at the top of the panes until the full documents are ready.
+     */
+    private void showPartialDiff(DiffDocumentBuilder.Result head) {
+        foldedBlockByRow = head.foldedBlockByRow;
+        lastRender = null;
+        FlightEvents.DiffDisplay event = new FlightEvents.DiffDisplay();
+        event.begin();
+        long start = System.nanoTime();
+        leftDiffPane.setDocument(head.leftDocument);
+        rightDiffPane.setDocument(head.rightDocument);
+        SET_DOCUMENT.recordSince(start);
+        commitDisplayEvent(event, "partial", head.leftLineNumbers.length);
+        setLineNumbers(leftDiffPane, head.leftLineNumbers);
+        setLineNumbers(rightDiffPane, head.rightLineNumbers);
+        searchManager.clearHighlights();
+    }
+
+    private void commitDisplayEvent(FlightEvents.DiffDisplay event, String view, int rows) {
+        if (event.shouldCommit()) {
+            event.path = filePathField.getText();
+            event.view = view;
+            event.rows = rows;
+            event.commit();
         }
-        JScrollPane rightScrollPane = (JScrollPane) rightDiffPane.getParent().getParent();
-        JViewport rightRowHeader = rightScrollPane.getRowHeader();
-        if (rightRowHeader != null) {
-            Component rightHeaderView = rightRowHeader.getView();
-            if (rightHeaderView instanceof LineNumberView) {
-                ((LineNumberView) rightHeaderView).setLineNumbers(rightLineNumbers);
-            }
+    }
+
+    private static void setLineNumbers(JTextPane pane, int[] lineNumbers) {
+        JScrollPane scrollPane = (JScrollPane) pane.getParent().getParent();
+        JViewport rowHeader = scrollPane.getRowHeader();
+        if (rowHeader != null && rowHeader.getView() instanceof LineNumberView) {
+            ((LineNumberView) rowHeader.getView()).setLineNumbers(lineNumbers);
         }
+    }
+
+    /**
+     * Swaps the documents built in the background into the panes, one document event per pane.
+     * The view then keeps its scroll position, puts {@code anchorRow} on top, or starts at the top.
+     */
+    private void displaySideBySideDiff(DiffDocumentBuilder.Result result, boolean keepPosition, int anchorRow) {
+        BoundedRangeModel scrollModel = ((JScrollPane) leftDiffPane.getParent().getParent()).getVerticalScrollBar().getModel();
+        final int scrollValue = keepPosition ? scrollModel.getValue() : 0;
+        final int anchorParagraph = result.paragraphOfRow(anchorRow);
+        foldedBlockByRow = result.foldedBlockByRow;
+        lastRender = result;
+        FlightEvents.DiffDisplay event = new FlightEvents.DiffDisplay();
+        event.begin();
+        long start = System.nanoTime();
+        leftDiffPane.setDocument(result.leftDocument);
+        rightDiffPane.setDocument(result.rightDocument);
+        SET_DOCUMENT.recordSince(start);
+        commitDisplayEvent(event, "text", result.leftLineNumbers.length);
+
+        // Update line number views
+        setLineNumbers(leftDiffPane, result.leftLineNumbers);
+        setLineNumbers(rightDiffPane, result.rightLineNumbers);
 
         // スクロール範囲を再計算して、両方のペインが最後までスクロールできるようにする
         // SwingUtilities.invokeLaterを使用して、UIの更新が完了した後に実行する
@@ -641,34 +991,33 @@ public class GitDiffViewer extends JFrame {
             int leftHeight = leftDiffPane.getPreferredSize().height;
             int rightHeight = rightDiffPane.getPreferredSize().height;
             int max = Math.max(leftHeight, rightHeight);
-            model.setRangeProperties(model.getValue(), extent, model.getMinimum(), max, false);
+            int value = keepPosition ? scrollValue : model.getValue();
+            if (anchorParagraph >= 0) {
+                value = paragraphY(leftDiffPane, anchorParagraph);
+            }
+            model.setRangeProperties(value, extent, model.getMinimum(), max, false);
         });
 
-        leftDiffPane.setCaretPosition(0);
-        rightDiffPane.setCaretPosition(0);
-    }
-
-    private void appendLines(LineWrapper leftWrapper, LineWrapper rightWrapper, StyledDocument leftDoc,
-            StyledDocument rightDoc,
-            String oldLine, String newLine,
-            AttributeSet oldStyle, AttributeSet newStyle,
-            List<Integer> leftLineNumbers, List<Integer> rightLineNumbers,
-            Integer oldLineNum, Integer newLineNum) throws BadLocationException {
-
-        List<String> wrappedOld = leftWrapper.wrap(oldLine);
-        List<String> wrappedNew = rightWrapper.wrap(newLine);
-        int wrappedLinesCount = Math.max(wrappedOld.size(), wrappedNew.size());
-
-        for (int j = 0; j < wrappedLinesCount; j++) {
-            String leftText = j < wrappedOld.size() ? wrappedOld.get(j) : "";
-            String rightText = j < wrappedNew.size() ? wrappedNew.get(j) : "";
+        if (!keepPosition && anchorParagraph < 0) {
+            leftDiffPane.setCaretPosition(0);
+            rightDiffPane.setCaretPosition(0);
+        }
 
-            // Add line numbers only for the first physical line of a logical line
-            leftLineNumbers.add(j == 0 ? oldLineNum : null);
-            rightLineNumbers.add(j == 0 ? newLineNum : null);
+        // the old highlights belonged to the replaced documents
+        if (searchField != null && !searchField.getText().isEmpty()) {
+            updateHighlights();
+        } else {
+            searchManager.clearHighlights();
+        }
+    }
 
-            leftDoc.insertString(leftDoc.getLength(), leftText + "\n", oldLineNum != null ? oldStyle : null);
-            rightDoc.insertString(rightDoc.getLength(), rightText + "\n", newLineNum != null ? newStyle : null);
+    private static int paragraphY(JTextPane pane, int paragraph) {
+        Element element = pane.getDocument().getDefaultRootElement().getElement(paragraph);
+        try {
+            Rectangle2D bounds = pane.modelToView2D(element.getStartOffset());
+            return bounds != null ? (int) bounds.getY() : 0;
+        } catch (BadLocationException e) {
+            return 0;
         }
     }
 
@@ -679,9 +1028,154 @@ public class GitDiffViewer extends JFrame {
     }
 
     private void updateHighlights() {
+        if (virtualDiffView.getRows().getRowCount() > 0) {
+            // 仮想化ビューにはテキストペインがないので、表示中の先頭行から行単位で検索する
+            String query = searchField.getText();
+            Pattern pattern = query.isEmpty() ? null : compileSearchPattern();
+            if (pattern == null) {
+                virtualViewSearch.clear();
+                if (query.isEmpty()) statusBar.setText("Ready");
+                return;
+            }
+            virtualViewSearch.update(pattern, query);
+            return;
+        }
         searchManager.updateHighlights(searchField.getText(), caseCheckBox.isSelected(), regexCheckBox.isSelected());
     }
 
+    private void navigateSearch(boolean forward) {
+        if (virtualDiffView.getRows().getRowCount() > 0) {
+            String query = searchField.getText();
+            Pattern pattern = query.isEmpty() ? null : compileSearchPattern();
+            if (pattern != null) {
+                virtualViewSearch.navigate(pattern, query, forward);
+            }
+            return;
+        }
+        searchManager.navigateHighlights(forward);
+    }
+
+    /** Compiles the search text, or reports an invalid regex in the status bar and returns null. */
+    private Pattern compileSearchPattern() {
+        String query = searchField.getText();
+        try {
+            return SearchManager.compile(regexCheckBox.isSelected() ? query : Pattern.quote(query),
+                    caseCheckBox.isSelected());
+        } catch (PatternSyntaxException e) {
+            statusBar.setText("Invalid Regex: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Searches every loaded revision for the search text and lists the commits that added or
+     * removed matches.
+     */
+    private void searchHistory() {
+        String query = searchField.getText();
+        if (gitService == null || commitListModel.isEmpty() || query.isEmpty()) {
+            statusBar.setText("Load commits and enter a search text first.");
+            return;
+        }
+        Pattern pattern = compileSearchPattern();
+        if (pattern == null) {
+            return;
+        }
+
+        if (historySearchDialog == null) {
+            historySearchPanel = new HistorySearchPanel(this::openHistorySearchHit);
+            historySearchDialog = new JDialog(this, "History Search", false);
+            historySearchDialog.getContentPane().add(historySearchPanel);
+            historySearchDialog.setSize(600, 400);
+            historySearchDialog.setLocationRelativeTo(this);
+            historySearchDialog.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    historySearchPanel.cancel();
+                }
+            });
+        }
+        historySearchDialog.setTitle("History Search - " + filePathField.getText());
+        historySearchPanel.start(gitService, java.util.Collections.list(commitListModel.elements()),
+                filePathField.getText(), (String) encodingComboBox.getSelectedItem(), pattern, query);
+        historySearchDialog.setVisible(true);
+    }
+
+    /**
+     * Shows the diff of a history search hit against its parent, or against the revision listed
+     * after it if the parent did not touch the file.
+     */
+    private void openHistorySearchHit(HistorySearch.Hit hit) {
+        int index = commitListModel.indexOf(hit.commit);
+        if (index < 0) {
+            return; // the commit list was reloaded
+        }
+        String query = searchField.getText();
+        int parentIndex = index + 1;
+        for (int i = index + 1; hit.parentId != null && i < commitListModel.size(); i++) {
+            CommitInfo candidate = commitListModel.get(i);
+            if (!candidate.isUncommitted() && hit.parentId.equals(candidate.getCommit().getId())) {
+                parentIndex = i;
+                break;
+            }
+        }
+        if (parentIndex < commitListModel.size()) {
+            commitList.setSelectedIndices(new int[] {index, parentIndex});
+        } else {
+            commitList.setSelectedIndex(index); // the first revision has nothing to compare with
+        }
+        commitList.ensureIndexIsVisible(index);
+        // 選択変更で検索欄がクリアされるので、差分の表示後に同じ語を強調する
+        searchField.setText(query);
+    }
+
+    private void showBlame() {
+        if (gitService == null || commitList.getSelectedValue() == null) {
+            statusBar.setText("Load commits and select a revision to blame first.");
+            return;
+        }
+        if (blameDialog == null) {
+            blamePanel = new BlamePanel(this::openBlameCommit);
+            blameDialog = new JDialog(this, "Blame", false);
+            blameDialog.getContentPane().add(blamePanel);
+            blameDialog.setSize(900, 600);
+            blameDialog.setLocationRelativeTo(this);
+            blameDialog.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    blamePanel.cancel();
+                }
+            });
+        }
+        updateBlame();
+        blameDialog.setVisible(true);
+    }
+
+    /** Blames the newest selected revision; with two selected, that is the right side of the diff. */
+    private void updateBlame() {
+        CommitInfo revision = commitList.getSelectedValue();
+        if (gitService == null || revision == null) {
+            return;
+        }
+        blameDialog.setTitle("Blame - " + filePathField.getText() + " @ " + revision.getShortHash());
+        blamePanel.start(gitService, revision, filePathField.getText(), (String) encodingComboBox.getSelectedItem());
+    }
+
+    /** Shows the diff of the commit that last changed a blamed line. */
+    private void openBlameCommit(CommitInfo commit) {
+        int index = commitListModel.indexOf(commit);
+        if (index < 0) {
+            statusBar.setText(commit.getShortHash() + " changed the file under another path and is not in the list.");
+            return;
+        }
+        if (index + 1 < commitListModel.size()) {
+            commitList.setSelectedIndices(new int[] {index, index + 1});
+        } else {
+            commitList.setSelectedIndex(index);
+        }
+        commitList.ensureIndexIsVisible(index);
+    }
+
     private void exportHtml() {
         List<CommitInfo> selectedCommits = commitList.getSelectedValuesList();
         if (selectedCommits.size() != 2) {
@@ -692,117 +1186,149 @@ public class GitDiffViewer extends JFrame {
         CommitInfo[] sorted = sortCommits(selectedCommits.get(0), selectedCommits.get(1));
         CommitInfo first = sorted[0];
         CommitInfo second = sorted[1];
+        String filePath = filePathField.getText();
+        String encoding = (String) encodingComboBox.getSelectedItem();
+        DiffUtils.Algorithm algorithm = (DiffUtils.Algorithm) algorithmComboBox.getSelectedItem();
 
-        try {
-            String filePath = filePathField.getText();
-            String encoding = (String) encodingComboBox.getSelectedItem();
-            String oldContent = gitService.getFileContent(first, filePath, encoding);
-            String newContent = gitService.getFileContent(second, filePath, encoding);
-
-            JFileChooser fileChooser = new JFileChooser();
-            fileChooser.setDialogTitle("Save HTML Report");
-            fileChooser.setSelectedFile(new File("diff_report.html"));
-            int userSelection = fileChooser.showSaveDialog(this);
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save HTML Report");
+        fileChooser.setSelectedFile(new File("diff_report.html"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File selectedFile = fileChooser.getSelectedFile();
+        if (!selectedFile.getName().toLowerCase().endsWith(".html")) {
+            selectedFile = new File(selectedFile.getParentFile(), selectedFile.getName() + ".html");
+        }
+        final File fileToSave = selectedFile;
+
+        // 表示中の差分 (展開した折りたたみも含む) があればそれを使い、Git から読み直さない
+        final List<DiffUtils.Diff> shownDiffs = first.equals(cachedFirstCommit) && second.equals(cachedSecondCommit)
+                && encoding.equals(cachedEncoding) && algorithm == cachedAlgorithm ? displayedDiffs : null;
+        int pageRows = 0;
+        if (shownDiffs != null && HtmlReportWriter.countRows(shownDiffs) > HtmlReportWriter.DEFAULT_PAGE_ROWS) {
+            int answer = JOptionPane.showConfirmDialog(this,
+                    "The report has " + HtmlReportWriter.countRows(shownDiffs) + " rows.\n"
+                            + "Split it into pages of " + HtmlReportWriter.DEFAULT_PAGE_ROWS + " rows with an index page?",
+                    "Export HTML", JOptionPane.YES_NO_CANCEL_OPTION);
+            if (answer == JOptionPane.CANCEL_OPTION || answer == JOptionPane.CLOSED_OPTION) {
+                return;
+            }
+            pageRows = answer == JOptionPane.YES_OPTION ? HtmlReportWriter.DEFAULT_PAGE_ROWS : 0;
+        }
+        final HtmlReportWriter reportWriter = new HtmlReportWriter(filePath, first.toString(), second.toString())
+                .setPageRows(pageRows);
+        final DiffLoader loader = diffLoader;
+        final boolean fold = foldCheckBox.isSelected();
 
-            if (userSelection == JFileChooser.APPROVE_OPTION) {
-                File fileToSave = fileChooser.getSelectedFile();
-                if (!fileToSave.getName().toLowerCase().endsWith(".html")) {
-                    fileToSave = new File(fileToSave.getParentFile(), fileToSave.getName() + ".html");
+        statusBar.setText("Exporting HTML...");
+        new SwingWorker<List<File>, Void>() {
+            @Override
+            protected List<File> doInBackground() throws Exception {
+                List<DiffUtils.Diff> diffs = shownDiffs;
+                if (diffs == null) {
+                    diffs = loader.load(first, second, filePath, encoding, algorithm);
+                    diffs = fold ? DiffUtils.fold(diffs, FOLD_CONTEXT_LINES) : diffs;
                 }
-                generateHtmlReport(fileToSave, first, second, oldContent, newContent);
-                JOptionPane.showMessageDialog(this, "HTML report saved successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                return reportWriter.write(fileToSave, diffs);
             }
-        } catch (Exception e) {
-            handleException("Error exporting HTML", e);
-        }
-    }
-
-    private void generateHtmlReport(File file, CommitInfo oldCommit, CommitInfo newCommit, String oldText, String newText) throws IOException {
-        StringBuilder html = new StringBuilder();
-        html.append("<!DOCTYPE html><html><head><meta charset='UTF-8'><title>Diff Report</title>");
-        html.append("<style>");
-        html.append("body { font-family: sans-serif; margin: 20px; }");
-        html.append("h2 { margin-bottom: 5px; }");
-        html.append(".meta { margin-bottom: 20px; color: #555; }");
-        html.append("table { width: 100%; border-collapse: collapse; font-family: monospace; font-size: 12px; table-layout: fixed; border: 1px solid #ddd; }");
-        html.append("td { padding: 2px 4px; word-wrap: break-word; white-space: pre-wrap; vertical-align: top; }");
-        html.append(".line-num { width: 40px; text-align: right; color: #999; background-color: #f5f5f5; border-right: 1px solid #ddd; user-select: none; }");
-        html.append(".content { width: 50%; }");
-        html.append(".left-content { border-right: 1px solid #ddd; }");
-        html.append(".add { background-color: #e6ffec; }");
-        html.append(".delete { background-color: #ffebe9; }");
-        html.append(".modified { background-color: #e6e6ff; }");
-        html.append("</style></head><body>");
-
-        html.append("<h2>Diff Report</h2>");
-        html.append("<div class='meta'>");
-        html.append("<div><strong>File:</strong> ").append(escapeHtml(filePathField.getText())).append("</div>");
-        html.append("<div><strong>Left (Old):</strong> ").append(escapeHtml(oldCommit.toString())).append("</div>");
-        html.append("<div><strong>Right (New):</strong> ").append(escapeHtml(newCommit.toString())).append("</div>");
-        html.append("</div>");
-
-        html.append("<table>");
-
-        List<String> oldLines = oldText.isEmpty() ? Collections.emptyList() : Arrays.asList(oldText.split("\\r?\\n"));
-        List<String> newLines = newText.isEmpty() ? Collections.emptyList() : Arrays.asList(newText.split("\\r?\\n"));
-        List<DiffUtils.Diff> diffs = DiffUtils.diff(oldLines, newLines);
-
-        int leftLineNum = 1;
-        int rightLineNum = 1;
-
-        for (DiffUtils.Diff diff : diffs) {
-            switch (diff.type) {
-                case EQUAL:
-                    for (String line : diff.lines) {
-                        appendHtmlRow(html, leftLineNum++, rightLineNum++, line, line, "");
-                    }
-                    break;
-                case DELETE:
-                    for (String line : diff.lines) {
-                        appendHtmlRow(html, leftLineNum++, null, line, "", "delete");
-                    }
-                    break;
-                case INSERT:
-                    for (String line : diff.lines) {
-                        appendHtmlRow(html, null, rightLineNum++, "", line, "add");
-                    }
-                    break;
-                case CHANGE:
-                    int max = Math.max(diff.oldLines.size(), diff.newLines.size());
-                    for (int i = 0; i < max; i++) {
-                        String oldL = i < diff.oldLines.size() ? diff.oldLines.get(i) : "";
-                        String newL = i < diff.newLines.size() ? diff.newLines.get(i) : "";
-                        Integer lNum = i < diff.oldLines.size() ? leftLineNum++ : null;
-                        Integer rNum = i < diff.newLines.size() ? rightLineNum++ : null;
-                        appendHtmlRow(html, lNum, rNum, oldL, newL, "modified");
-                    }
-                    break;
+
+            @Override
+            protected void done() {
+                try {
+                    List<File> files = get();
+                    String pages = files.size() > 1 ? " (" + (files.size() - 1) + " pages)" : "";
+                    statusBar.setText("HTML report saved to " + fileToSave.getName() + pages);
+                    JOptionPane.showMessageDialog(GitDiffViewer.this, "HTML report saved successfully." + pages, "Success", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    handleException("Error exporting HTML", cause instanceof Exception ? (Exception) cause : e);
+                }
             }
-        }
+        }.execute();
+    }
 
-        html.append("</table></body></html>");
+    static String escapeHtml(String text) {
+        return HtmlReportWriter.escapeHtml(text);
+    }
 
-        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
-            out.print(html.toString());
+    /**
+     * Exports every consecutive pair of the loaded commits into a directory, showing progress
+     * in a dialog that can cancel the export.
+     */
+    private void batchExport() {
+        if (gitService == null || commitListModel.size() < 2) {
+            JOptionPane.showMessageDialog(this, "Please load a file history with at least two commits.", "Warning", JOptionPane.WARNING_MESSAGE);
+            return;
         }
-    }
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Select Export Directory");
+        fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File directory = fileChooser.getSelectedFile();
+
+        List<CommitInfo> commits = java.util.Collections.list(commitListModel.elements());
+        BatchExporter exporter = new BatchExporter(gitService, new DiffLoader(gitService, diffCache, null),
+                filePathField.getText(), (String) encodingComboBox.getSelectedItem(),
+                (DiffUtils.Algorithm) algorithmComboBox.getSelectedItem(), BatchExporter.DEFAULT_THREADS);
+
+        // 進捗ダイアログ (キャンセル可能)
+        JDialog progressDialog = new JDialog(this, "Export All", false);
+        JProgressBar progressBar = new JProgressBar(0, commits.size() - 1);
+        progressBar.setStringPainted(true);
+        JLabel progressLabel = new JLabel("Exporting " + (commits.size() - 1) + " pairs with " + BatchExporter.DEFAULT_THREADS + " threads...");
+        JButton cancelButton = new JButton("Cancel");
+        JPanel progressPanel = new JPanel(new BorderLayout(5, 5));
+        progressPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        progressPanel.add(progressLabel, BorderLayout.NORTH);
+        progressPanel.add(progressBar, BorderLayout.CENTER);
+        progressPanel.add(cancelButton, BorderLayout.SOUTH);
+        progressDialog.getContentPane().add(progressPanel);
+        progressDialog.pack();
+        progressDialog.setLocationRelativeTo(this);
+
+        SwingWorker<List<BatchExporter.PairResult>, BatchExporter.Progress> worker = new SwingWorker<>() {
+            @Override
+            protected List<BatchExporter.PairResult> doInBackground() throws Exception {
+                return exporter.export(commits, directory, this::publish);
+            }
 
-    private void appendHtmlRow(StringBuilder html, Integer leftNum, Integer rightNum, String leftContent, String rightContent, String cssClass) {
-        html.append("<tr class='").append(cssClass).append("'>");
-        html.append("<td class='line-num'>").append(leftNum != null ? leftNum : "").append("</td>");
-        html.append("<td class='content left-content'>").append(escapeHtml(leftContent)).append("</td>");
-        html.append("<td class='line-num'>").append(rightNum != null ? rightNum : "").append("</td>");
-        html.append("<td class='content'>").append(escapeHtml(rightContent)).append("</td>");
-        html.append("</tr>");
-    }
+            @Override
+            protected void process(List<BatchExporter.Progress> chunks) {
+                BatchExporter.Progress progress = chunks.get(chunks.size() - 1);
+                progressBar.setValue(progress.pairsDone);
+                progressLabel.setText(String.format("%d of %d pairs, %.1f pairs/s, %.1f MB/s",
+                        progress.pairsDone, progress.pairsTotal, progress.pairsPerSecond(), progress.megabytesPerSecond()));
+            }
 
-    static String escapeHtml(String text) {
-        if (text == null) return "";
-        return text.replace("&", "&amp;")
-                   .replace("<", "&lt;")
-                   .replace(">", "&gt;")
-                   .replace("\"", "&quot;")
-                   .replace("'", "&#39;");
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                try {
+                    List<BatchExporter.PairResult> results = get();
+                    statusBar.setText(results.size() + " pairs exported to " + directory.getAbsolutePath());
+                    JOptionPane.showMessageDialog(GitDiffViewer.this,
+                            results.size() + " pairs exported.\nIndex: " + new File(directory, BatchExporter.INDEX_FILE).getAbsolutePath(),
+                            "Success", JOptionPane.INFORMATION_MESSAGE);
+                } catch (java.util.concurrent.CancellationException e) {
+                    statusBar.setText("Export cancelled.");
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    handleException("Error exporting", cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+        };
+        cancelButton.addActionListener(e -> worker.cancel(true));
+        progressDialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                worker.cancel(true);
+            }
+        });
+        progressDialog.setVisible(true);
+        worker.execute();
     }
 
     /**
@@ -887,6 +1413,14 @@ public class GitDiffViewer extends JFrame {
 
         logger = LoggerFactory.getLogger(GitDiffViewer.class);
 
+        // 計測値を JMX に公開し、終了時にログへ書き出す (INFO なので --debug 時のみ出力される)
+        try {
+            Metrics.registerMBean();
+        } catch (JMException e) {
+            logger.warn("Failed to register the metrics MBean.", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> Metrics.logReport(logger), "metrics-report"));
+
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless entry point printing the history, diff, HTML report or patch of a file.
+ * <pre>
+ * java -cp gitfilehistory.jar jp.hatano.gitfilehistory.GitFileHistoryCli [options] &lt;command&gt; ...
+ *   log   [-n &lt;count&gt;] &lt;path&gt;
+ *   diff  [--unified | --side-by-side] [--context &lt;n&gt;] [--width &lt;n&gt;] &lt;path&gt; &lt;old&gt; [&lt;new&gt;]
+ *   html  [--page-rows &lt;n&gt;] &lt;path&gt; &lt;old&gt; [&lt;new&gt;]
+ *   patch &lt;path&gt; &lt;old&gt; [&lt;new&gt;]
+ * options: -C &lt;repository&gt;, -o &lt;output file&gt;, --encoding &lt;charset&gt;, --algorithm auto|myers|histogram
+ * </pre>
+ * Revisions are anything JGit resolves ({@code HEAD~1}, a branch, an abbreviated hash) or
+ * {@code WORKTREE} for the working tree file, which is also the default new revision.
+ * {@code log} prints one JSON object per line, newest first.
+ * <p>
+ * This class references no AWT or Swing class, so neither toolkit is loaded, and logging goes
+ * to stderr through {@code logback-cli.xml} instead of the viewer's log file. History comes from
+ * the same on-disk index as the viewer, so repeated calls only walk new commits. Exit status
+ * is 0 on success, 1 on an error and 2 on a usage error.
+ */
+public class GitFileHistoryCli {
+    static final int EXIT_OK = 0;
+    static final int EXIT_ERROR = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = "usage: GitFileHistoryCli [-C <repository>] [-o <file>] [--encoding <charset>]"
+            + " [--algorithm auto|myers|histogram] <command> ...\n"
+            + "  log   [-n <count>] <path>\n"
+            + "  diff  [--unified | --side-by-side] [--context <n>] [--width <n>] <path> <old> [<new>]\n"
+            + "  html  [--page-rows <n>] <path> <old> [<new>]\n"
+            + "  patch <path> <old> [<new>]\n"
+            + "revisions are resolved by git; WORKTREE is the working tree file (default <new>)";
+
+    /** Thrown for malformed command lines. */
+    static class UsageException extends Exception {
+        UsageException(String message) {
+            super(message);
+        }
+    }
+
+    private File repository;
+    private File outputFile;
+    private String encoding = "UTF-8";
+    private DiffUtils.Algorithm algorithm = DiffUtils.Algorithm.AUTO;
+    private String command;
+    private int limit = Integer.MAX_VALUE;
+    private boolean sideBySide;
+    private int context = -1;
+    private int width = 160;
+    private int pageRows;
+    private final List<String> operands = new ArrayList<>();
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if (System.getProperty("logback.configurationFile") == null) {
+            System.setProperty("logback.configurationFile", "logback-cli.xml");
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 64 * 1024);
+        System.exit(run(args, out, System.err));
+    }
+
+    /** Runs one command, writing its output to {@code out} and closing it, and returns the exit status. */
+    static int run(String[] args, Writer out, PrintStream err) {
+        GitFileHistoryCli cli = new GitFileHistoryCli();
+        try {
+            cli.parse(args);
+        } catch (UsageException e) {
+            err.println("error: " + e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        try {
+            // a paged report writes its own files next to -o
+            try (Writer target = cli.pageRows > 0 ? Writer.nullWriter() : cli.outputFile != null ? open(cli.outputFile) : out) {
+                cli.execute(target);
+            }
+            return EXIT_OK;
+        } catch (Exception e) {
+            err.println("error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            return EXIT_ERROR;
+        }
+    }
+
+    private static Writer open(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    void parse(String[] args) throws UsageException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-C":
+                    repository = new File(value(args, ++i, arg));
+                    break;
+                case "-o":
+                    outputFile = new File(value(args, ++i, arg));
+                    break;
+                case "--encoding":
+                    encoding = value(args, ++i, arg);
+                    break;
+                case "--algorithm":
+                    try {
+                        algorithm = DiffUtils.Algorithm.valueOf(value(args, ++i, arg).toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new UsageException("unknown algorithm: " + args[i]);
+                    }
+                    break;
+                case "-n":
+                    limit = number(args, ++i, arg);
+                    break;
+                case "--unified":
+                    sideBySide = false;
+                    break;
+                case "--side-by-side":
+                    sideBySide = true;
+                    break;
+                case "--context":
+                    context = number(args, ++i, arg);
+                    break;
+                case "--width":
+                    width = Math.max(20, number(args, ++i, arg));
+                    break;
+                case "--page-rows":
+                    pageRows = number(args, ++i, arg);
+                    break;
+                default:
+                    if (arg.startsWith("-") && arg.length() > 1) {
+                        throw new UsageException("unknown option: " + arg);
+                    }
+                    if (command == null) {
+                        command = arg;
+                    } else {
+                        operands.add(arg);
+                    }
+            }
+        }
+        if (command == null) {
+            throw new UsageException("no command given");
+        }
+        switch (command) {
+            case "log":
+                if (operands.size() != 1) {
+                    throw new UsageException("log takes one path");
+                }
+                break;
+            case "diff":
+            case "html":
+            case "patch":
+                if (operands.size() < 2 || operands.size() > 3) {
+                    throw new UsageException(command + " takes a path and one or two revisions");
+                }
+                break;
+            default:
+                throw new UsageException("unknown command: " + command);
+        }
+        if (pageRows > 0 && (!"html".equals(command) || outputFile == null)) {
+            throw new UsageException("--page-rows is only for html with -o <file>");
+        }
+    }
+
+    private static String value(String[] args, int i, String option) throws UsageException {
+        if (i >= args.length) {
+            throw new UsageException(option + " needs a value");
+        }
+        return args[i];
+    }
+
+    private static int number(String[] args, int i, String option) throws UsageException {
+        try {
+            return Math.max(0, Integer.parseInt(value(args, i, option)));
+        } catch (NumberFormatException e) {
+            throw new UsageException(option + " needs a number");
+        }
+    }
+
+    private void execute(Writer out) throws Exception {
+        String filePath = operands.get(0).replace('\\', '/');
+        try (GitService gitService = new GitService(findRepository())) {
+            if ("log".equals(command)) {
+                writeLog(out, gitService.loadCommitsForFile(filePath, encoding));
+                return;
+            }
+            CommitInfo oldCommit = gitService.resolveCommit(operands.get(1));
+            CommitInfo newCommit = gitService.resolveCommit(operands.size() > 2 ? operands.get(2) : GitService.WORKTREE);
+            if ("patch".equals(command)) {
+                out.write(gitService.generatePatch(oldCommit, newCommit, filePath));
+                return;
+            }
+            List<DiffUtils.Diff> diffs = new DiffLoader(gitService, new DiffCache(), null)
+                    .load(oldCommit, newCommit, filePath, encoding, algorithm);
+            if ("html".equals(command)) {
+                HtmlReportWriter writer = new HtmlReportWriter(filePath, oldCommit.toString(), newCommit.toString());
+                if (pageRows > 0) {
+                    writer.setPageRows(pageRows).write(outputFile, context >= 0 ? DiffUtils.fold(diffs, context) : diffs);
+                } else {
+                    writer.write(out, context >= 0 ? DiffUtils.fold(diffs, context) : diffs);
+                }
+            } else if (sideBySide) {
+                writeSideBySide(out, context >= 0 ? DiffUtils.fold(diffs, context) : diffs, width);
+            } else {
+                writeUnified(out, diffs, filePath, context >= 0 ? context : DiffUtils.DEFAULT_CONTEXT_LINES);
+            }
+        }
+    }
+
+    /** Returns the {@code -C} directory, or the nearest directory upwards from the current one that has {@code .git}. */
+    private File findRepository() throws IOException {
+        if (repository != null) {
+            return repository;
+        }
+        for (File dir = new File("").getAbsoluteFile(); dir != null; dir = dir.getParentFile()) {
+            if (new File(dir, ".git").exists()) {
+                return dir;
+            }
+        }
+        throw new IOException("not inside a git repository; use -C <repository>");
+    }
+
+    /** Writes one JSON object per commit, newest first. */
+    void writeLog(Writer out, List<CommitInfo> commits) throws IOException {
+        int count = 0;
+        for (CommitInfo commit : commits) {
+            if (count++ >= limit) {
+                break;
+            }
+            out.write("{\"hash\":");
+            writeJson(out, commit.isUncommitted() ? GitService.WORKTREE : commit.getCommit().getId().name());
+            out.write(",\"shortHash\":");
+            writeJson(out, commit.getShortHash());
+            out.write(",\"time\":");
+            out.write(commit.isUncommitted() ? "null" : Long.toString(commit.getCommit().getAuthorIdent().getWhenAsInstant().getEpochSecond()));
+            out.write(",\"date\":");
+            writeJson(out, commit.date);
+            out.write(",\"author\":");
+            writeJson(out, commit.author);
+            out.write(",\"message\":");
+            writeJson(out, commit.message);
+            out.write(",\"branches\":[");
+            for (int i = 0; i < commit.branchNames.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeJson(out, commit.branchNames.get(i));
+            }
+            out.write("]}\n");
+        }
+    }
+
+    static void writeJson(Writer out, String text) throws IOException {
+        if (text == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * Writes {@code diffs} as a unified diff with {@code context} unchanged lines around each
+     * change. Changes separated by at most twice that many unchanged lines share a hunk.
+     */
+    static void writeUnified(Writer out, List<DiffUtils.Diff> diffs, String filePath, int context) throws IOException {
+        if (!DiffUtils.hasChanges(diffs)) {
+            return;
+        }
+        out.write("--- a/" + filePath + "\n");
+        out.write("+++ b/" + filePath + "\n");
+        int n = diffs.size();
+        int oldLine = 0;
+        int newLine = 0;
+        int i = 0;
+        while (i < n) {
+            DiffUtils.Diff diff = diffs.get(i);
+            if (diff.type == DiffUtils.DiffType.EQUAL || diff.type == DiffUtils.DiffType.FOLDED) {
+                oldLine += diff.lines.size();
+                newLine += diff.lines.size();
+                i++;
+                continue;
+            }
+            int last = i;
+            int oldCount = 0;
+            int newCount = 0;
+            for (int j = i; j < n; j++) {
+                DiffUtils.Diff block = diffs.get(j);
+                if (isEqual(block)) {
+                    if (block.lines.size() > 2 * context || j + 1 == n) {
+                        break;
+                    }
+                } else {
+                    last = j;
+                }
+            }
+            for (int j = i; j <= last; j++) {
+                oldCount += oldSize(diffs.get(j));
+                newCount += newSize(diffs.get(j));
+            }
+            List<String> lead = i > 0 && isEqual(diffs.get(i - 1)) ? tail(diffs.get(i - 1).lines, context) : List.of();
+            List<String> trail = last + 1 < n && isEqual(diffs.get(last + 1)) ? head(diffs.get(last + 1).lines, context) : List.of();
+            int contextLines = lead.size() + trail.size();
+            writeRange(out, "@@ -", oldLine - lead.size(), oldCount + contextLines);
+            writeRange(out, " +", newLine - lead.size(), newCount + contextLines);
+            out.write(" @@\n");
+
+            writeLines(out, ' ', lead);
+            for (int j = i; j <= last; j++) {
+                DiffUtils.Diff block = diffs.get(j);
+                switch (block.type) {
+                    case DELETE:
+                        writeLines(out, '-', block.lines);
+                        break;
+                    case INSERT:
+                        writeLines(out, '+', block.lines);
+                        break;
+                    case CHANGE:
+                        writeLines(out, '-', block.oldLines);
+                        writeLines(out, '+', block.newLines);
+                        break;
+                    default:
+                        writeLines(out, ' ', block.lines);
+                        break;
+                }
+            }
+            writeLines(out, ' ', trail);
+            oldLine += oldCount;
+            newLine += newCount;
+            i = last + 1;
+        }
+    }
+
+    private static boolean isEqual(DiffUtils.Diff diff) {
+        return diff.type == DiffUtils.DiffType.EQUAL || diff.type == DiffUtils.DiffType.FOLDED;
+    }
+
+    private static int oldSize(DiffUtils.Diff diff) {
+        return diff.type == DiffUtils.DiffType.CHANGE ? diff.oldLines.size()
+                : diff.type == DiffUtils.DiffType.INSERT ? 0 : diff.lines.size();
+    }
+
+    private static int newSize(DiffUtils.Diff diff) {
+        return diff.type == DiffUtils.DiffType.CHANGE ? diff.newLines.size()
+                : diff.type == DiffUtils.DiffType.DELETE ? 0 : diff.lines.size();
+    }
+
+    private static List<String> head(List<String> lines, int count) {
+        return lines.subList(0, Math.min(count, lines.size()));
+    }
+
+    private static List<String> tail(List<String> lines, int count) {
+        return lines.subList(Math.max(0, lines.size() - count), lines.size());
+    }
+
+    /** Writes a hunk range the way git does: the count is left out when it is 1, and an empty range starts at the line before. */
+    private static void writeRange(Writer out, String prefix, int start, int count) throws IOException {
+        out.write(prefix);
+        out.write(Integer.toString(count == 0 ? start : start + 1));
+        if (count != 1) {
+            out.write("," + count);
+        }
+    }
+
+    private static void writeLines(Writer out, char prefix, List<String> lines) throws IOException {
+        for (String line : lines) {
+            out.write(prefix);
+            out.write(line);
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Writes {@code diffs} in two columns like {@code diff --side-by-side}, with line numbers
+     * and a {@code |}, {@code <} or {@code >} marker between changed lines.
+     */
+    static void writeSideBySide(Writer out, List<DiffUtils.Diff> diffs, int width) throws IOException {
+        DiffRows rows = new DiffRows(diffs);
+        int numberWidth = Math.max(1, Integer.toString(rows.getMaxLineNumber()).length());
+        int column = Math.max(1, (width - 3) / 2 - numberWidth - 1);
+        StringBuilder line = new StringBuilder(width + 16);
+        for (int row = 0; row < rows.getRowCount(); row++) {
+            line.setLength(0);
+            int folded = rows.getFoldedLineCount(row);
+            if (folded > 0) {
+                line.append("... ").append(folded).append(" unchanged lines ...");
+            } else {
+                appendCell(line, rows.getLeftLineNumber(row), rows.getLeftText(row), numberWidth, column);
+                String left = rows.getLeftText(row);
+                String right = rows.getRightText(row);
+                line.append(rows.getType(row) == DiffUtils.DiffType.EQUAL ? "   "
+                        : left == null ? " > " : right == null ? " < " : " | ");
+                appendCell(line, rows.getRightLineNumber(row), right, numberWidth, column);
+                int end = line.length();
+                while (end > 0 && line.charAt(end - 1) == ' ') {
+                    end--;
+                }
+                line.setLength(end);
+            }
+            line.append('\n');
+            out.append(line);
+        }
+    }
+
+    /** Appends a line number and text, tabs expanded, cut or padded to {@code column} characters. */
+    private static void appendCell(StringBuilder line, int number, String text, int numberWidth, int column) {
+        String numberText = number > 0 ? Integer.toString(number) : "";
+        for (int i = numberText.length(); i < numberWidth; i++) {
+            line.append(' ');
+        }
+        line.append(numberText).append(' ');
+        int used = 0;
+        if (text != null) {
+            for (int i = 0; i < text.length() && used < column; i++) {
+                char c = text.charAt(i);
+                if (c == '\t') {
+                    do {
+                        line.append(' ');
+                        used++;
+                    } while (used % 8 != 0 && used < column);
+                } else {
+                    line.append(c);
+                    used++;
+                }
+            }
+        }
+        for (; used < column; used++) {
+            line.append(' ');
+        }
+    }
+}
@@ -6,8 +6,12 @@
 package jp.hatano.gitfilehistory;
 
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.LogCommand;
+import org.eclipse.jgit.api.errors.NoHeadException;
+import org.eclipse.jgit.blame.BlameGenerator;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
@@ -27,15 +31,44 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 
 /**
  * Service class for handling Git operations using JGit.
  */
 public class GitService implements AutoCloseable {
+    /** Revision name that {@link #resolveCommit(String)} maps to the working tree. */
+    public static final String WORKTREE = "WORKTREE";
+
+    private static final Metrics.Timer BRANCH_LIST = Metrics.timer("git.branchList");
+    private static final Metrics.Timer HISTORY_WALK = Metrics.timer("git.historyWalk");
+    private static final Metrics.Timer BRANCH_DECORATION = Metrics.timer("git.branchDecoration");
+    private static final Metrics.Counter HISTORY_COMMITS = Metrics.counter("git.historyCommits");
+    private static final Metrics.Timer TREE_LOOKUP = Metrics.timer("git.treeLookup");
+    private static final Metrics.Timer BLOB_READ = Metrics.timer("git.blobRead");
+    private static final Metrics.Counter BLOB_BYTES = Metrics.counter("git.blobBytesRead");
+    private static final Metrics.Counter BLOB_CACHE_HITS = Metrics.counter("blob.cacheHits");
+    private static final Metrics.Counter BLOB_CACHE_MISSES = Metrics.counter("blob.cacheMisses");
+    private static final Metrics.Timer WORKTREE_READ = Metrics.timer("git.worktreeRead");
+    private static final Metrics.Counter WORKTREE_BYTES = Metrics.counter("git.worktreeBytesRead");
+    private static final Metrics.Timer BLAME = Metrics.timer("git.blame");
+    private static final Metrics.Counter BLAME_LINES = Metrics.counter("git.blameLines");
+
     private Repository repository;
     private Git git;
+    private HistoryIndex historyIndex;
+    private final BlobCache blobCache;
+    private final BlameRegionCache blameCache = new BlameRegionCache();
 
     public GitService(File repoPath) throws IOException {
+        this(repoPath, BlobCache.DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * @param blobCacheBytes memory budget for cached file contents
+     */
+    public GitService(File repoPath, long blobCacheBytes) throws IOException {
         File gitDir = new File(repoPath, ".git");
         if (!gitDir.exists()) {
             throw new IOException("'.git' directory not found at " + gitDir.getAbsolutePath());
@@ -46,31 +79,45 @@ public class GitService implements AutoCloseable {
                 .findGitDir()
                 .build();
         this.git = new Git(repository);
+        this.historyIndex = new HistoryIndex(repository, git);
+        this.blobCache = new BlobCache(blobCacheBytes);
     }
 
     public List<CommitInfo> loadCommitsForFile(String filePath, String encodingName) throws Exception {
-        Map<ObjectId, List<String>> commitToBranchesMap = new HashMap<>();
+        return loadCommitsForFile(filePath, encodingName, batch -> { });
+    }
+
+    /**
+     * Loads the history of {@code filePath} like {@link #loadCommitsForFile(String, String)}, handing
+     * undecorated commits to {@code batchConsumer} newest first while history is still being walked.
+     * The returned list is the final, sorted and branch-decorated history.
+     */
+    public List<CommitInfo> loadCommitsForFile(String filePath, String encodingName,
+            Consumer<List<CommitInfo>> batchConsumer) throws Exception {
+        FlightEvents.HistoryLoad event = new FlightEvents.HistoryLoad();
+        event.begin();
+        long start = System.nanoTime();
         List<Ref> branches = git.branchList().call();
-        try (RevWalk revWalk = new RevWalk(repository)) {
-            for (Ref branch : branches) {
-                RevCommit commit = revWalk.parseCommit(branch.getObjectId());
-                revWalk.markStart(commit);
-                for (RevCommit currentCommit : revWalk) {
-                    commitToBranchesMap.computeIfAbsent(currentCommit.getId(), k -> new ArrayList<>())
-                            .add(Repository.shortenRefName(branch.getName()));
-                }
-                revWalk.reset();
-            }
-        }
+        BRANCH_LIST.recordSince(start);
+
+        start = System.nanoTime();
+        CommitBatcher batcher = new CommitBatcher(batchConsumer);
+        List<RevCommit> revisions = historyIndex.load(filePath, branches, batcher);
+        batcher.flush();
+        HISTORY_WALK.recordSince(start);
+        HISTORY_COMMITS.add(revisions.size());
 
-        LogCommand logCmd = git.log().addPath(filePath);
-        for (Ref branch : branches) {
-            logCmd.add(branch.getObjectId());
+        Set<ObjectId> revisionIds = new HashSet<>();
+        for (RevCommit rev : revisions) {
+            revisionIds.add(rev.getId());
         }
-        Iterable<RevCommit> logs = logCmd.call();
+
+        start = System.nanoTime();
+        Map<ObjectId, List<String>> commitToBranchesMap = new BranchDecorator(repository).decorate(branches, revisionIds);
+        BRANCH_DECORATION.recordSince(start);
 
         List<CommitInfo> commits = new ArrayList<>();
-        for (RevCommit rev : logs) {
+        for (RevCommit rev : revisions) {
             List<String> branchNames = commitToBranchesMap.getOrDefault(rev.getId(), Collections.emptyList());
             commits.add(new CommitInfo(rev, branchNames));
         }
@@ -82,45 +129,259 @@ public class GitService implements AutoCloseable {
             File localFile = new File(repository.getWorkTree(), filePath);
             if (localFile.exists()) {
                 Charset charset = Charset.forName(encodingName != null ? encodingName : "UTF-8");
-                String localContent = new String(Files.readAllBytes(localFile.toPath()), charset);
+                String localContent = new String(readWorktreeFile(localFile), charset);
                 if (!localContent.equals(latestCommitContent)) {
                     String nowStr = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
                     commits.add(0, new CommitInfo("Uncommitted Changes", "Local Workspace", nowStr));
                 }
             }
         }
+        if (event.shouldCommit()) {
+            event.repository = repositoryName();
+            event.path = filePath;
+            event.commits = commits.size();
+            event.commit();
+        }
         return commits;
     }
 
+    /**
+     * Resolves a revision expression such as a hash, a branch or {@code HEAD~2}.
+     * {@link #WORKTREE} stands for the working tree file.
+     */
+    public CommitInfo resolveCommit(String revision) throws IOException {
+        if (WORKTREE.equals(revision)) {
+            String nowStr = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+            return new CommitInfo("Uncommitted Changes", "Local Workspace", nowStr);
+        }
+        ObjectId id = repository.resolve(revision);
+        if (id == null) {
+            throw new IOException("Unknown revision: " + revision);
+        }
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            return new CommitInfo(revWalk.parseCommit(id), Collections.emptyList());
+        }
+    }
+
     public String getFileContent(CommitInfo info, String filePath, String encodingName) throws IOException {
+        byte[] bytes = getFileBytes(info, filePath);
+        return new String(bytes, Charset.forName(encodingName != null ? encodingName : "UTF-8"));
+    }
+
+    /**
+     * Returns the raw contents of {@code filePath} at the given commit or in the working tree,
+     * or an empty array if the file does not exist there.
+     */
+    public byte[] getFileBytes(CommitInfo info, String filePath) throws IOException {
+        FlightEvents.FileRead event = new FlightEvents.FileRead();
+        event.begin();
+        byte[] bytes;
         if (info.isUncommitted()) {
             File localFile = new File(repository.getWorkTree(), filePath);
-            if (localFile.exists()) {
-                Charset charset = Charset.forName(encodingName != null ? encodingName : "UTF-8");
-                return new String(Files.readAllBytes(localFile.toPath()), charset);
+            bytes = localFile.exists() ? readWorktreeFile(localFile) : null;
+        } else {
+            bytes = getBlobBytes(info.getCommit().getId(), filePath);
+        }
+        if (bytes == null) {
+            bytes = new byte[0];
+        }
+        if (event.shouldCommit()) {
+            event.repository = repositoryName();
+            event.path = filePath;
+            event.commit = revisionOf(info);
+            event.bytes = bytes.length;
+            event.commit();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the blob id of {@code filePath} at the given commit, or the id the working tree
+     * file would have if it were added. Missing files yield {@link ObjectId#zeroId()}.
+     */
+    public ObjectId getBlobId(CommitInfo info, String filePath) throws IOException {
+        if (info.isUncommitted()) {
+            File localFile = new File(repository.getWorkTree(), filePath);
+            if (!localFile.exists()) {
+                return BlobCache.MISSING;
             }
-            return "";
+            return blobIdOf(readWorktreeFile(localFile));
+        }
+        return getBlobId(info.getCommit().getId(), filePath);
+    }
+
+    /** The id {@code content} would have as a blob, for contents already read from the working tree. */
+    public static ObjectId blobIdOf(byte[] content) {
+        return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, content);
+    }
+
+    /**
+     * Returns the first parent of the given commit, or {@code HEAD} for the working tree, which is
+     * what {@code git log -S} compares a revision with. Returns null for a root commit or an unborn
+     * {@code HEAD}. Parents are read from the commit itself, not rewritten to the file's history.
+     */
+    public ObjectId getParentId(CommitInfo info) throws IOException {
+        if (info.isUncommitted()) {
+            return repository.resolve(Constants.HEAD);
+        }
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            RevCommit commit = revWalk.parseCommit(info.getCommit().getId());
+            return commit.getParentCount() > 0 ? commit.getParent(0).copy() : null;
         }
-        return getFileContentFromRevision(info.getCommit().getId(), filePath, encodingName);
     }
 
     private String getFileContentFromRevision(ObjectId commitId, String filePath, String encodingName) throws IOException {
+        byte[] bytes = getBlobBytes(commitId, filePath);
+        if (bytes == null) {
+            return "";
+        }
+        Charset charset = Charset.forName(encodingName != null ? encodingName : "UTF-8");
+        return new String(bytes, charset);
+    }
+
+    /**
+     * Returns the raw contents of {@code filePath} in the given commit, or null if the path does not exist there.
+     * Contents are served from the blob cache when possible.
+     */
+    private byte[] getBlobBytes(ObjectId commitId, String filePath) throws IOException {
+        ObjectId blobId = getBlobId(commitId, filePath);
+        if (BlobCache.MISSING.equals(blobId)) {
+            return null;
+        }
+        byte[] bytes = blobCache.getBlob(blobId);
+        if (bytes == null) {
+            BLOB_CACHE_MISSES.increment();
+            bytes = openBlob(blobId);
+            blobCache.putBlob(blobId, bytes);
+        } else {
+            BLOB_CACHE_HITS.increment();
+        }
+        return bytes;
+    }
+
+    private byte[] openBlob(ObjectId blobId) throws IOException {
+        long start = System.nanoTime();
+        byte[] bytes = repository.open(blobId).getBytes();
+        BLOB_READ.recordSince(start);
+        BLOB_BYTES.add(bytes.length);
+        return bytes;
+    }
+
+    private static byte[] readWorktreeFile(File file) throws IOException {
+        long start = System.nanoTime();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        WORKTREE_READ.recordSince(start);
+        WORKTREE_BYTES.add(bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Returns the contents of a blob, served from the blob cache when present but not added to
+     * it, so that scanning the whole history does not evict the blobs being viewed.
+     */
+    public byte[] readBlob(ObjectId blobId) throws IOException {
+        byte[] bytes = blobCache.getBlob(blobId);
+        return bytes != null ? bytes : openBlob(blobId);
+    }
+
+    /**
+     * Returns the blob id of {@code filePath} in the given commit, or {@link BlobCache#MISSING}
+     * if it does not exist there.
+     */
+    public ObjectId getBlobId(ObjectId commitId, String filePath) throws IOException {
+        ObjectId blobId = blobCache.getBlobId(commitId, filePath);
+        if (blobId != null) {
+            return blobId;
+        }
+        long start = System.nanoTime();
+        blobId = BlobCache.MISSING;
         try (RevWalk revWalk = new RevWalk(repository)) {
             RevCommit commit = revWalk.parseCommit(commitId);
             RevTree tree = commit.getTree();
             try (org.eclipse.jgit.treewalk.TreeWalk treeWalk = org.eclipse.jgit.treewalk.TreeWalk.forPath(repository, filePath, tree)) {
                 if (treeWalk != null) {
-                    ObjectId objectId = treeWalk.getObjectId(0);
-                    byte[] bytes = repository.open(objectId).getBytes();
-                    Charset charset = Charset.forName(encodingName != null ? encodingName : "UTF-8");
-                    return new String(bytes, charset);
+                    blobId = treeWalk.getObjectId(0);
+                }
+            }
+        }
+        TREE_LOOKUP.recordSince(start);
+        blobCache.putBlobId(commitId, filePath, blobId);
+        return blobId;
+    }
+
+    public BlobCache getBlobCache() {
+        return blobCache;
+    }
+
+    public BlameRegionCache getBlameCache() {
+        return blameCache;
+    }
+
+    /**
+     * Attributes each line of {@code filePath} in {@code revision} to the commit that last changed
+     * it, like {@code git blame}. For the working tree file, lines that differ from {@code HEAD}
+     * are attributed to {@code revision} itself.
+     * <p>
+     * Regions are handed to {@code listener} as they are attributed. Finished blames of commits
+     * are cached, so blaming a neighbouring revision only walks the commits in between.
+     *
+     * @throws CancellationException if the calling thread is interrupted
+     */
+    public Blame blame(CommitInfo revision, String filePath, Blame.Listener listener) throws IOException {
+        long start = System.nanoTime();
+        try (BlameGenerator generator = new BlameGenerator(repository, filePath, blameCache);
+             RevWalk revWalk = new RevWalk(repository)) {
+            if (revision.isUncommitted()) {
+                byte[] contents = getFileBytes(revision, filePath);
+                try {
+                    generator.prepareHead();
+                } catch (NoHeadException e) {
+                    // nothing committed yet, so every line is uncommitted
+                }
+                generator.push(null, contents);
+            } else {
+                generator.push(null, revision.getCommit().getId());
+            }
+            RawText contents = generator.getResultContents();
+            Blame blame = contents != null
+                    ? new Blame(revision, filePath, contents.getRawContent(), contents.size())
+                    : new Blame(revision, filePath, new byte[0], 0);
+            listener.started(blame);
+
+            Map<ObjectId, CommitInfo> commitInfos = new HashMap<>();
+            while (contents != null && generator.next()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Blame cancelled");
+                }
+                RevCommit source = generator.getSourceCommit();
+                CommitInfo commit = revision;
+                if (source != null) {
+                    commit = commitInfos.get(source);
+                    if (commit == null) {
+                        revWalk.parseBody(source);
+                        commit = new CommitInfo(source, Collections.emptyList());
+                        commitInfos.put(source, commit);
+                    }
                 }
+                String sourcePath = generator.getSourcePath() != null ? generator.getSourcePath() : filePath;
+                for (int line = generator.getResultStart(); line < generator.getResultEnd(); line++) {
+                    blame.attribute(line, commit, sourcePath);
+                }
+                listener.attributed(generator.getResultStart(), generator.getResultEnd());
+            }
+
+            if (!revision.isUncommitted() && blame.isComplete()) {
+                blameCache.put(revision.getCommit().getId(), filePath, blame);
             }
+            BLAME.recordSince(start);
+            BLAME_LINES.add(blame.getLineCount());
+            return blame;
         }
-        return "";
     }
 
     public String generatePatch(CommitInfo oldCommit, CommitInfo newCommit, String filePath) throws IOException {
+        FlightEvents.PatchGenerate event = new FlightEvents.PatchGenerate();
+        event.begin();
         AbstractTreeIterator oldTree = prepareTreeParser(oldCommit);
         AbstractTreeIterator newTree = prepareTreeParser(newCommit);
 
@@ -130,9 +391,26 @@ public class GitService implements AutoCloseable {
             formatter.setPathFilter(PathFilter.create(filePath));
             formatter.format(oldTree, newTree);
         }
+        if (event.shouldCommit()) {
+            event.repository = repositoryName();
+            event.path = filePath;
+            event.oldCommit = revisionOf(oldCommit);
+            event.newCommit = revisionOf(newCommit);
+            event.bytes = out.size();
+            event.commit();
+        }
         return out.toString("UTF-8");
     }
 
+    String repositoryName() {
+        return repository.getWorkTree().getAbsolutePath();
+    }
+
+    /** The commit hash, or {@link #WORKTREE} for the working tree file. */
+    static String revisionOf(CommitInfo info) {
+        return info.isUncommitted() ? WORKTREE : info.getCommit().getName();
+    }
+
     private AbstractTreeIterator prepareTreeParser(CommitInfo info) throws IOException {
         if (info.isUncommitted()) {
             return new FileTreeIterator(repository);
@@ -148,6 +426,43 @@ public class GitService implements AutoCloseable {
         }
     }
 
+    /**
+     * Groups streamed commits into batches. The first batch is kept small so the first
+     * screenful appears quickly; later ones are flushed by size or elapsed time.
+     */
+    private static class CommitBatcher implements Consumer<RevCommit> {
+        private static final int FIRST_BATCH_SIZE = 50;
+        private static final int BATCH_SIZE = 500;
+        private static final long MAX_BATCH_DELAY_NANOS = 100_000_000L;
+
+        private final Consumer<List<CommitInfo>> batchConsumer;
+        private List<CommitInfo> batch = new ArrayList<>();
+        private boolean firstBatch = true;
+        private long lastFlush = System.nanoTime();
+
+        CommitBatcher(Consumer<List<CommitInfo>> batchConsumer) {
+            this.batchConsumer = batchConsumer;
+        }
+
+        @Override
+        public void accept(RevCommit commit) {
+            batch.add(new CommitInfo(commit, Collections.emptyList()));
+            int limit = firstBatch ? FIRST_BATCH_SIZE : BATCH_SIZE;
+            if (batch.size() >= limit || System.nanoTime() - lastFlush > MAX_BATCH_DELAY_NANOS) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+                batch = new ArrayList<>();
+                firstBatch = false;
+            }
+            lastFlush = System.nanoTime();
+        }
+    }
+
     @Override
     public void close() {
         if (git != null) {
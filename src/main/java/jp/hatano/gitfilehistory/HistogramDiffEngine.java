@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HistogramDiff;
+
+/**
+ * JGit's histogram diff. Much faster than Myers on large inputs.
+ */
+class HistogramDiffEngine implements DiffEngine {
+    static final int DEFAULT_MAX_CHAIN_LENGTH = 64;
+
+    private final int maxChainLength;
+
+    HistogramDiffEngine() {
+        this(DEFAULT_MAX_CHAIN_LENGTH);
+    }
+
+    /**
+     * @param maxChainLength how many occurrences of a line are tracked before a region
+     *                       is handed to the Myers fallback
+     */
+    HistogramDiffEngine(int maxChainLength) {
+        this.maxChainLength = maxChainLength;
+    }
+
+    @Override
+    public EditList diff(IntSequence oldLines, IntSequence newLines, DiffUtils.Deadline deadline) {
+        HistogramDiff algorithm = new HistogramDiff();
+        algorithm.setMaxChainLength(maxChainLength);
+        algorithm.setFallbackAlgorithm(MyersDiffEngine.fallback(deadline));
+        return algorithm.diff(CheckedComparator.hashed(new IntSequence.Comparator(), deadline), oldLines, newLines);
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LogCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Persistent index of the commits touching a path, stored under {@code .git/gitfilehistory/history}.
+ * <p>
+ * Each indexed path records the branch tips it was computed from. When the tips move,
+ * only the commits between the old and the new tips are walked; commits that are no
+ * longer reachable from any branch (deleted or rewritten branches) are dropped. New merges
+ * can hide indexed commits, so they make the index be rebuilt from a full walk.
+ */
+class HistoryIndex {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryIndex.class);
+
+    private static final String HEADER = "gitfilehistory-index 1";
+    private static final String INDEX_DIR = "gitfilehistory/history";
+
+    private final Repository repository;
+    private final Git git;
+    private final File directory;
+
+    HistoryIndex(Repository repository, Git git) {
+        this.repository = repository;
+        this.git = git;
+        this.directory = new File(repository.getDirectory(), INDEX_DIR);
+    }
+
+    /**
+     * Returns the commits touching {@code filePath} on any of {@code branches}, newest first,
+     * and brings the stored index for the path up to date.
+     */
+    List<RevCommit> load(String filePath, List<Ref> branches) throws IOException, GitAPIException {
+        return load(filePath, branches, commit -> { });
+    }
+
+    /**
+     * Same as {@link #load(String, List)}, additionally handing each commit to {@code onCommit}
+     * as soon as it is known, roughly newest first.
+     */
+    List<RevCommit> load(String filePath, List<Ref> branches, Consumer<RevCommit> onCommit) throws IOException, GitAPIException {
+        Set<ObjectId> tips = new LinkedHashSet<>();
+        for (Ref branch : branches) {
+            if (branch.getObjectId() != null) {
+                tips.add(branch.getObjectId());
+            }
+        }
+        if (tips.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Entry entry = read(filePath);
+        if (entry != null && !entry.tips.equals(tips)) {
+            try {
+                entry = update(entry, filePath, tips);
+            } catch (MissingObjectException e) {
+                logger.debug("Indexed tip of {} is gone, rebuilding", filePath, e);
+                entry = null;
+            }
+        }
+        List<RevCommit> commits = new ArrayList<>();
+        if (entry != null) {
+            // parse everything before streaming, so that a rebuild does not hand out commits twice
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                for (IndexedCommit indexed : entry.commits) {
+                    commits.add(revWalk.parseCommit(indexed.id));
+                }
+            } catch (MissingObjectException e) {
+                // the index refers to pruned objects; start over from the current tips
+                logger.debug("Index for {} refers to missing commits, rebuilding", filePath, e);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            // nothing usable on disk: stream the full walk while building the index from it
+            List<RevCommit> walked = new ArrayList<>();
+            List<IndexedCommit> indexed = walk(filePath, tips, Collections.emptySet(), rev -> {
+                walked.add(rev);
+                onCommit.accept(rev);
+            });
+            write(filePath, new Entry(tips, indexed));
+            walked.sort((c1, c2) -> Integer.compare(c2.getCommitTime(), c1.getCommitTime()));
+            return walked;
+        }
+
+        commits.forEach(onCommit);
+        return commits;
+    }
+
+    /**
+     * Brings {@code entry} up to date with {@code tips}, or returns null if only a full walk
+     * gives the right list.
+     */
+    private Entry update(Entry entry, String filePath, Set<ObjectId> tips) throws IOException, GitAPIException {
+        // commits reachable from the old tips only belong to branches that were deleted or rewritten
+        Set<ObjectId> dropped = new HashSet<>();
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            revWalk.setRetainBody(false);
+            for (ObjectId oldTip : entry.tips) {
+                revWalk.markStart(revWalk.parseCommit(oldTip));
+            }
+            for (ObjectId tip : tips) {
+                revWalk.markUninteresting(revWalk.parseCommit(tip));
+            }
+            for (RevCommit commit : revWalk) {
+                dropped.add(commit.copy());
+            }
+        }
+
+        // a path-limited log hides the side of a merge that matches its first parent; commits on
+        // that side may already be indexed, so only a full walk gives the same list
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            revWalk.setRetainBody(false);
+            for (ObjectId tip : tips) {
+                revWalk.markStart(revWalk.parseCommit(tip));
+            }
+            for (ObjectId oldTip : entry.tips) {
+                revWalk.markUninteresting(revWalk.parseCommit(oldTip));
+            }
+            for (RevCommit commit : revWalk) {
+                if (commit.getParentCount() > 1) {
+                    logger.debug("New commits for {} include merge {}, rebuilding", filePath, commit.name());
+                    return null;
+                }
+            }
+        }
+
+        List<IndexedCommit> added = walk(filePath, tips, entry.tips, rev -> { });
+
+        List<IndexedCommit> merged = new ArrayList<>(added.size() + entry.commits.size());
+        merged.addAll(added);
+        for (IndexedCommit indexed : entry.commits) {
+            if (!dropped.contains(indexed.id)) {
+                merged.add(indexed);
+            }
+        }
+        merged.sort((c1, c2) -> Integer.compare(c2.commitTime, c1.commitTime));
+
+        Entry updated = new Entry(tips, merged);
+        write(filePath, updated);
+        logger.debug("History index for {} updated: {} added, {} dropped", filePath, added.size(), dropped.size());
+        return updated;
+    }
+
+    private List<IndexedCommit> walk(String filePath, Set<ObjectId> tips, Set<ObjectId> exclude,
+            Consumer<RevCommit> onCommit) throws IOException, GitAPIException {
+        LogCommand logCmd = git.log().addPath(filePath);
+        for (ObjectId tip : tips) {
+            logCmd.add(tip);
+        }
+        for (ObjectId oldTip : exclude) {
+            logCmd.not(oldTip);
+        }
+        List<IndexedCommit> commits = new ArrayList<>();
+        for (RevCommit rev : logCmd.call()) {
+            commits.add(new IndexedCommit(rev.copy(), rev.getCommitTime()));
+            onCommit.accept(rev);
+        }
+        commits.sort((c1, c2) -> Integer.compare(c2.commitTime, c1.commitTime));
+        return commits;
+    }
+
+    private Entry read(String filePath) {
+        File file = fileFor(filePath);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine()) || !("path " + filePath).equals(reader.readLine())) {
+                return null;
+            }
+            Set<ObjectId> tips = new LinkedHashSet<>();
+            List<IndexedCommit> commits = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("tip ")) {
+                    tips.add(ObjectId.fromString(line.substring(4)));
+                } else if (line.startsWith("commit ")) {
+                    int space = line.indexOf(' ', 7);
+                    commits.add(new IndexedCommit(ObjectId.fromString(line.substring(7, space)),
+                            Integer.parseInt(line.substring(space + 1))));
+                }
+            }
+            return new Entry(tips, commits);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable history index {}", file, e);
+            return null;
+        }
+    }
+
+    private void write(String filePath, Entry entry) {
+        try {
+            Files.createDirectories(directory.toPath());
+            Path temp = Files.createTempFile(directory.toPath(), "index", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                writer.write("path " + filePath);
+                writer.newLine();
+                for (ObjectId tip : entry.tips) {
+                    writer.write("tip " + tip.name());
+                    writer.newLine();
+                }
+                for (IndexedCommit indexed : entry.commits) {
+                    writer.write("commit " + indexed.id.name() + " " + indexed.commitTime);
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, fileFor(filePath).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the index is only an optimization; history still loads without it
+            logger.warn("Failed to write history index for {}", filePath, e);
+        }
+    }
+
+    private File fileFor(String filePath) {
+        byte[] digest = Constants.newMessageDigest().digest(filePath.getBytes(StandardCharsets.UTF_8));
+        return new File(directory, ObjectId.fromRaw(digest).name());
+    }
+
+    private static class Entry {
+        final Set<ObjectId> tips;
+        final List<IndexedCommit> commits;
+
+        Entry(Set<ObjectId> tips, List<IndexedCommit> commits) {
+            this.tips = tips;
+            this.commits = commits;
+        }
+    }
+
+    private static class IndexedCommit {
+        final ObjectId id;
+        final int commitTime;
+
+        IndexedCommit(ObjectId id, int commitTime) {
+            this.id = id;
+            this.commitTime = commitTime;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the revisions of a file that change how often a pattern occurs, like {@code git log -S}.
+ * Each commit is compared with its first parent, and the working tree with {@code HEAD}, so
+ * commits on parallel branches are never compared with each other.
+ * <p>
+ * Blob ids are resolved and blobs are scanned on a thread pool. Each distinct blob is read and
+ * scanned once however many commits share it. A commit is reported as soon as the counts of its
+ * own blob and of its parent's blob are known, so hits arrive while the scan runs.
+ */
+class HistorySearch {
+    static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    /** A commit whose revision has a different number of matches than its first parent. */
+    static class Hit {
+        /** Index of the commit in the searched list. */
+        final int index;
+        final CommitInfo commit;
+        /** The first parent, or {@code HEAD} for the working tree; null if there is none. */
+        final ObjectId parentId;
+        final int matchesBefore;
+        final int matchesAfter;
+
+        Hit(int index, CommitInfo commit, ObjectId parentId, int matchesBefore, int matchesAfter) {
+            this.index = index;
+            this.commit = commit;
+            this.parentId = parentId;
+            this.matchesBefore = matchesBefore;
+            this.matchesAfter = matchesAfter;
+        }
+
+        /** Whether the commit added matches rather than removed them. */
+        boolean isIntroduction() {
+            return matchesAfter > matchesBefore;
+        }
+    }
+
+    interface Listener {
+        /** Called on the searching thread for each hit, in no particular order. */
+        void hit(Hit hit);
+
+        /** Called on the searching thread whenever another commit has been scanned. */
+        void progress(int scannedCommits, int totalCommits);
+    }
+
+    private final GitService gitService;
+    private final String filePath;
+    private final Charset charset;
+
+    HistorySearch(GitService gitService, String filePath, String encodingName) {
+        this.gitService = gitService;
+        this.filePath = filePath;
+        this.charset = Charset.forName(encodingName != null ? encodingName : "UTF-8");
+    }
+
+    /**
+     * Result of one pool task: the blobs of a commit and of its parent, or the match count of a blob.
+     * The working tree has no blob id; its count is filled in directly.
+     */
+    private static class Step {
+        final int commitIndex;
+        final ObjectId blobId;
+        final ObjectId parentId;
+        final ObjectId parentBlobId;
+        final int count;
+
+        Step(int commitIndex, ObjectId blobId, ObjectId parentId, ObjectId parentBlobId, int count) {
+            this.commitIndex = commitIndex;
+            this.blobId = blobId;
+            this.parentId = parentId;
+            this.parentBlobId = parentBlobId;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Searches {@code commits}, newest first as in the commit list. Root commits are compared
+     * with an empty file. Returns the number of distinct blobs that were scanned.
+     *
+     * @throws InterruptedException if the calling thread is interrupted; the pool is stopped
+     */
+    int search(List<CommitInfo> commits, Pattern pattern, Listener listener)
+            throws IOException, InterruptedException {
+        int n = commits.size();
+        Step[] resolved = new Step[n];
+        Map<ObjectId, List<Integer>> commitsByBlob = new HashMap<>();
+        Map<ObjectId, Integer> countByBlob = new HashMap<>();
+        countByBlob.put(BlobCache.MISSING, 0);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread thread = new Thread(r, "history-search-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<Step> completion = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < n; i++) {
+                final int index = i;
+                completion.submit(() -> resolve(index, commits.get(index), pattern));
+            }
+
+            int pending = n;
+            int scanned = 0;
+            int distinctBlobs = 0;
+            while (pending > 0) {
+                Step step = take(completion);
+                pending--;
+                List<Integer> ready;
+                if (step.commitIndex < 0) {
+                    // a blob was scanned; the commits waiting for it may be done
+                    countByBlob.put(step.blobId, step.count);
+                    ready = commitsByBlob.remove(step.blobId);
+                } else {
+                    resolved[step.commitIndex] = step;
+                    ready = List.of(step.commitIndex);
+                    for (ObjectId blobId : new ObjectId[] {step.blobId, step.parentBlobId}) {
+                        if (blobId == null || countByBlob.containsKey(blobId)) {
+                            continue;
+                        }
+                        List<Integer> waiting = commitsByBlob.get(blobId);
+                        if (waiting == null) {
+                            waiting = new ArrayList<>();
+                            commitsByBlob.put(blobId, waiting);
+                            completion.submit(() -> new Step(-1, blobId, null, null, count(gitService.readBlob(blobId), pattern)));
+                            pending++;
+                            distinctBlobs++;
+                        }
+                        if (!waiting.contains(step.commitIndex)) {
+                            waiting.add(step.commitIndex);
+                        }
+                    }
+                }
+
+                for (int index : ready) {
+                    if (report(commits, resolved[index], countByBlob, listener)) {
+                        scanned++;
+                    }
+                }
+                listener.progress(scanned, n);
+            }
+            return distinctBlobs;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Step resolve(int index, CommitInfo commit, Pattern pattern) throws IOException, InterruptedException {
+        ObjectId parentId = gitService.getParentId(commit);
+        ObjectId parentBlobId = parentId != null ? gitService.getBlobId(parentId, filePath) : BlobCache.MISSING;
+        if (commit.isUncommitted()) {
+            // the working tree file is not in the object database
+            return new Step(index, null, parentId, parentBlobId, count(gitService.getFileBytes(commit, filePath), pattern));
+        }
+        return new Step(index, gitService.getBlobId(commit, filePath), parentId, parentBlobId, -1);
+    }
+
+    private static Step take(CompletionService<Step> completion) throws IOException, InterruptedException {
+        try {
+            return completion.take().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof InterruptedException) {
+                throw (InterruptedException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Reports the commit of {@code step} if the counts of its blob and of its parent's blob are
+     * both known. Returns false if one is still being scanned.
+     */
+    private static boolean report(List<CommitInfo> commits, Step step, Map<ObjectId, Integer> countByBlob,
+            Listener listener) {
+        Integer after = step.blobId != null ? countByBlob.get(step.blobId) : Integer.valueOf(step.count);
+        Integer before = countByBlob.get(step.parentBlobId);
+        if (after == null || before == null) {
+            return false;
+        }
+        if (!before.equals(after)) {
+            listener.hit(new Hit(step.commitIndex, commits.get(step.commitIndex), step.parentId, before, after));
+        }
+        return true;
+    }
+
+    private int count(byte[] bytes, Pattern pattern) throws InterruptedException {
+        // checked on every character read, so that a slow regex stops between two matches as well
+        Matcher matcher = pattern.matcher(new SearchManager.InterruptibleCharSequence(new String(bytes, charset)));
+        int count = 0;
+        try {
+            while (matcher.find()) {
+                count++;
+            }
+        } catch (CancellationException e) {
+            throw new InterruptedException();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Shows the commits of a {@link HistorySearch} as they are found, newest first.
+ * Double-clicking a hit hands it to the listener given at construction.
+ */
+class HistorySearchPanel extends JPanel {
+    private final DefaultListModel<HistorySearch.Hit> hitListModel = new DefaultListModel<>();
+    private final JLabel statusLabel = new JLabel(" ");
+    private final JButton stopButton = new JButton("Stop");
+    private SwingWorker<Integer, HistorySearch.Hit> worker;
+    private String query = "";
+    private volatile int scannedCommits;
+    private int totalCommits;
+
+    HistorySearchPanel(Consumer<HistorySearch.Hit> openListener) {
+        super(new BorderLayout(5, 5));
+        setBorder(new EmptyBorder(5, 5, 5, 5));
+
+        JList<HistorySearch.Hit> hitList = new JList<>(hitListModel);
+        hitList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        hitList.setCellRenderer(new HitCellRenderer());
+        hitList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && hitList.getSelectedValue() != null) {
+                    openListener.accept(hitList.getSelectedValue());
+                }
+            }
+        });
+
+        stopButton.setEnabled(false);
+        stopButton.addActionListener(e -> cancel());
+        JPanel statusPanel = new JPanel(new BorderLayout(5, 0));
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(stopButton, BorderLayout.EAST);
+
+        add(statusPanel, BorderLayout.NORTH);
+        add(new JScrollPane(hitList), BorderLayout.CENTER);
+    }
+
+    /** Starts searching {@code commits}, newest first, replacing any running search. */
+    void start(GitService gitService, List<CommitInfo> commits, String filePath, String encoding,
+               Pattern pattern, String query) {
+        cancel();
+        hitListModel.clear();
+        this.query = query;
+        this.scannedCommits = 0;
+        this.totalCommits = commits.size();
+        updateStatus("Searching");
+        stopButton.setEnabled(true);
+
+        HistorySearch search = new HistorySearch(gitService, filePath, encoding);
+        worker = new SwingWorker<>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return search.search(commits, pattern, new HistorySearch.Listener() {
+                    @Override
+                    public void hit(HistorySearch.Hit hit) {
+                        publish(hit);
+                    }
+
+                    @Override
+                    public void progress(int scanned, int total) {
+                        setProgress(total > 0 ? scanned * 100 / total : 100);
+                        scannedCommits = scanned;
+                    }
+                });
+            }
+
+            @Override
+            protected void process(List<HistorySearch.Hit> hits) {
+                if (worker != this) return; // a newer search has started
+                for (HistorySearch.Hit hit : hits) {
+                    hitListModel.add(insertionPoint(hit.index), hit);
+                }
+                updateStatus("Searching");
+            }
+
+            @Override
+            protected void done() {
+                if (worker != this) return;
+                worker = null;
+                stopButton.setEnabled(false);
+                try {
+                    int blobs = get();
+                    statusLabel.setText(String.format("'%s': %d commits changed the number of matches (%d commits, %d distinct revisions scanned)",
+                            query, hitListModel.size(), totalCommits, blobs));
+                } catch (CancellationException e) {
+                    updateStatus("Stopped");
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    statusLabel.setText("Error: " + cause.getMessage());
+                }
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName()) && worker != null) {
+                updateStatus("Searching");
+            }
+        });
+        worker.execute();
+    }
+
+    void cancel() {
+        if (worker != null) {
+            SwingWorker<Integer, HistorySearch.Hit> running = worker;
+            worker = null;
+            running.cancel(true);
+            stopButton.setEnabled(false);
+            updateStatus("Stopped");
+        }
+    }
+
+    private void updateStatus(String state) {
+        statusLabel.setText(String.format("%s '%s'... %d of %d commits, %d hits",
+                state, query, scannedCommits, totalCommits, hitListModel.size()));
+    }
+
+    /** Keeps the hits in commit list order although they arrive in any order. */
+    private int insertionPoint(int commitIndex) {
+        int low = 0, high = hitListModel.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (hitListModel.get(mid).index < commitIndex) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static class HitCellRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                boolean cellHasFocus) {
+            JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            if (value instanceof HistorySearch.Hit) {
+                HistorySearch.Hit hit = (HistorySearch.Hit) value;
+                CommitInfo info = hit.commit;
+                String change = hit.isIntroduction()
+                        ? "<font color='#2E7D32'>+" + (hit.matchesAfter - hit.matchesBefore) + " added</font>"
+                        : "<font color='#C62828'>-" + (hit.matchesBefore - hit.matchesAfter) + " removed</font>";
+                label.setText(String.format(
+                        "<html>%s <b style='font-family: monospace;'>%s</b> - %s<br><font color='gray'>%s by %s (%d &rarr; %d)</font></html>",
+                        change,
+                        info.getShortHash(),
+                        HtmlReportWriter.escapeHtml(info.message),
+                        info.date,
+                        HtmlReportWriter.escapeHtml(info.author),
+                        hit.matchesBefore,
+                        hit.matchesAfter));
+                label.setBorder(new EmptyBorder(5, 5, 5, 5));
+            }
+            return label;
+        }
+    }
+}
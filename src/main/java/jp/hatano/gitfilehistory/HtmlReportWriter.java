@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes a side-by-side HTML report of a computed diff.
+ * <p>
+ * Rows are written to a buffered stream as they are generated, so the report is never held in
+ * memory as a whole. With a page size, a report with more rows is split into numbered page
+ * files next to an index page that links them.
+ */
+class HtmlReportWriter {
+    /** Rows per page above which the viewer offers to split a report; {@code -Dgitfilehistory.htmlPageRows}. */
+    static final int DEFAULT_PAGE_ROWS = Integer.getInteger("gitfilehistory.htmlPageRows", 5_000);
+
+    private static final String STYLE = "<style>"
+            + "body { font-family: sans-serif; margin: 20px; }"
+            + "h2 { margin-bottom: 5px; }"
+            + ".meta { margin-bottom: 20px; color: #555; }"
+            + ".nav { margin: 10px 0; }"
+            + "table { width: 100%; border-collapse: collapse; font-family: monospace; font-size: 12px; table-layout: fixed; border: 1px solid #ddd; }"
+            + "td { padding: 2px 4px; word-wrap: break-word; white-space: pre-wrap; vertical-align: top; }"
+            + ".line-num { width: 40px; text-align: right; color: #999; background-color: #f5f5f5; border-right: 1px solid #ddd; user-select: none; }"
+            + ".content { width: 50%; }"
+            + ".left-content { border-right: 1px solid #ddd; }"
+            + ".add { background-color: #e6ffec; }"
+            + ".delete { background-color: #ffebe9; }"
+            + ".modified { background-color: #e6e6ff; }"
+            + ".folded td { background-color: #eef2f6; color: #777; text-align: center; font-style: italic; }"
+            + "</style>";
+
+    private final String filePath;
+    private final String oldLabel;
+    private final String newLabel;
+    private int pageRows;
+
+    /**
+     * @param filePath path of the compared file, shown in the header
+     * @param oldLabel description of the left revision
+     * @param newLabel description of the right revision
+     */
+    HtmlReportWriter(String filePath, String oldLabel, String newLabel) {
+        this.filePath = filePath;
+        this.oldLabel = oldLabel;
+        this.newLabel = newLabel;
+    }
+
+    /** Splits reports with more than {@code pageRows} rows into pages; 0 writes one file. */
+    HtmlReportWriter setPageRows(int pageRows) {
+        this.pageRows = pageRows;
+        return this;
+    }
+
+    /** Returns the number of table rows the report of {@code diffs} has. */
+    static int countRows(List<DiffUtils.Diff> diffs) {
+        return DiffRows.countRows(diffs);
+    }
+
+    /**
+     * Writes the report to {@code file}. When it is split, {@code file} becomes the index page
+     * and the pages are written beside it as {@code <name>_page<n>.html}.
+     *
+     * @return the files written, the given one first
+     */
+    List<File> write(File file, List<DiffUtils.Diff> diffs) throws IOException {
+        List<File> files = new ArrayList<>();
+        files.add(file);
+        int rows = countRows(diffs);
+        if (pageRows <= 0 || rows <= pageRows) {
+            try (Writer out = open(file)) {
+                write(out, diffs);
+            }
+            return files;
+        }
+
+        int pages = (rows + pageRows - 1) / pageRows;
+        String base = file.getName().replaceFirst("(?i)\\.html?$", "");
+        List<String> pageNames = new ArrayList<>();
+        for (int page = 1; page <= pages; page++) {
+            pageNames.add(base + "_page" + page + ".html");
+        }
+
+        List<int[]> lineRanges = new ArrayList<>();
+        for (int page = 0; page < pages; page++) {
+            File pageFile = new File(file.getAbsoluteFile().getParentFile(), pageNames.get(page));
+            files.add(pageFile);
+            try (Writer out = open(pageFile)) {
+                writeHeader(out, "Diff Report (page " + (page + 1) + " of " + pages + ")");
+                writeNavigation(out, file.getName(), pageNames, page);
+                out.write("<table>");
+                RowWriter rowWriter = new RowWriter(out);
+                rowWriter.writeRows(diffs, page * pageRows, pageRows);
+                out.write("</table>");
+                writeNavigation(out, file.getName(), pageNames, page);
+                out.write("</body></html>");
+                lineRanges.add(new int[] {rowWriter.firstLeftLine, rowWriter.lastLeftLine, rowWriter.changedRows});
+            }
+        }
+
+        try (Writer out = open(file)) {
+            writeHeader(out, "Diff Report");
+            out.write("<p>" + rows + " rows in " + pages + " pages.</p><ul>");
+            for (int page = 0; page < pages; page++) {
+                int[] range = lineRanges.get(page);
+                out.write("<li><a href='" + escapeHtml(pageNames.get(page)) + "'>Page " + (page + 1) + "</a>");
+                if (range[0] > 0) {
+                    out.write(" &ndash; old lines " + range[0] + "&ndash;" + range[1]);
+                }
+                out.write(range[2] > 0 ? " (" + range[2] + " changed rows)" : " (no changes)");
+                out.write("</li>");
+            }
+            out.write("</ul></body></html>");
+        }
+        return files;
+    }
+
+    /** Writes the whole report as one page to {@code out}, ignoring the page size. */
+    void write(Writer out, List<DiffUtils.Diff> diffs) throws IOException {
+        writeHeader(out, "Diff Report");
+        out.write("<table>");
+        new RowWriter(out).writeRows(diffs, 0, Integer.MAX_VALUE);
+        out.write("</table></body></html>");
+    }
+
+    private static Writer open(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private void writeHeader(Writer out, String title) throws IOException {
+        out.write("<!DOCTYPE html><html><head><meta charset='UTF-8'><title>" + escapeHtml(title) + "</title>");
+        out.write(STYLE);
+        out.write("</head><body>");
+        out.write("<h2>" + escapeHtml(title) + "</h2>");
+        out.write("<div class='meta'>");
+        out.write("<div><strong>File:</strong> " + escapeHtml(filePath) + "</div>");
+        out.write("<div><strong>Left (Old):</strong> " + escapeHtml(oldLabel) + "</div>");
+        out.write("<div><strong>Right (New):</strong> " + escapeHtml(newLabel) + "</div>");
+        out.write("</div>");
+    }
+
+    private static void writeNavigation(Writer out, String indexName, List<String> pageNames, int page) throws IOException {
+        out.write("<div class='nav'>");
+        if (page > 0) {
+            out.write("<a href='" + escapeHtml(pageNames.get(page - 1)) + "'>&laquo; Previous</a> | ");
+        }
+        out.write("<a href='" + escapeHtml(indexName) + "'>Index</a>");
+        if (page + 1 < pageNames.size()) {
+            out.write(" | <a href='" + escapeHtml(pageNames.get(page + 1)) + "'>Next &raquo;</a>");
+        }
+        out.write("</div>");
+    }
+
+    /** Writes the table rows of a range of the report. */
+    private static class RowWriter {
+        private final Writer out;
+        private int row;
+        private int firstRow;
+        private long endRow;
+        int firstLeftLine;
+        int lastLeftLine;
+        int changedRows;
+
+        RowWriter(Writer out) {
+            this.out = out;
+        }
+
+        /** Writes rows {@code [firstRow, firstRow + maxRows)}. */
+        void writeRows(List<DiffUtils.Diff> diffs, int firstRow, int maxRows) throws IOException {
+            this.firstRow = firstRow;
+            this.endRow = (long) firstRow + maxRows;
+            int leftLineNum = 1;
+            int rightLineNum = 1;
+
+            for (DiffUtils.Diff diff : diffs) {
+                if (row >= endRow) {
+                    break;
+                }
+                int blockRows = DiffRows.countRows(Collections.singletonList(diff));
+                if (row + blockRows <= firstRow) {
+                    // skip blocks before the page without visiting their lines
+                    row += blockRows;
+                    leftLineNum += diff.type == DiffUtils.DiffType.CHANGE ? diff.oldLines.size()
+                            : diff.type == DiffUtils.DiffType.INSERT ? 0 : diff.lines.size();
+                    rightLineNum += diff.type == DiffUtils.DiffType.CHANGE ? diff.newLines.size()
+                            : diff.type == DiffUtils.DiffType.DELETE ? 0 : diff.lines.size();
+                    continue;
+                }
+                // only the rows of the page are visited, even inside a block that spans many pages
+                int skip;
+                switch (diff.type) {
+                    case EQUAL:
+                        skip = skipTo(diff.lines.size());
+                        leftLineNum += skip;
+                        rightLineNum += skip;
+                        for (int i = skip; i < diff.lines.size() && row < endRow; i++) {
+                            String line = diff.lines.get(i);
+                            writeRow(leftLineNum++, rightLineNum++, line, line, "");
+                        }
+                        break;
+                    case DELETE:
+                        skip = skipTo(diff.lines.size());
+                        leftLineNum += skip;
+                        for (int i = skip; i < diff.lines.size() && row < endRow; i++) {
+                            writeRow(leftLineNum++, 0, diff.lines.get(i), "", "delete");
+                        }
+                        break;
+                    case INSERT:
+                        skip = skipTo(diff.lines.size());
+                        rightLineNum += skip;
+                        for (int i = skip; i < diff.lines.size() && row < endRow; i++) {
+                            writeRow(0, rightLineNum++, "", diff.lines.get(i), "add");
+                        }
+                        break;
+                    case CHANGE:
+                        int max = Math.max(diff.oldLines.size(), diff.newLines.size());
+                        skip = skipTo(max);
+                        leftLineNum += Math.min(skip, diff.oldLines.size());
+                        rightLineNum += Math.min(skip, diff.newLines.size());
+                        for (int i = skip; i < max && row < endRow; i++) {
+                            String oldL = i < diff.oldLines.size() ? diff.oldLines.get(i) : "";
+                            String newL = i < diff.newLines.size() ? diff.newLines.get(i) : "";
+                            int lNum = i < diff.oldLines.size() ? leftLineNum++ : 0;
+                            int rNum = i < diff.newLines.size() ? rightLineNum++ : 0;
+                            writeRow(lNum, rNum, oldL, newL, "modified");
+                        }
+                        break;
+                    case FOLDED:
+                        if (visible()) {
+                            out.write("<tr class='folded'><td colspan='4'>&#8943; " + diff.lines.size()
+                                    + " unchanged lines (" + leftLineNum + "&ndash;"
+                                    + (leftLineNum + diff.lines.size() - 1) + ") &#8943;</td></tr>");
+                            trackLeftLines(leftLineNum, leftLineNum + diff.lines.size() - 1);
+                        }
+                        row++;
+                        leftLineNum += diff.lines.size();
+                        rightLineNum += diff.lines.size();
+                        break;
+                }
+            }
+        }
+
+        /** Skips the rows of a block of {@code blockRows} rows that lie before the page; returns how many. */
+        private int skipTo(int blockRows) {
+            int skip = (int) Math.min(blockRows, Math.max(0, (long) firstRow - row));
+            row += skip;
+            return skip;
+        }
+
+        private boolean visible() {
+            return row >= firstRow && row < endRow;
+        }
+
+        private void writeRow(int leftNum, int rightNum, String leftContent, String rightContent, String cssClass)
+                throws IOException {
+            if (visible()) {
+                out.write("<tr class='");
+                out.write(cssClass);
+                out.write("'><td class='line-num'>");
+                if (leftNum > 0) out.write(Integer.toString(leftNum));
+                out.write("</td><td class='content left-content'>");
+                escapeHtml(out, leftContent);
+                out.write("</td><td class='line-num'>");
+                if (rightNum > 0) out.write(Integer.toString(rightNum));
+                out.write("</td><td class='content'>");
+                escapeHtml(out, rightContent);
+                out.write("</td></tr>");
+                if (!cssClass.isEmpty()) {
+                    changedRows++;
+                }
+                if (leftNum > 0) {
+                    trackLeftLines(leftNum, leftNum);
+                }
+            }
+            row++;
+        }
+
+        private void trackLeftLines(int first, int last) {
+            if (firstLeftLine == 0) {
+                firstLeftLine = first;
+            }
+            lastLeftLine = last;
+        }
+    }
+
+    static String escapeHtml(String text) {
+        if (text == null) return "";
+        return text.replace("&", "&amp;")
+                   .replace("<", "&lt;")
+                   .replace(">", "&gt;")
+                   .replace("\"", "&quot;")
+                   .replace("'", "&#39;");
+    }
+
+    /** Writes {@code text} escaped like {@link #escapeHtml(String)} without building a new string. */
+    static void escapeHtml(Writer out, String text) throws IOException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity;
+            switch (text.charAt(i)) {
+                case '&': entity = "&amp;"; break;
+                case '<': entity = "&lt;"; break;
+                case '>': entity = "&gt;"; break;
+                case '"': entity = "&quot;"; break;
+                case '\'': entity = "&#39;"; break;
+                default: continue;
+            }
+            out.write(text, start, i - start);
+            out.write(entity);
+            start = i + 1;
+        }
+        out.write(text, start, text.length() - start);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.diff.SequenceComparator;
+
+/**
+ * A sequence of interned line ids, as produced by {@link LineInterner}.
+ * Two lines are equal exactly when their ids are equal.
+ */
+class IntSequence extends Sequence {
+    final int[] ids;
+
+    IntSequence(int[] ids) {
+        this.ids = ids;
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Compares ids. The hash is the id itself, and ids never collide, so JGit only calls
+     * {@code equals} for lines that are already equal. Comparisons are therefore not counted
+     * here; engines wrap this in a {@link CheckedComparator} that counts the differing lines too.
+     */
+    static class Comparator extends SequenceComparator<IntSequence> {
+        @Override
+        public boolean equals(IntSequence a, int ai, IntSequence b, int bi) {
+            return a.ids[ai] == b.ids[bi];
+        }
+
+        @Override
+        public int hash(IntSequence seq, int ptr) {
+            return seq.ids[ptr];
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps each distinct line to a dense int id, so that diff algorithms compare ints
+ * instead of hashing and comparing line contents over and over.
+ * <p>
+ * Raw lines are hashed once each and compared byte-wise in an open addressing table;
+ * no strings are created. Use one interner for both sides of a diff.
+ * <p>
+ * String lines are interned through a map instead. Both kinds draw their ids from the same
+ * counter, so ids never collide, but a string line and an equal raw line get different ids.
+ */
+class LineInterner {
+    private int[] slots = new int[1024]; // id + 1, 0 for empty
+    private int[] hashes = new int[256];
+    private DiffText[] texts = new DiffText[256];
+    private int[] lines = new int[256]; // -1 for string lines
+    private int count;
+
+    private Map<String, Integer> stringIds;
+
+    /** Number of distinct lines seen so far. */
+    int size() {
+        return count;
+    }
+
+    IntSequence intern(DiffText text) {
+        int[] ids = new int[text.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = intern(text, i);
+        }
+        return new IntSequence(ids);
+    }
+
+    IntSequence intern(List<String> lineList) {
+        if (stringIds == null) {
+            stringIds = new HashMap<>();
+        }
+        int[] ids = new int[lineList.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = stringIds.computeIfAbsent(lineList.get(i), k -> add(0, null, -1));
+        }
+        return new IntSequence(ids);
+    }
+
+    private int intern(DiffText text, int line) {
+        int hash = DiffText.COMPARATOR.hash(text, line);
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                int id = add(hash, text, line);
+                slots[slot] = id + 1;
+                if (count * 2 > slots.length) {
+                    rehash();
+                }
+                return id;
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && DiffText.COMPARATOR.equals(texts[id], lines[id], text, line)) {
+                return id;
+            }
+        }
+    }
+
+    private int add(int hash, DiffText text, int line) {
+        if (count == hashes.length) {
+            int capacity = count * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        hashes[count] = hash;
+        texts[count] = text;
+        lines[count] = line;
+        return count++;
+    }
+
+    private void rehash() {
+        int[] newSlots = new int[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (int id = 0; id < count; id++) {
+            if (texts[id] == null) {
+                continue; // string lines are not in the table
+            }
+            int slot = mix(hashes[id]) & mask;
+            while (newSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = id + 1;
+        }
+        slots = newSlots;
+    }
+
+    private static int mix(int hash) {
+        // spread the line hash so that linear probing stays short
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -6,38 +6,39 @@
 package jp.hatano.gitfilehistory;
 
 import javax.swing.*;
-import javax.swing.event.DocumentEvent;
-import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Element;
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.awt.geom.Rectangle2D;
 
 /**
  * A component that displays line numbers for a JTextPane.
+ * <p>
+ * {@code lineNumbers[i]} is the number shown next to paragraph {@code i}, or {@link #BLANK}.
+ * The view is updated once per {@link #setLineNumbers(int[])}; document edits are not tracked.
+ * As long as every paragraph takes exactly one row, rows are located by arithmetic on the row
+ * height instead of asking the text pane for each line's position.
  */
 public class LineNumberView extends JComponent {
+    /** Line number of rows that show no number, such as wrap continuations and filler rows. */
+    public static final int BLANK = 0;
+
     private static final int MARGIN = 5;
     private final JTextPane textPane;
     private final FontMetrics fontMetrics;
-    private List<Integer> lineNumbers;
+    private int[] lineNumbers = new int[0];
+    private int preferredWidth;
 
     public LineNumberView(JTextPane textPane) {
         this.textPane = textPane;
         Font font = textPane.getFont();
         this.fontMetrics = textPane.getFontMetrics(font);
         setFont(font);
-        this.lineNumbers = new ArrayList<>();
         setBackground(new Color(240, 240, 240));
         setForeground(Color.GRAY);
+        updatePreferredWidth(1);
 
-        textPane.getDocument().addDocumentListener(new DocumentListener() {
-            @Override public void insertUpdate(DocumentEvent e) { update(); }
-            @Override public void removeUpdate(DocumentEvent e) { update(); }
-            @Override public void changedUpdate(DocumentEvent e) { update(); }
-        });
-
+        // the height follows the text pane, which changes with the document and the width
         textPane.addComponentListener(new java.awt.event.ComponentAdapter() {
             @Override
             public void componentResized(java.awt.event.ComponentEvent e) {
@@ -46,26 +47,31 @@ public class LineNumberView extends JComponent {
         });
     }
 
-    public void setLineNumbers(List<Integer> lineNumbers) {
+    public void setLineNumbers(int[] lineNumbers) {
         this.lineNumbers = lineNumbers;
+        int max = 1;
+        for (int lineNumber : lineNumbers) {
+            max = Math.max(max, lineNumber);
+        }
+        updatePreferredWidth(max);
         update();
     }
 
+    private void updatePreferredWidth(int maxLineNumber) {
+        preferredWidth = fontMetrics.stringWidth(String.valueOf(maxLineNumber)) + 2 * MARGIN;
+    }
+
     private void update() {
         // Update the preferred size and repaint
-        getParent().revalidate();
+        if (getParent() != null) {
+            getParent().revalidate();
+        }
         repaint();
     }
 
     @Override
     public Dimension getPreferredSize() {
-        int maxNum = lineNumbers.stream()
-            .filter(n -> n != null)
-            .mapToInt(n -> n)
-            .max().orElse(1);
-        String maxLineNum = String.valueOf(maxNum);
-        int width = fontMetrics.stringWidth(maxLineNum) + 2 * MARGIN;
-        return new Dimension(width, textPane.getPreferredSize().height);
+        return new Dimension(preferredWidth, textPane.getPreferredSize().height);
     }
 
     @Override
@@ -76,24 +82,39 @@ public class LineNumberView extends JComponent {
         g.setColor(getForeground());
 
         Rectangle clip = g.getClipBounds();
-        int startOffset = textPane.viewToModel2D(new Point(0, clip.y));
-        int endOffset = textPane.viewToModel2D(new Point(0, clip.y + clip.height));
-
         Element root = textPane.getDocument().getDefaultRootElement();
+        Insets insets = textPane.getInsets();
+        int rowHeight = fontMetrics.getHeight();
+        int textHeight = textPane.getHeight() - insets.top - insets.bottom;
+        int rows = Math.min(lineNumbers.length, root.getElementCount());
 
-        for (int i = root.getElementIndex(startOffset); i <= root.getElementIndex(endOffset); i++) {
-            if (i < 0 || i >= lineNumbers.size()) continue;
-            
-            Integer lineNumberInt = lineNumbers.get(i);
-            if (lineNumberInt == null) continue; // Don't draw number for blank lines
+        if (textHeight == root.getElementCount() * rowHeight) {
+            // one row per paragraph: the position of each row follows from its index
+            int first = Math.max(0, (clip.y - insets.top) / rowHeight);
+            int last = Math.min(rows - 1, (clip.y + clip.height - insets.top) / rowHeight);
+            for (int i = first; i <= last; i++) {
+                paintNumber(g, i, insets.top + i * rowHeight, rowHeight);
+            }
+            return;
+        }
 
+        // some paragraph takes more than one row, so ask the text pane where they are
+        int startOffset = textPane.viewToModel2D(new Point(0, clip.y));
+        int endOffset = textPane.viewToModel2D(new Point(0, clip.y + clip.height));
+        for (int i = Math.max(0, root.getElementIndex(startOffset)); i <= root.getElementIndex(endOffset) && i < rows; i++) {
+            if (lineNumbers[i] == BLANK) continue; // Don't draw number for blank lines
             try {
-                String lineNumber = String.valueOf(lineNumberInt);
-                Rectangle r = textPane.modelToView2D(root.getElement(i).getStartOffset()).getBounds();
-                int y = r.y + r.height - fontMetrics.getDescent();
-                int x = getWidth() - fontMetrics.stringWidth(lineNumber) - MARGIN;
-                g.drawString(lineNumber, x, y);
+                Rectangle2D r = textPane.modelToView2D(root.getElement(i).getStartOffset());
+                paintNumber(g, i, (int) r.getY(), (int) r.getHeight());
             } catch (BadLocationException e) { /* ignore */ }
         }
     }
-}
\ No newline at end of file
+
+    private void paintNumber(Graphics g, int paragraph, int y, int height) {
+        int lineNumber = lineNumbers[paragraph];
+        if (lineNumber == BLANK) return; // Don't draw number for blank lines
+        String text = String.valueOf(lineNumber);
+        int x = getWidth() - fontMetrics.stringWidth(text) - MARGIN;
+        g.drawString(text, x, y + height - fontMetrics.getDescent());
+    }
+}
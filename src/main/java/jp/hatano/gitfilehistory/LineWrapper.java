@@ -8,55 +8,221 @@ package jp.hatano.gitfilehistory;
 import javax.swing.*;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * A helper class to manually wrap text based on component width.
+ * <p>
+ * Lines are broken at spaces, and continuation lines repeat the indentation of the first one.
+ * Widths are summed from cached per-character advances while scanning, so a line is measured
+ * once regardless of its length; monospaced fonts skip the per-character lookup for ASCII.
+ * Break positions of long lines are memoized per font and width, so re-rendering at the same
+ * width does not measure them again. An instance is not thread-safe.
  */
 public class LineWrapper {
+    /** Lines at least this long have their break positions memoized. */
+    static final int MEMO_MIN_LENGTH = 256;
+    /** The memo keeps its lines alive, so it is bounded by their total length. */
+    private static final long MEMO_MAX_CHARS = 8L * 1024 * 1024;
+
+    private static final LinkedHashMap<MemoKey, int[]> MEMO = new LinkedHashMap<>(64, 0.75f, true);
+    private static long memoChars;
+
     private final FontMetrics fontMetrics;
     private final int wrapWidth;
+    private final int[] asciiWidths = new int[128];
+    /** Advance of every printable ASCII character if they are all equal, otherwise -1. */
+    private final int monospaceWidth;
+    private final Map<Character, Integer> otherWidths = new HashMap<>();
 
     public LineWrapper(JTextPane textPane) {
         this.fontMetrics = textPane.getFontMetrics(textPane.getFont());
         // Calculate available width, considering margins
         Insets insets = textPane.getInsets();
         this.wrapWidth = textPane.getWidth() - insets.left - insets.right;
+
+        boolean monospace = true;
+        for (char c = 0; c < asciiWidths.length; c++) {
+            asciiWidths[c] = fontMetrics.charWidth(c);
+            if (c >= ' ' && c < 127 && asciiWidths[c] != asciiWidths[' ']) {
+                monospace = false;
+            }
+        }
+        this.monospaceWidth = monospace ? asciiWidths[' '] : -1;
     }
 
     public List<String> wrap(String text) {
-        List<String> wrappedLines = new ArrayList<>();
         if (text.isEmpty() || wrapWidth <= 0) {
-            wrappedLines.add(text);
-            return wrappedLines;
+            return Collections.singletonList(text);
+        }
+
+        int[] breaks;
+        if (text.length() >= MEMO_MIN_LENGTH) {
+            MemoKey key = new MemoKey(fontMetrics.getFont(), wrapWidth, text);
+            synchronized (MEMO) {
+                breaks = MEMO.get(key);
+            }
+            if (breaks == null) {
+                breaks = computeBreaks(text);
+                remember(key, breaks);
+            }
+        } else {
+            breaks = computeBreaks(text);
+        }
+        return toLines(text, breaks);
+    }
+
+    private static void remember(MemoKey key, int[] breaks) {
+        synchronized (MEMO) {
+            if (MEMO.put(key, breaks) == null) {
+                memoChars += key.text.length();
+            }
+            Iterator<MemoKey> eldest = MEMO.keySet().iterator();
+            while (memoChars > MEMO_MAX_CHARS && eldest.hasNext()) {
+                memoChars -= eldest.next().text.length();
+                eldest.remove();
+            }
         }
+    }
 
-        // Find indentation and the rest of the text
+    /**
+     * Returns the indentation length followed by a (start, end) pair per wrapped line; each
+     * line is the indentation plus {@code text[start, end)}.
+     */
+    private int[] computeBreaks(String text) {
+        int length = text.length();
         int indentLength = 0;
-        while (indentLength < text.length() && Character.isWhitespace(text.charAt(indentLength))) {
+        while (indentLength < length && Character.isWhitespace(text.charAt(indentLength))) {
             indentLength++;
         }
-        String indent = text.substring(0, indentLength);
-        String content = text.substring(indentLength);
+        int indentWidth = width(text, 0, indentLength);
+        int spaceWidth = charWidth(' ');
+
+        int[] breaks = new int[8];
+        int count = 0;
+        breaks[count++] = indentLength;
 
-        StringBuilder currentLine = new StringBuilder(indent);
-        String[] words = content.split(" ", -1);
+        // the current line is text[lineStart, lineEnd) after the indentation; lineStart is
+        // only set once the line has content, as empty words at its start are dropped
+        int lineStart = indentLength;
+        int lineEnd = indentLength;
+        boolean hasContent = false;
+        int lineWidth = indentWidth;
 
-        for (int i = 0; i < words.length; i++) {
-            String word = words[i];
-            // Check if the word itself is too long, or if adding it exceeds width
-            if (currentLine.length() > indent.length() && fontMetrics.stringWidth(currentLine.toString() + " " + word) > wrapWidth) {
-                wrappedLines.add(currentLine.toString());
-                currentLine = new StringBuilder(indent).append(word);
+        int wordStart = indentLength;
+        while (wordStart <= length) {
+            int wordEnd = text.indexOf(' ', wordStart);
+            if (wordEnd < 0) {
+                wordEnd = length;
+            }
+            int wordWidth = width(text, wordStart, wordEnd);
+
+            if (hasContent && lineWidth + spaceWidth + wordWidth > wrapWidth) {
+                if (count + 2 > breaks.length) {
+                    breaks = Arrays.copyOf(breaks, breaks.length * 2);
+                }
+                breaks[count++] = lineStart;
+                breaks[count++] = lineEnd;
+                lineStart = wordStart;
+                lineEnd = wordEnd;
+                lineWidth = indentWidth + wordWidth;
+                hasContent = wordEnd > wordStart;
             } else {
-                if (currentLine.length() > indent.length()) {
-                    currentLine.append(" ");
+                if (hasContent) {
+                    lineWidth += spaceWidth;
+                    lineEnd = wordEnd;
+                } else if (wordEnd > wordStart) {
+                    lineStart = wordStart;
+                    lineEnd = wordEnd;
+                    hasContent = true;
                 }
-                currentLine.append(word);
+                lineWidth += wordWidth;
             }
+            wordStart = wordEnd + 1;
         }
-        wrappedLines.add(currentLine.toString());
+        if (count + 2 > breaks.length) {
+            breaks = Arrays.copyOf(breaks, count + 2);
+        }
+        breaks[count++] = hasContent ? lineStart : indentLength;
+        breaks[count++] = hasContent ? lineEnd : indentLength;
+        return count == breaks.length ? breaks : Arrays.copyOf(breaks, count);
+    }
 
+    private static List<String> toLines(String text, int[] breaks) {
+        int indentLength = breaks[0];
+        int lines = (breaks.length - 1) / 2;
+        if (lines == 1 && breaks[1] == indentLength && breaks[2] == text.length()) {
+            return Collections.singletonList(text);
+        }
+        String indent = text.substring(0, indentLength);
+        List<String> wrappedLines = new ArrayList<>(lines);
+        for (int i = 1; i < breaks.length; i += 2) {
+            wrappedLines.add(indent.concat(text.substring(breaks[i], breaks[i + 1])));
+        }
         return wrappedLines;
     }
-}
\ No newline at end of file
+
+    private int width(String text, int start, int end) {
+        int width = 0;
+        if (monospaceWidth >= 0) {
+            int printable = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c >= ' ' && c < 127) {
+                    printable++;
+                } else {
+                    width += charWidth(c);
+                }
+            }
+            return width + printable * monospaceWidth;
+        }
+        for (int i = start; i < end; i++) {
+            width += charWidth(text.charAt(i));
+        }
+        return width;
+    }
+
+    private int charWidth(char c) {
+        if (c < 128) {
+            return asciiWidths[c];
+        }
+        Integer width = otherWidths.get(c);
+        if (width == null) {
+            width = fontMetrics.charWidth(c);
+            otherWidths.put(c, width);
+        }
+        return width;
+    }
+
+    private static class MemoKey {
+        final Font font;
+        final int width;
+        final String text;
+
+        MemoKey(Font font, int width, String text) {
+            this.font = font;
+            this.width = width;
+            this.text = text;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MemoKey)) return false;
+            MemoKey other = (MemoKey) o;
+            return width == other.width && font.equals(other.font) && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(font, width, text);
+        }
+    }
+}
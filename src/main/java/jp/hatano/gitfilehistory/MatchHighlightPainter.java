@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import javax.swing.text.*;
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Paints all search matches of a pane from one highlight that spans the whole document.
+ * <p>
+ * The matches are kept in sorted offset arrays. Views only ask the painter for the line
+ * fragments they paint, and the matches within a fragment are found by binary search, so
+ * painting costs the same for ten matches as for a hundred thousand. The current match is an
+ * index into the arrays and changing it touches no highlighter state.
+ */
+class MatchHighlightPainter extends LayeredHighlighter.LayerPainter {
+    private final Color matchColor;
+    private final Color currentColor;
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    private int current = -1;
+
+    MatchHighlightPainter(Color matchColor, Color currentColor) {
+        this.matchColor = matchColor;
+        this.currentColor = currentColor;
+    }
+
+    /** Sets the matches; both arrays are sorted and the matches do not overlap. */
+    void setMatches(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+        this.current = -1;
+    }
+
+    /** Sets the index of the match painted as the current one, or -1 for none. */
+    void setCurrent(int current) {
+        this.current = current;
+    }
+
+    /** Returns the index of the first match ending after {@code offset}. */
+    static int firstEndingAfter(int[] ends, int offset) {
+        int low = 0, high = ends.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Returns the index of the first match starting at or after {@code offset}. */
+    static int firstStartingAt(int[] starts, int offset) {
+        return firstEndingAfter(starts, offset - 1);
+    }
+
+    @Override
+    public Shape paintLayer(Graphics g, int offs0, int offs1, Shape bounds, JTextComponent c, View view) {
+        for (int i = firstEndingAfter(ends, offs0); i < starts.length && starts[i] < offs1; i++) {
+            int p0 = Math.max(starts[i], offs0);
+            int p1 = Math.min(ends[i], offs1);
+            try {
+                Shape shape = view.modelToView(p0, Position.Bias.Forward, p1, Position.Bias.Backward, bounds);
+                fill(g, shape.getBounds(), i);
+            } catch (BadLocationException e) {
+                // can't render
+            }
+        }
+        return bounds;
+    }
+
+    @Override
+    public void paint(Graphics g, int offs0, int offs1, Shape bounds, JTextComponent c) {
+        // only used when the highlighter does not draw layered highlights; limit it to the clip
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            offs0 = Math.max(offs0, c.viewToModel2D(new Point(clip.x, clip.y)));
+            offs1 = Math.min(offs1, c.viewToModel2D(new Point(clip.x + clip.width, clip.y + clip.height)));
+        }
+        for (int i = firstEndingAfter(ends, offs0); i < starts.length && starts[i] <= offs1; i++) {
+            try {
+                Rectangle2D r0 = c.modelToView2D(starts[i]);
+                Rectangle2D r1 = c.modelToView2D(ends[i]);
+                if (r0.getY() == r1.getY()) {
+                    fill(g, r0.createUnion(r1).getBounds(), i);
+                } else {
+                    fill(g, r0.getBounds(), i);
+                }
+            } catch (BadLocationException e) { /* ignore */ }
+        }
+    }
+
+    private void fill(Graphics g, Rectangle r, int index) {
+        g.setColor(index == current ? currentColor : matchColor);
+        // draw something even for a zero-width match, as DefaultHighlightPainter does
+        g.fillRect(r.x, r.y, Math.max(r.width, 1), r.height);
+    }
+}
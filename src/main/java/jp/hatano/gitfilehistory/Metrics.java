@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.slf4j.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide registry of named timers and counters for the phases of loading and showing a
+ * diff. Instrumented classes keep their timers and counters in static fields, so recording
+ * is a few uncontended additions and no lookup. Names are dotted, with the area first
+ * ({@code git.}, {@code blob.}, {@code diff.}, {@code text.}, {@code view.}).
+ * <p>
+ * The values can be written to a log with {@link #logReport(Logger)}, read by
+ * {@link DiagnosticsDialog} and exported over JMX by {@link #registerMBean()}.
+ */
+public class Metrics {
+    /** JMX name under which {@link #registerMBean()} exports the registry. */
+    public static final String OBJECT_NAME = "jp.hatano.gitfilehistory:type=Metrics";
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /** Accumulated durations of one phase. */
+    public static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        /** Records the time elapsed since {@code startNanos}, a value of {@link System#nanoTime()}. */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            if (nanos > maxNanos.get()) {
+                maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+        }
+    }
+
+    /** A running total such as bytes read or cache hits. */
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        void reset() {
+            value.reset();
+        }
+    }
+
+    /** Returns the timer named {@code name}, creating it on first use. */
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, n -> new Timer());
+    }
+
+    /** Returns the counter named {@code name}, creating it on first use. */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /** Returns the timers sorted by name. */
+    public static Map<String, Timer> timers() {
+        return new TreeMap<>(TIMERS);
+    }
+
+    /** Returns the counters sorted by name. */
+    public static Map<String, Counter> counters() {
+        return new TreeMap<>(COUNTERS);
+    }
+
+    /** Sets every timer and counter back to zero. */
+    public static void reset() {
+        TIMERS.values().forEach(Timer::reset);
+        COUNTERS.values().forEach(Counter::reset);
+    }
+
+    /** Returns a plain-text table of all timers and counters. */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-28s %10s %12s %10s %10s%n", "timer", "count", "total ms", "mean ms", "max ms"));
+        for (Map.Entry<String, Timer> entry : timers().entrySet()) {
+            Timer timer = entry.getValue();
+            long count = timer.getCount();
+            report.append(String.format("%-28s %10d %12.1f %10.3f %10.3f%n", entry.getKey(), count,
+                    millis(timer.getTotalNanos()), count > 0 ? millis(timer.getTotalNanos()) / count : 0.0,
+                    millis(timer.getMaxNanos())));
+        }
+        report.append(String.format("%-28s %10s%n", "counter", "value"));
+        for (Map.Entry<String, Counter> entry : counters().entrySet()) {
+            report.append(String.format("%-28s %10d%n", entry.getKey(), entry.getValue().get()));
+        }
+        return report.toString();
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /** Writes {@link #report()} to {@code logger} at info level. */
+    public static void logReport(Logger logger) {
+        if (logger.isInfoEnabled()) {
+            logger.info("Metrics:{}{}", System.lineSeparator(), report());
+        }
+    }
+
+    /** Exports the registry as {@link #OBJECT_NAME} on the platform MBean server; repeated calls do nothing. */
+    public static void registerMBean() throws JMException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // already exported
+        }
+    }
+
+    private static class MBean implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> values = new TreeMap<>();
+            counters().forEach((name, counter) -> values.put(name, counter.get()));
+            return values;
+        }
+
+        @Override
+        public Map<String, Long> getTimerCounts() {
+            Map<String, Long> values = new TreeMap<>();
+            timers().forEach((name, timer) -> values.put(name, timer.getCount()));
+            return values;
+        }
+
+        @Override
+        public Map<String, Double> getTimerTotalMillis() {
+            Map<String, Double> values = new TreeMap<>();
+            timers().forEach((name, timer) -> values.put(name, millis(timer.getTotalNanos())));
+            return values;
+        }
+
+        @Override
+        public Map<String, Double> getTimerMaxMillis() {
+            Map<String, Double> values = new TreeMap<>();
+            timers().forEach((name, timer) -> values.put(name, millis(timer.getMaxNanos())));
+            return values;
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics}, registered as {@value Metrics#OBJECT_NAME}.
+ */
+public interface MetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getTimerCounts();
+
+    Map<String, Double> getTimerTotalMillis();
+
+    Map<String, Double> getTimerMaxMillis();
+
+    /** The same table as {@link Metrics#report()}. */
+    String getReport();
+
+    /** Sets every timer and counter back to zero. */
+    void reset();
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.MyersDiff;
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.diff.SequenceComparator;
+
+/**
+ * Classic Myers diff. Gives the most readable results on small and medium inputs.
+ * <p>
+ * Every step is counted against the deadline, so dissimilar inputs, where Myers does the most
+ * work, fall back to a coarse diff like any other.
+ */
+class MyersDiffEngine implements DiffEngine {
+    @Override
+    public EditList diff(IntSequence oldLines, IntSequence newLines, DiffUtils.Deadline deadline) {
+        return MyersDiff.INSTANCE.diff(CheckedComparator.everyStep(new IntSequence.Comparator(), deadline),
+                oldLines, newLines);
+    }
+
+    /**
+     * Myers diff for the regions another algorithm hands over, counting every step against
+     * {@code deadline}.
+     */
+    static DiffAlgorithm fallback(DiffUtils.Deadline deadline) {
+        return new DiffAlgorithm() {
+            @Override
+            public <S extends Sequence> EditList diffNonCommon(SequenceComparator<? super S> cmp, S a, S b) {
+                return MyersDiff.INSTANCE.diffNonCommon(CheckedComparator.everyStep(cmp, deadline), a, b);
+            }
+        };
+    }
+}
@@ -6,39 +6,111 @@
 package jp.hatano.gitfilehistory;
 
 import javax.swing.*;
+import javax.swing.Timer;
 import javax.swing.text.*;
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
  * Manages search and highlighting functionality for the diff panes.
+ * <p>
+ * Queries are debounced and run on a background thread; a newer query cancels the running
+ * one. When a literal query only extends the previous one, just the previous occurrences are
+ * re-checked instead of scanning the documents again. Each pane gets a single highlight whose
+ * {@link MatchHighlightPainter} paints the visible matches, however many there are.
  */
 public class SearchManager {
+    static final int SEARCH_DEBOUNCE_MS = 200;
+    private static final int INTERRUPT_CHECK_INTERVAL = 4096;
+
     private final JTextPane leftPane;
     private final JTextPane rightPane;
     private final JLabel statusBar;
 
-    private final Highlighter.HighlightPainter searchHighlightPainter = new DefaultHighlighter.DefaultHighlightPainter(new Color(255, 255, 0, 128));
-    private final Highlighter.HighlightPainter currentHighlightPainter = new DefaultHighlighter.DefaultHighlightPainter(Color.ORANGE);
-    
-    private final List<HighlightInfo> highlights = new ArrayList<>();
+    private final MatchHighlightPainter leftPainter = new MatchHighlightPainter(new Color(255, 255, 0, 128), Color.ORANGE);
+    private final MatchHighlightPainter rightPainter = new MatchHighlightPainter(new Color(255, 255, 0, 128), Color.ORANGE);
+
+    /** Text of each searched document, so that refining a query does not copy it again. */
+    private final Map<Document, String> documentTexts = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Timer debounceTimer;
+    private SwingWorker<SearchResult, Void> searchWorker;
+    private int searchGeneration;
+    private Query pendingQuery;
+
+    private SearchResult result;
     private int currentHighlightIndex = -1;
 
-    private static class HighlightInfo {
+    private static class Query {
+        final String text;
+        final boolean ignoreCase;
+        final boolean isRegex;
+
+        Query(String text, boolean ignoreCase, boolean isRegex) {
+            this.text = text;
+            this.ignoreCase = ignoreCase;
+            this.isRegex = isRegex;
+        }
+
+        /** Whether every match of this query starts at an occurrence of {@code previous}. */
+        boolean refines(Query previous) {
+            return !isRegex && !previous.isRegex && ignoreCase == previous.ignoreCase
+                    && !previous.text.isEmpty() && text.startsWith(previous.text);
+        }
+    }
+
+    /** Matches in one document, sorted by offset. */
+    private static class PaneMatches {
         final JTextPane pane;
-        final int start;
-        final int end;
-        Object tag;
+        final Document document;
+        /** All, possibly overlapping, occurrences of a literal query; null for a regex. */
+        final int[] occurrences;
+        final int[] starts;
+        final int[] ends;
 
-        HighlightInfo(JTextPane pane, int start, int end) {
+        PaneMatches(JTextPane pane, Document document, int[] occurrences, int[] starts, int[] ends) {
             this.pane = pane;
-            this.start = start;
-            this.end = end;
+            this.document = document;
+            this.occurrences = occurrences;
+            this.starts = starts;
+            this.ends = ends;
+        }
+    }
+
+    /** Matches of the left pane followed by those of the right pane. */
+    private static class SearchResult {
+        final Query query;
+        final PaneMatches left;
+        final PaneMatches right;
+
+        SearchResult(Query query, PaneMatches left, PaneMatches right) {
+            this.query = query;
+            this.left = left;
+            this.right = right;
+        }
+
+        int size() {
+            return left.starts.length + right.starts.length;
+        }
+
+        PaneMatches matchesOf(int index) {
+            return index < left.starts.length ? left : right;
+        }
+
+        int indexIn(int index) {
+            return index < left.starts.length ? index : index - left.starts.length;
+        }
+
+        int indexOf(PaneMatches matches, int indexInPane) {
+            return matches == left ? indexInPane : left.starts.length + indexInPane;
         }
     }
 
@@ -46,102 +118,315 @@ public class SearchManager {
         this.leftPane = leftPane;
         this.rightPane = rightPane;
         this.statusBar = statusBar;
+        this.debounceTimer = new Timer(SEARCH_DEBOUNCE_MS, e -> startSearch());
+        this.debounceTimer.setRepeats(false);
     }
 
     public void clearHighlights() {
+        debounceTimer.stop();
+        cancelSearch();
+        removeHighlights();
+        result = null;
+    }
+
+    private void removeHighlights() {
         if (leftPane != null) leftPane.getHighlighter().removeAllHighlights();
         if (rightPane != null) rightPane.getHighlighter().removeAllHighlights();
-        highlights.clear();
+        leftPainter.setMatches(new int[0], new int[0]);
+        rightPainter.setMatches(new int[0], new int[0]);
         currentHighlightIndex = -1;
     }
 
-    public void updateHighlights(String searchText, boolean ignoreCase, boolean isRegex) {
-        clearHighlights();
+    private void cancelSearch() {
+        searchGeneration++;
+        if (searchWorker != null) {
+            searchWorker.cancel(true);
+            searchWorker = null;
+        }
+    }
 
+    /** Schedules a search for {@code searchText}, superseding any pending or running one. */
+    public void updateHighlights(String searchText, boolean ignoreCase, boolean isRegex) {
         if (searchText == null || searchText.isEmpty()) {
+            clearHighlights();
             statusBar.setText("Ready");
             return;
         }
 
+        cancelSearch();
+        if (result != null && (result.left.document != leftPane.getDocument()
+                || result.right.document != rightPane.getDocument())) {
+            // the highlights belong to replaced documents
+            removeHighlights();
+            result = null;
+        }
+        pendingQuery = new Query(searchText, ignoreCase, isRegex);
+        debounceTimer.restart();
+    }
+
+    private void startSearch() {
+        final Query query = pendingQuery;
+        final Pattern pattern;
         try {
-            addHighlightsInPane(leftPane, searchText, ignoreCase, isRegex);
-            addHighlightsInPane(rightPane, searchText, ignoreCase, isRegex);
+            pattern = query.isRegex ? compile(query.text, query.ignoreCase) : null;
         } catch (PatternSyntaxException e) {
+            removeHighlights();
+            result = null;
             statusBar.setText("Invalid Regex: " + e.getMessage());
             return;
         }
 
-        if (!highlights.isEmpty()) {
+        cancelSearch();
+        final int generation = searchGeneration;
+        final SearchResult previous = result;
+        final Document leftDocument = leftPane.getDocument();
+        final Document rightDocument = rightPane.getDocument();
+        statusBar.setText("Searching...");
+
+        searchWorker = new SwingWorker<SearchResult, Void>() {
+            @Override
+            protected SearchResult doInBackground() {
+                PaneMatches left = search(leftPane, leftDocument, query, pattern, previous != null ? previous.left : null, previous);
+                PaneMatches right = search(rightPane, rightDocument, query, pattern, previous != null ? previous.right : null, previous);
+                return new SearchResult(query, left, right);
+            }
+
+            @Override
+            protected void done() {
+                if (generation != searchGeneration || isCancelled()) {
+                    return; // superseded by a newer query
+                }
+                searchWorker = null;
+                try {
+                    showResult(get());
+                } catch (InterruptedException | ExecutionException | CancellationException e) {
+                    statusBar.setText("Search failed: " + e.getMessage());
+                }
+            }
+        };
+        searchWorker.execute();
+    }
+
+    private PaneMatches search(JTextPane pane, Document document, Query query, Pattern pattern,
+                               PaneMatches previousMatches, SearchResult previous) {
+        String content = documentTexts.computeIfAbsent(document, SearchManager::readText);
+        if (query.isRegex) {
+            int[][] matches = findRegex(content, pattern);
+            return new PaneMatches(pane, document, null, matches[0], matches[1]);
+        }
+
+        int[] candidates = null;
+        if (previousMatches != null && previousMatches.document == document
+                && previousMatches.occurrences != null && query.refines(previous.query)) {
+            candidates = previousMatches.occurrences;
+        }
+        int[] occurrences = findLiteral(content, query.text, query.ignoreCase, candidates);
+        int[] starts = nonOverlapping(occurrences, query.text.length());
+        int[] ends = new int[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            ends[i] = starts[i] + query.text.length();
+        }
+        return new PaneMatches(pane, document, occurrences, starts, ends);
+    }
+
+    private static String readText(Document document) {
+        String[] text = {""};
+        // render() holds the read lock, which makes reading safe off the event dispatch thread
+        document.render(() -> {
+            try {
+                text[0] = document.getText(0, document.getLength());
+            } catch (BadLocationException e) {
+                // Should not happen for valid ranges
+            }
+        });
+        return text[0];
+    }
+
+    private void showResult(SearchResult newResult) {
+        removeHighlights();
+        result = newResult;
+        addHighlight(newResult.left, leftPainter);
+        addHighlight(newResult.right, rightPainter);
+
+        if (newResult.size() > 0) {
             currentHighlightIndex = 0;
             navigateToCurrentHighlight(false);
         } else {
-            statusBar.setText("Text not found: " + searchText);
+            statusBar.setText("Text not found: " + newResult.query.text);
         }
     }
 
-    private void addHighlightsInPane(JTextPane pane, String searchText, boolean ignoreCase, boolean isRegex) throws PatternSyntaxException {
+    private static void addHighlight(PaneMatches matches, MatchHighlightPainter painter) {
+        painter.setMatches(matches.starts, matches.ends);
         try {
-            Document doc = pane.getDocument();
-            String content = doc.getText(0, doc.getLength());
-
-            Pattern pattern;
-            int flags = ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
-            if (isRegex) {
-                pattern = Pattern.compile(searchText, flags);
-            } else {
-                pattern = Pattern.compile(Pattern.quote(searchText), flags);
-            }
-
-            Matcher matcher = pattern.matcher(content);
-            while (matcher.find()) {
-                HighlightInfo hi = new HighlightInfo(pane, matcher.start(), matcher.end());
-                hi.tag = pane.getHighlighter().addHighlight(hi.start, hi.end, searchHighlightPainter);
-                highlights.add(hi);
-            }
+            matches.pane.getHighlighter().addHighlight(0, matches.document.getLength(), painter);
         } catch (BadLocationException e) {
             // Should not happen for valid ranges
         }
     }
 
+    /**
+     * Moves to the next or previous match. If the caret was moved away from the current
+     * match, the search continues from the caret instead.
+     */
     public void navigateHighlights(boolean forward) {
-        if (highlights.isEmpty()) return;
-
-        if (currentHighlightIndex != -1) {
-            HighlightInfo oldHi = highlights.get(currentHighlightIndex);
-            oldHi.pane.getHighlighter().removeHighlight(oldHi.tag);
-            try {
-                oldHi.tag = oldHi.pane.getHighlighter().addHighlight(oldHi.start, oldHi.end, searchHighlightPainter);
-            } catch (BadLocationException e) { /* ignore */ }
+        if (debounceTimer.isRunning()) {
+            // search right away; its result selects the first match
+            debounceTimer.stop();
+            startSearch();
+            return;
         }
+        if (result == null || result.size() == 0) return;
 
-        if (forward) {
-            currentHighlightIndex = (currentHighlightIndex + 1) % highlights.size();
+        int size = result.size();
+        int next;
+        PaneMatches matches = result.matchesOf(Math.max(0, currentHighlightIndex));
+        int caret = matches.pane.getCaretPosition();
+        if (currentHighlightIndex != -1 && caret == matches.starts[result.indexIn(currentHighlightIndex)]) {
+            next = currentHighlightIndex + (forward ? 1 : -1);
         } else {
-            currentHighlightIndex = (currentHighlightIndex - 1 + highlights.size()) % highlights.size();
+            int atCaret = MatchHighlightPainter.firstStartingAt(matches.starts, caret);
+            if (forward) {
+                next = result.indexOf(matches, atCaret);
+            } else {
+                next = result.indexOf(matches, atCaret) - 1;
+            }
         }
+        currentHighlightIndex = (next % size + size) % size;
 
         navigateToCurrentHighlight(true);
     }
 
     private void navigateToCurrentHighlight(boolean scroll) {
-        if (currentHighlightIndex < 0 || currentHighlightIndex >= highlights.size()) return;
+        if (result == null || currentHighlightIndex < 0 || currentHighlightIndex >= result.size()) return;
 
-        HighlightInfo hi = highlights.get(currentHighlightIndex);
-        hi.pane.getHighlighter().removeHighlight(hi.tag);
-        try {
-            hi.tag = hi.pane.getHighlighter().addHighlight(hi.start, hi.end, currentHighlightPainter);
-        } catch (BadLocationException e) { /* ignore */ }
+        PaneMatches matches = result.matchesOf(currentHighlightIndex);
+        int indexInPane = result.indexIn(currentHighlightIndex);
+        leftPainter.setCurrent(matches == result.left ? indexInPane : -1);
+        rightPainter.setCurrent(matches == result.right ? indexInPane : -1);
+        leftPane.repaint();
+        rightPane.repaint();
 
         if (scroll) {
+            int start = matches.starts[indexInPane];
             try {
-                Rectangle2D viewRect2D = hi.pane.modelToView2D(hi.start);
+                Rectangle2D viewRect2D = matches.pane.modelToView2D(start);
                 if (viewRect2D != null) {
-                    hi.pane.scrollRectToVisible(viewRect2D.getBounds());
+                    matches.pane.scrollRectToVisible(viewRect2D.getBounds());
                 }
-                hi.pane.setCaretPosition(hi.start);
+                matches.pane.setCaretPosition(start);
             } catch (BadLocationException e) { /* ignore */ }
         }
 
-        statusBar.setText("Match " + (currentHighlightIndex + 1) + " of " + highlights.size());
+        statusBar.setText("Match " + (currentHighlightIndex + 1) + " of " + result.size());
+    }
+
+    static Pattern compile(String searchText, boolean ignoreCase) {
+        int flags = ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
+        return Pattern.compile(searchText, flags);
+    }
+
+    /**
+     * Returns the start of every occurrence of {@code query} in {@code content}, including
+     * overlapping ones. With {@code candidates}, only those offsets are checked.
+     */
+    static int[] findLiteral(String content, String query, boolean ignoreCase, int[] candidates) {
+        int length = query.length();
+        int[] found = new int[16];
+        int count = 0;
+        if (candidates != null) {
+            for (int candidate : candidates) {
+                if ((count & (INTERRUPT_CHECK_INTERVAL - 1)) == 0) checkInterrupted();
+                if (content.regionMatches(ignoreCase, candidate, query, 0, length)) {
+                    if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                    found[count++] = candidate;
+                }
+            }
+        } else if (!ignoreCase) {
+            for (int i = content.indexOf(query); i >= 0; i = content.indexOf(query, i + 1)) {
+                if ((count & (INTERRUPT_CHECK_INTERVAL - 1)) == 0) checkInterrupted();
+                if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                found[count++] = i;
+            }
+        } else {
+            for (int i = 0, last = content.length() - length; i <= last; i++) {
+                if ((i & (INTERRUPT_CHECK_INTERVAL - 1)) == 0) checkInterrupted();
+                if (content.regionMatches(true, i, query, 0, length)) {
+                    if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                    found[count++] = i;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /** Picks the occurrences {@link Matcher#find()} would report: leftmost first, never overlapping. */
+    static int[] nonOverlapping(int[] occurrences, int length) {
+        int[] starts = new int[occurrences.length];
+        int count = 0;
+        int end = Integer.MIN_VALUE;
+        for (int occurrence : occurrences) {
+            if (occurrence >= end) {
+                starts[count++] = occurrence;
+                end = occurrence + length;
+            }
+        }
+        return count == starts.length ? starts : Arrays.copyOf(starts, count);
+    }
+
+    /** Returns the starts and the ends of the matches of {@code pattern}. */
+    static int[][] findRegex(String content, Pattern pattern) {
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int count = 0;
+        Matcher matcher = pattern.matcher(new InterruptibleCharSequence(content));
+        while (matcher.find()) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = matcher.start();
+            ends[count++] = matcher.end();
+        }
+        return new int[][] {Arrays.copyOf(starts, count), Arrays.copyOf(ends, count)};
+    }
+
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Lets a cancelled search stop even inside a single slow regex match: reading a character
+     * of an interrupted thread throws {@link CancellationException}.
+     */
+    static class InterruptibleCharSequence implements CharSequence {
+        private final CharSequence text;
+
+        InterruptibleCharSequence(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        public char charAt(int index) {
+            checkInterrupted();
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new InterruptibleCharSequence(text.subSequence(start, end));
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
     }
 }
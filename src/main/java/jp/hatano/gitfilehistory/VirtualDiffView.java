@@ -0,0 +1,460 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Side-by-side diff view that paints only the rows intersecting the clip.
+ * <p>
+ * Both sides and their line numbers live in one component, so they scroll together without
+ * sharing scroll bar models. Nothing is laid out per line: row {@code r} is at
+ * {@code r * rowHeight}, which keeps memory and scrolling independent of the file size.
+ * Long lines are not wrapped: the view grows as wide as the longest line painted so far, and
+ * scrolling horizontally moves the text of both sides while the sides and gutters stay in place.
+ * Only the part of a line inside its side is laid out.
+ * <p>
+ * Search matches are found by {@link DiffRows#findMatches} for the visible rows only, on a
+ * background thread, and painted from the cached offsets once they arrive. A slow pattern or
+ * a very long line therefore never holds up painting.
+ */
+public class VirtualDiffView extends JComponent implements Scrollable {
+    private static final int MARGIN = 5;
+    private static final int TAB_WIDTH = 4;
+    private static final Color GUTTER_COLOR = new Color(240, 240, 240);
+    private static final Color DIVIDER_COLOR = Color.LIGHT_GRAY;
+    private static final Color MATCH_COLOR = new Color(255, 255, 0, 128);
+    private static final Color CURRENT_MATCH_COLOR = Color.ORANGE;
+    private static final int MAX_CACHED_ROWS = 2048;
+
+    private DiffRows rows = new DiffRows(Collections.emptyList());
+    private int gutterWidth;
+    /** Width of the widest line painted since the rows or the font changed. */
+    private int textWidth;
+    /** Rows whose text width is already part of {@link #textWidth}. */
+    private final Map<Integer, Boolean> measuredRows = lruMap();
+    private Pattern searchPattern;
+    private int currentMatchRow = -1;
+
+    /** Match offsets of the left and right text by row, for {@link #searchPattern} and {@link #rows}. */
+    private final Map<Integer, int[][]> matchCache = lruMap();
+    private SwingWorker<Map<Integer, int[][]>, Void> matchWorker;
+    private int matchGeneration;
+    private int matchFirstRow;
+    private int matchLastRow;
+
+    private static <V> Map<Integer, V> lruMap() {
+        return new LinkedHashMap<Integer, V>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, V> eldest) {
+                return size() > MAX_CACHED_ROWS;
+            }
+        };
+    }
+
+    public VirtualDiffView() {
+        setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        setBackground(Color.WHITE);
+        setOpaque(true);
+        updateGutterWidth();
+    }
+
+    void setRows(DiffRows rows) {
+        this.rows = rows;
+        currentMatchRow = -1;
+        textWidth = 0;
+        measuredRows.clear();
+        resetMatches();
+        updateGutterWidth();
+        revalidate();
+        repaint();
+    }
+
+    DiffRows getRows() {
+        return rows;
+    }
+
+    int getRowHeight() {
+        return getFontMetrics(getFont()).getHeight();
+    }
+
+    /** Returns the row at vertical position {@code y}. */
+    int rowAtPoint(int y) {
+        return Math.max(0, Math.min(rows.getRowCount() - 1, y / getRowHeight()));
+    }
+
+    /**
+     * Highlights the matches of {@code pattern}, or none if it is null, and outlines
+     * {@code currentRow} unless it is -1.
+     */
+    void setSearch(Pattern pattern, int currentRow) {
+        if (pattern != searchPattern) {
+            resetMatches();
+        }
+        this.searchPattern = pattern;
+        this.currentMatchRow = currentRow;
+        repaint();
+    }
+
+    private void resetMatches() {
+        resetMatchWorker();
+        matchCache.clear();
+    }
+
+    /**
+     * Returns the cached match offsets of {@code row}, or null if they are not known yet; then the
+     * rows from {@code firstRow} to {@code lastRow} are matched in the background and repainted.
+     */
+    private int[][] matchesOf(int row, int firstRow, int lastRow) {
+        int[][] matches = matchCache.get(row);
+        if (matches == null && (matchWorker == null || firstRow < matchFirstRow || lastRow > matchLastRow)) {
+            findMatches(firstRow, lastRow);
+        }
+        return matches;
+    }
+
+    private void findMatches(int firstRow, int lastRow) {
+        resetMatchWorker();
+        final Pattern pattern = searchPattern;
+        final DiffRows searchedRows = rows;
+        final int generation = matchGeneration;
+        matchFirstRow = firstRow;
+        matchLastRow = lastRow;
+        matchWorker = new SwingWorker<Map<Integer, int[][]>, Void>() {
+            @Override
+            protected Map<Integer, int[][]> doInBackground() {
+                Map<Integer, int[][]> found = new HashMap<>();
+                for (int row = firstRow; row <= lastRow; row++) {
+                    boolean folded = searchedRows.getType(row) == DiffUtils.DiffType.FOLDED;
+                    found.put(row, new int[][] {
+                            folded ? new int[0] : DiffRows.findMatches(pattern, searchedRows.getLeftText(row)),
+                            folded ? new int[0] : DiffRows.findMatches(pattern, searchedRows.getRightText(row))});
+                }
+                return found;
+            }
+
+            @Override
+            protected void done() {
+                if (generation != matchGeneration || isCancelled()) {
+                    return; // superseded by another pattern, diff or range
+                }
+                matchWorker = null;
+                try {
+                    matchCache.putAll(get());
+                    repaint();
+                } catch (InterruptedException | ExecutionException | CancellationException e) {
+                    // e.g. a stack overflow in the pattern; leave the rows unhighlighted rather than retry
+                    int[][] none = {new int[0], new int[0]};
+                    for (int row = firstRow; row <= lastRow; row++) {
+                        matchCache.put(row, none);
+                    }
+                }
+            }
+        };
+        matchWorker.execute();
+    }
+
+    /** Cancels the running match worker, keeping the cached offsets. */
+    private void resetMatchWorker() {
+        matchGeneration++;
+        if (matchWorker != null) {
+            matchWorker.cancel(true);
+            matchWorker = null;
+        }
+    }
+
+    int getCurrentMatchRow() {
+        return currentMatchRow;
+    }
+
+    /** Scrolls so that {@code row} is the first visible row. */
+    void scrollToRow(int row) {
+        Rectangle visible = getVisibleRect();
+        int height = Math.max(visible.height, getRowHeight());
+        scrollRectToVisible(new Rectangle(visible.x, row * getRowHeight(), 1, height));
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+        textWidth = 0;
+        if (measuredRows != null) { // null when called from the super constructor
+            measuredRows.clear();
+        }
+        updateGutterWidth();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (getParent() instanceof JViewport) {
+            // painting is anchored to the visible area, so a blit of the old pixels would be wrong
+            ((JViewport) getParent()).setScrollMode(JViewport.SIMPLE_SCROLL_MODE);
+        }
+    }
+
+    private void updateGutterWidth() {
+        if (rows == null) {
+            return; // called from the super constructor
+        }
+        FontMetrics fm = getFontMetrics(getFont());
+        gutterWidth = fm.stringWidth(String.valueOf(Math.max(1, rows.getMaxLineNumber()))) + 2 * MARGIN;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(viewportWidth() + horizontalExtent(), rows.getRowCount() * getRowHeight());
+    }
+
+    private int viewportWidth() {
+        Container parent = getParent();
+        return parent instanceof JViewport ? parent.getWidth() : 2 * gutterWidth;
+    }
+
+    /** How far the text can be scrolled to show the end of the widest line in the narrower side. */
+    private int horizontalExtent() {
+        int textArea = viewportWidth() / 2 - gutterWidth - 2 * MARGIN;
+        return Math.max(0, textWidth - textArea);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        if (rows.getRowCount() == 0) {
+            return;
+        }
+
+        FontMetrics fm = g.getFontMetrics(getFont());
+        int rowHeight = fm.getHeight();
+        int firstRow = rowAtPoint(clip.y);
+        int lastRow = rowAtPoint(clip.y + clip.height);
+        // the sides stay in the visible area; its x is how far the text is scrolled
+        Rectangle visible = getVisibleRect();
+        int left = visible.x;
+        int half = visible.width / 2;
+        int widest = textWidth;
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            int y = row * rowHeight;
+            DiffUtils.DiffType type = rows.getType(row);
+            if (type == DiffUtils.DiffType.FOLDED) {
+                paintPlaceholder(g, fm, left, visible.width, y, rows.getFoldedLineCount(row));
+                continue;
+            }
+            int[][] matches = searchPattern != null ? matchesOf(row, firstRow, lastRow) : null;
+            boolean measure = measuredRows.put(row, Boolean.TRUE) == null;
+            widest = Math.max(widest, paintSide(g, fm, left, half, left, y, type, rows.getLeftLineNumber(row),
+                    rows.getLeftText(row), matches != null ? matches[0] : null, measure));
+            widest = Math.max(widest, paintSide(g, fm, left + half, visible.width - half, left, y, type,
+                    rows.getRightLineNumber(row), rows.getRightText(row), matches != null ? matches[1] : null, measure));
+            if (row == currentMatchRow) {
+                g.setColor(CURRENT_MATCH_COLOR);
+                g.drawRect(left, y, visible.width - 1, rowHeight - 1);
+            }
+        }
+
+        g.setColor(DIVIDER_COLOR);
+        g.drawLine(left + half - 1, clip.y, left + half - 1, clip.y + clip.height);
+
+        if (widest > textWidth) {
+            textWidth = widest;
+            SwingUtilities.invokeLater(this::revalidate);
+        }
+    }
+
+    /**
+     * Paints one side of a row with its text scrolled left by {@code scroll} and returns the width
+     * of the text if {@code measure} is set, or 0 if not or if it is no wider than {@link #textWidth}.
+     */
+    private int paintSide(Graphics g, FontMetrics fm, int x, int width, int scroll, int y,
+                          DiffUtils.DiffType type, int lineNumber, String text, int[] matches, boolean measure) {
+        int rowHeight = fm.getHeight();
+        int baseline = y + fm.getAscent();
+
+        g.setColor(GUTTER_COLOR);
+        g.fillRect(x, y, gutterWidth, rowHeight);
+        Color background = text != null ? backgroundOf(type) : null;
+        if (background != null) {
+            g.setColor(background);
+            g.fillRect(x + gutterWidth, y, width - gutterWidth, rowHeight);
+        }
+        if (lineNumber <= 0) {
+            return 0;
+        }
+
+        String number = String.valueOf(lineNumber);
+        g.setColor(Color.GRAY);
+        g.drawString(number, x + gutterWidth - MARGIN - fm.stringWidth(number), baseline);
+
+        int areaWidth = Math.max(0, width - gutterWidth - 1);
+        Graphics textGraphics = g.create(x + gutterWidth, y, areaWidth, rowHeight);
+        try {
+            if (matches != null && matches.length > 0) {
+                paintMatches(textGraphics, fm, text, matches, scroll);
+            }
+            // lay out only the characters inside the side
+            LineWalker walker = new LineWalker(fm, text);
+            walker.skipTo(scroll - MARGIN);
+            int from = walker.index;
+            int fromColumn = walker.column;
+            int fromX = walker.x;
+            walker.advanceToX(scroll + areaWidth);
+            textGraphics.setColor(getForeground());
+            textGraphics.setFont(getFont());
+            textGraphics.drawString(expandTabs(text, from, walker.index, fromColumn), MARGIN + fromX - scroll, fm.getAscent());
+
+            int maxAdvance = Math.max(fm.getMaxAdvance(), TAB_WIDTH * fm.charWidth(' '));
+            if (!measure || maxAdvance > 0 && (long) text.length() * maxAdvance <= textWidth) {
+                return 0;
+            }
+            walker.advanceTo(text.length());
+            return walker.x;
+        } finally {
+            textGraphics.dispose();
+        }
+    }
+
+    private void paintMatches(Graphics g, FontMetrics fm, String text, int[] matches, int scroll) {
+        g.setColor(MATCH_COLOR);
+        int right = g.getClipBounds().x + g.getClipBounds().width;
+        // matches are in order, so each one is measured on from the previous one
+        LineWalker walker = new LineWalker(fm, text);
+        for (int i = 0; i < matches.length; i += 2) {
+            walker.advanceTo(matches[i]);
+            int start = MARGIN + walker.x - scroll;
+            if (start > right) {
+                break;
+            }
+            walker.advanceTo(matches[i + 1]);
+            g.fillRect(start, 0, Math.max(1, MARGIN + walker.x - scroll - start), fm.getHeight());
+        }
+    }
+
+    private void paintPlaceholder(Graphics g, FontMetrics fm, int x, int width, int y, int foldedLines) {
+        g.setColor(DiffDocumentBuilder.FOLDED_COLOR);
+        g.fillRect(x, y, width, fm.getHeight());
+        String label = DiffDocumentBuilder.foldedLabel(foldedLines);
+        g.setColor(Color.GRAY);
+        g.drawString(label, x + Math.max(MARGIN, (width - fm.stringWidth(label)) / 2), y + fm.getAscent());
+    }
+
+    private static Color backgroundOf(DiffUtils.DiffType type) {
+        switch (type) {
+            case DELETE:
+                return DiffDocumentBuilder.DELETE_COLOR;
+            case INSERT:
+                return DiffDocumentBuilder.ADD_COLOR;
+            case CHANGE:
+                return DiffDocumentBuilder.MODIFIED_COLOR;
+            default:
+                return null;
+        }
+    }
+
+    /** Expands the tabs of {@code text[from, to)}, which starts at {@code column}. */
+    private static String expandTabs(String text, int from, int to, int column) {
+        if (text.indexOf('\t', from) < 0 || text.indexOf('\t', from) >= to) {
+            return text.substring(from, to);
+        }
+        StringBuilder sb = new StringBuilder(to - from + TAB_WIDTH);
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '\t') {
+                do {
+                    sb.append(' ');
+                    column++;
+                } while (column % TAB_WIDTH != 0);
+            } else {
+                sb.append(c);
+                column++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Walks a line from its start, keeping the column with tabs expanded and the x position. */
+    private static final class LineWalker {
+        private final FontMetrics fm;
+        private final String text;
+        int index;
+        int column;
+        int x;
+
+        LineWalker(FontMetrics fm, String text) {
+            this.fm = fm;
+            this.text = text;
+        }
+
+        void advanceTo(int end) {
+            while (index < end) {
+                step();
+            }
+        }
+
+        /** Advances over the characters that end at or before {@code limit}. */
+        void skipTo(int limit) {
+            while (index < text.length() && x + width(text.charAt(index)) <= limit) {
+                step();
+            }
+        }
+
+        /** Advances until {@code x} reaches {@code limit}, taking the character it falls in. */
+        void advanceToX(int limit) {
+            while (index < text.length() && x < limit) {
+                step();
+            }
+        }
+
+        private int width(char c) {
+            return c == '\t' ? (TAB_WIDTH - column % TAB_WIDTH) * fm.charWidth(' ') : fm.charWidth(c);
+        }
+
+        private void step() {
+            char c = text.charAt(index++);
+            x += width(c);
+            column += c == '\t' ? TAB_WIDTH - column % TAB_WIDTH : 1;
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? getRowHeight() : MARGIN;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        if (orientation != SwingConstants.VERTICAL) {
+            return visibleRect.width;
+        }
+        int rowHeight = getRowHeight();
+        return Math.max(rowHeight, visibleRect.height / rowHeight * rowHeight - rowHeight);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return horizontalExtent() == 0;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
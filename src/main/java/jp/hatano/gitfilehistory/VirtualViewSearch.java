@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import javax.swing.*;
+import javax.swing.Timer;
+import java.awt.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Search in a {@link VirtualDiffView}, which has no text panes for {@link SearchManager}.
+ * <p>
+ * Like {@link SearchManager}, typed queries are debounced and rows are matched on a background
+ * thread; a newer query or a new diff cancels the running search, and only the result of the
+ * latest one is shown.
+ */
+class VirtualViewSearch {
+    private final VirtualDiffView view;
+    private final JLabel statusBar;
+    private final Timer debounceTimer;
+    private SwingWorker<Integer, Void> searchWorker;
+    private int searchGeneration;
+    private Pattern pendingPattern;
+    private String pendingQuery;
+    private boolean pendingForward;
+
+    VirtualViewSearch(VirtualDiffView view, JLabel statusBar) {
+        this.view = view;
+        this.statusBar = statusBar;
+        this.debounceTimer = new Timer(SearchManager.SEARCH_DEBOUNCE_MS, e -> startSearch(firstVisibleRow()));
+        this.debounceTimer.setRepeats(false);
+    }
+
+    /** Schedules a search for {@code pattern} from the first visible row, superseding any pending or running one. */
+    void update(Pattern pattern, String query) {
+        cancel();
+        pendingPattern = pattern;
+        pendingQuery = query;
+        pendingForward = true;
+        debounceTimer.restart();
+    }
+
+    /**
+     * Searches right away for the next or previous match after the current one, or from the
+     * first visible row if there is none.
+     */
+    void navigate(Pattern pattern, String query, boolean forward) {
+        cancel();
+        pendingPattern = pattern;
+        pendingQuery = query;
+        pendingForward = forward;
+        int current = view.getCurrentMatchRow();
+        startSearch(current >= 0 ? current + (forward ? 1 : -1) : firstVisibleRow());
+    }
+
+    /** Stops any pending or running search and removes the highlights. */
+    void clear() {
+        cancel();
+        view.setSearch(null, -1);
+    }
+
+    /** Stops any pending or running search, keeping the highlights. */
+    void cancel() {
+        debounceTimer.stop();
+        searchGeneration++;
+        if (searchWorker != null) {
+            searchWorker.cancel(true);
+            searchWorker = null;
+        }
+    }
+
+    private int firstVisibleRow() {
+        return view.rowAtPoint(view.getVisibleRect().y);
+    }
+
+    private void startSearch(int fromRow) {
+        final Pattern pattern = pendingPattern;
+        final String query = pendingQuery;
+        final boolean forward = pendingForward;
+        final DiffRows rows = view.getRows();
+        final int generation = searchGeneration;
+        statusBar.setText("Searching...");
+
+        searchWorker = new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return rows.findRow(pattern, fromRow, forward);
+            }
+
+            @Override
+            protected void done() {
+                if (generation != searchGeneration || isCancelled() || view.getRows() != rows) {
+                    return; // superseded by a newer query or diff
+                }
+                searchWorker = null;
+                try {
+                    showResult(get(), pattern, query, rows);
+                } catch (InterruptedException | ExecutionException | CancellationException e) {
+                    statusBar.setText("Search failed: " + e.getMessage());
+                }
+            }
+        };
+        searchWorker.execute();
+    }
+
+    private void showResult(int row, Pattern pattern, String query, DiffRows rows) {
+        view.setSearch(pattern, row);
+        if (row < 0) {
+            statusBar.setText("Text not found: " + query);
+            return;
+        }
+        int rowHeight = view.getRowHeight();
+        view.scrollRectToVisible(new Rectangle(view.getVisibleRect().x, row * rowHeight, 1, rowHeight));
+        statusBar.setText("Match at row " + (row + 1) + " of " + rows.getRowCount());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchExporterTest {
+
+    @Rule
+    public TestRepository repo = new TestRepository();
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testExportsEveryConsecutivePair() throws Exception {
+        RevCommit first = repo.commitFile("a.txt", "one\n", "first");
+        repo.commitFile("a.txt", "one\ntwo\n", "second");
+        RevCommit third = repo.commitFile("a.txt", "one\n2\nthree\n", "third");
+        File out = new File(tempFolder.getRoot(), "export");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+            DiffCache diffCache = new DiffCache();
+            BatchExporter exporter = new BatchExporter(service, new DiffLoader(service, diffCache, null),
+                    "a.txt", "UTF-8", DiffUtils.Algorithm.AUTO, 2);
+
+            List<BatchExporter.Progress> progress = new ArrayList<>();
+            List<BatchExporter.PairResult> results = exporter.export(commits, out, progress::add);
+
+            assertEquals(2, results.size());
+            assertEquals(2, progress.size());
+            assertEquals(2, progress.get(1).pairsDone);
+            assertEquals(first.getId(), results.get(0).oldCommit.getCommit().getId());
+            assertEquals(third.getId(), results.get(1).newCommit.getCommit().getId());
+            assertEquals(0, results.get(0).deletedLines);
+            assertEquals(1, results.get(0).insertedLines);
+            assertEquals(1, results.get(1).deletedLines);
+            assertEquals(2, results.get(1).insertedLines);
+
+            for (BatchExporter.PairResult result : results) {
+                assertTrue(new File(out, result.htmlName).isFile());
+                String patch = new String(Files.readAllBytes(new File(out, result.patchName).toPath()), StandardCharsets.UTF_8);
+                assertTrue(patch.startsWith("diff --git a/a.txt b/a.txt"));
+            }
+            String index = new String(Files.readAllBytes(new File(out, BatchExporter.INDEX_FILE).toPath()), StandardCharsets.UTF_8);
+            assertTrue(index.contains("<a href='" + results.get(1).htmlName + "'>html</a>"));
+
+            // a second export computes no diff again
+            long misses = diffCache.getMisses();
+            exporter.export(commits, out, p -> { });
+            assertEquals(misses, diffCache.getMisses());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BlobCacheTest {
+
+    private static ObjectId id(int n) {
+        return ObjectId.fromString(String.format("%040x", n));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedOverBudget() {
+        BlobCache cache = new BlobCache(10);
+        cache.putBlob(id(1), new byte[4]);
+        cache.putBlob(id(2), new byte[4]);
+        assertNotNull(cache.getBlob(id(1))); // id(2) is now the eldest
+        cache.putBlob(id(3), new byte[4]);
+
+        assertNotNull(cache.getBlob(id(1)));
+        assertNull(cache.getBlob(id(2)));
+        assertNotNull(cache.getBlob(id(3)));
+        assertEquals(8, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testBlobLargerThanBudgetIsNotCached() {
+        BlobCache cache = new BlobCache(10);
+        cache.putBlob(id(1), new byte[4]);
+        cache.putBlob(id(2), new byte[11]);
+
+        assertNull(cache.getBlob(id(2)));
+        assertNotNull(cache.getBlob(id(1)));
+    }
+
+    @Test
+    public void testCountsHitsAndMisses() {
+        BlobCache cache = new BlobCache(100);
+        assertNull(cache.getBlobId(id(1), "a.txt"));
+        cache.putBlobId(id(1), "a.txt", id(2));
+        assertEquals(id(2), cache.getBlobId(id(1), "a.txt"));
+        assertNull(cache.getBlob(id(2)));
+        cache.putBlob(id(2), new byte[1]);
+        cache.getBlob(id(2));
+
+        assertEquals(1, cache.getBlobIdHits());
+        assertEquals(1, cache.getBlobIdMisses());
+        assertEquals(1, cache.getBlobHits());
+        assertEquals(1, cache.getBlobMisses());
+    }
+}
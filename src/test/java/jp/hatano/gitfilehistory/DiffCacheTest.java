@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class DiffCacheTest {
+
+    @Rule
+    public TestRepository repo = new TestRepository();
+
+    private static ObjectId id(int n) {
+        return ObjectId.fromString(String.format("%040x", n));
+    }
+
+    @Test
+    public void testKeyIncludesEncodingAndAlgorithm() {
+        DiffCache cache = new DiffCache(100);
+        List<DiffUtils.Diff> diffs = Collections.emptyList();
+        cache.put(new DiffCache.Key(id(1), id(2), "UTF-8", DiffUtils.Algorithm.AUTO), diffs, 10);
+
+        assertSame(diffs, cache.get(new DiffCache.Key(id(1), id(2), "UTF-8", DiffUtils.Algorithm.AUTO)));
+        assertNull(cache.get(new DiffCache.Key(id(1), id(2), "Shift_JIS", DiffUtils.Algorithm.AUTO)));
+        assertNull(cache.get(new DiffCache.Key(id(1), id(2), "UTF-8", DiffUtils.Algorithm.HISTOGRAM)));
+        assertNull(cache.get(new DiffCache.Key(id(2), id(1), "UTF-8", DiffUtils.Algorithm.AUTO)));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testEvictsOverBudget() {
+        DiffCache cache = new DiffCache(100);
+        for (int i = 0; i < 5; i++) {
+            cache.put(new DiffCache.Key(id(i), id(i + 1), "UTF-8", DiffUtils.Algorithm.AUTO), Collections.emptyList(), 30);
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(90, cache.getUsedBytes());
+        assertNull(cache.get(new DiffCache.Key(id(0), id(1), "UTF-8", DiffUtils.Algorithm.AUTO)));
+    }
+
+    @Test
+    public void testLoaderSharesResultsForIdenticalBlobPairs() throws Exception {
+        for (String content : new String[] { "one\n", "two\n", "one\n", "two\n" }) {
+            repo.commitFile("a.txt", content);
+        }
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+            DiffCache cache = new DiffCache();
+            DiffLoader loader = new DiffLoader(service, cache, null);
+
+            List<DiffUtils.Diff> first = loader.load(commits.get(3), commits.get(2), "a.txt", "UTF-8", DiffUtils.Algorithm.AUTO);
+            List<DiffUtils.Diff> reverted = loader.load(commits.get(1), commits.get(0), "a.txt", "UTF-8", DiffUtils.Algorithm.AUTO);
+
+            assertSame(first, reverted);
+            assertEquals(1, cache.getHits());
+        }
+    }
+
+    @Test
+    public void testLoaderReadsTheWorkingTreeFileOnce() throws Exception {
+        repo.commitFile("a.txt", "one\n");
+        repo.writeFile("a.txt", "one\ntwo\n");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+            assertTrue(commits.get(0).isUncommitted());
+            Metrics.Timer worktreeRead = Metrics.timer("git.worktreeRead");
+            long readsBefore = worktreeRead.getCount();
+
+            List<DiffUtils.Diff> diffs = new DiffLoader(service, new DiffCache(), null)
+                    .load(commits.get(1), commits.get(0), "a.txt", "UTF-8", DiffUtils.Algorithm.AUTO);
+
+            assertEquals(1, worktreeRead.getCount() - readsBefore);
+            assertEquals(DiffUtils.DiffType.INSERT, diffs.get(1).type);
+        }
+    }
+
+    @Test
+    public void testLoaderDoesNotCacheTimedOutDiffs() throws Exception {
+        StringBuilder oldContent = new StringBuilder();
+        StringBuilder newContent = new StringBuilder();
+        // few distinct lines in different cycles make Myers compare lines often enough to check the deadline
+        for (int i = 0; i < 2000; i++) {
+            oldContent.append(i % 7).append('\n');
+            newContent.append(i % 5).append('\n');
+        }
+        repo.commitFile("a.txt", oldContent.toString(), "old");
+        repo.commitFile("a.txt", newContent.toString(), "new");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+            DiffCache cache = new DiffCache();
+            new DiffLoader(service, cache, null, 0).load(commits.get(1), commits.get(0), "a.txt", "UTF-8",
+                    DiffUtils.Algorithm.MYERS);
+            assertEquals(0, cache.size());
+
+            new DiffLoader(service, cache, null).load(commits.get(1), commits.get(0), "a.txt", "UTF-8",
+                    DiffUtils.Algorithm.MYERS);
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void testLoaderStopsWhenInterrupted() throws Exception {
+        StringBuilder oldContent = new StringBuilder();
+        StringBuilder newContent = new StringBuilder();
+        // unique lines that never match are the slowest case for Myers
+        for (int i = 0; i < 40_000; i++) {
+            oldContent.append("old ").append(i).append('\n');
+            newContent.append("new ").append(i).append('\n');
+        }
+        repo.commitFile("a.txt", oldContent.toString(), "old");
+        repo.commitFile("a.txt", newContent.toString(), "new");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+            DiffCache cache = new DiffCache();
+            DiffLoader loader = new DiffLoader(service, cache, null, 60_000);
+            AtomicReference<Throwable> thrown = new AtomicReference<>();
+            Thread worker = new Thread(() -> {
+                try {
+                    loader.load(commits.get(1), commits.get(0), "a.txt", "UTF-8", DiffUtils.Algorithm.MYERS);
+                } catch (Throwable e) {
+                    thrown.set(e);
+                }
+            });
+            worker.start();
+            Thread.sleep(200);
+            worker.interrupt();
+            worker.join(2000);
+
+            assertFalse(worker.isAlive());
+            assertTrue(String.valueOf(thrown.get()), thrown.get() instanceof CancellationException);
+            assertEquals(0, cache.size());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.junit.Test;
+
+import javax.swing.JTextPane;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.Element;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+import java.awt.Font;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DiffDocumentBuilderTest {
+
+    private static DiffDocumentBuilder.Result build(List<String> original, List<String> revised) {
+        return build(DiffUtils.diff(original, revised));
+    }
+
+    private static DiffDocumentBuilder.Result build(List<DiffUtils.Diff> diffs) {
+        JTextPane textPane = new JTextPane();
+        textPane.setSize(1000, 100);
+        Font font = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+        return new DiffDocumentBuilder(new LineWrapper(textPane), new LineWrapper(textPane), font).build(diffs);
+    }
+
+    @Test
+    public void testOneParagraphPerRowWithFillers() throws Exception {
+        DiffDocumentBuilder.Result result = build(Arrays.asList("a", "b", "c"), Arrays.asList("a", "c", "d"));
+
+        assertEquals("a\nb\nc\n\n", result.leftDocument.getText(0, result.leftDocument.getLength()));
+        assertEquals("a\n\nc\nd\n", result.rightDocument.getText(0, result.rightDocument.getLength()));
+        assertArrayEquals(new int[] { 1, 2, 3, 0 }, result.leftLineNumbers);
+        assertArrayEquals(new int[] { 1, 0, 2, 3 }, result.rightLineNumbers);
+        // one paragraph per row plus the trailing empty one
+        assertEquals(5, result.leftDocument.getDefaultRootElement().getElementCount());
+        assertEquals(5, result.rightDocument.getDefaultRootElement().getElementCount());
+    }
+
+    @Test
+    public void testChangedRowsCarryBackgroundColors() {
+        DiffDocumentBuilder.Result result = build(Arrays.asList("a", "b"), Arrays.asList("a"));
+
+        assertFalse(attributesOfRow(result.leftDocument, 0).isDefined(StyleConstants.Background));
+        assertEquals(DiffDocumentBuilder.DELETE_COLOR, StyleConstants.getBackground(attributesOfRow(result.leftDocument, 1)));
+        assertFalse(attributesOfRow(result.rightDocument, 1).isDefined(StyleConstants.Background));
+    }
+
+    @Test
+    public void testFoldedRunBecomesOnePlaceholderRow() throws Exception {
+        List<DiffUtils.Diff> diffs = DiffUtils.fold(
+                DiffUtils.diff(Arrays.asList("a", "b", "c", "d"), Arrays.asList("a", "b", "c", "x")), 1);
+        DiffDocumentBuilder.Result result = build(diffs);
+
+        String text = result.leftDocument.getText(0, result.leftDocument.getLength());
+        assertEquals(DiffDocumentBuilder.foldedLabel(2) + "\nc\nd\n", text);
+        assertArrayEquals(new int[] { 0, 3, 4 }, result.leftLineNumbers);
+        assertEquals(Integer.valueOf(0), result.foldedBlockByRow.get(0));
+        assertEquals(1, result.foldedBlockByRow.size());
+    }
+
+    @Test
+    public void testPartialBuildMapsRowsToParagraphs() throws Exception {
+        JTextPane textPane = new JTextPane();
+        textPane.setSize(120, 100);
+        Font font = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+        DiffDocumentBuilder builder = new DiffDocumentBuilder(new LineWrapper(textPane), new LineWrapper(textPane), font);
+        List<String> lines = Arrays.asList("one", "two words that wrap around the narrow pane", "three", "four");
+        DiffRows rows = new DiffRows(DiffUtils.diff(lines, lines));
+
+        DiffDocumentBuilder.Result full = builder.build(rows, 0, Integer.MAX_VALUE);
+        DiffDocumentBuilder.Result head = builder.build(rows, 1, 2);
+
+        assertTrue(full.paragraphOfRow(2) - full.paragraphOfRow(1) > 1); // row 1 wraps
+        assertEquals(1, full.rowAtParagraph(full.paragraphOfRow(1) + 1)); // continuation of row 1
+        assertEquals(2, head.leftLineNumbers[0]);
+        assertEquals(0, head.paragraphOfRow(1));
+        assertEquals(-1, head.paragraphOfRow(0));
+        assertEquals(3, head.leftLineNumbers[head.paragraphOfRow(2)]);
+        assertEquals(-1, head.paragraphOfRow(3));
+    }
+
+    @Test
+    public void testAppliesFontToDefaultStyle() {
+        DiffDocumentBuilder.Result result = build(Arrays.asList("a"), Arrays.asList("b"));
+
+        Font font = result.leftDocument.getFont(attributesOfRow(result.leftDocument, 0));
+        assertEquals(Font.MONOSPACED, font.getFamily());
+        assertEquals(12, font.getSize());
+    }
+
+    private static AttributeSet attributesOfRow(StyledDocument document, int row) {
+        Element paragraph = document.getDefaultRootElement().getElement(row);
+        return paragraph.getElement(0).getAttributes();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class DiffRowsTest {
+
+    @Test
+    public void testRowsAndLineNumbers() {
+        // a | b c | d   ->   a | x | d e
+        List<DiffUtils.Diff> diffs = DiffUtils.diff(Arrays.asList("a", "b", "c", "d"), Arrays.asList("a", "x", "d", "e"));
+        DiffRows rows = new DiffRows(diffs);
+
+        assertEquals(5, rows.getRowCount());
+        assertEquals(DiffRows.countRows(diffs), rows.getRowCount());
+
+        assertEquals(DiffUtils.DiffType.CHANGE, rows.getType(2));
+        assertEquals("c", rows.getLeftText(2));
+        assertNull(rows.getRightText(2));
+        assertEquals(3, rows.getLeftLineNumber(2));
+        assertEquals(0, rows.getRightLineNumber(2));
+
+        assertEquals("d", rows.getRightText(3));
+        assertEquals(4, rows.getLeftLineNumber(3));
+        assertEquals(3, rows.getRightLineNumber(3));
+
+        assertEquals(DiffUtils.DiffType.INSERT, rows.getType(4));
+        assertNull(rows.getLeftText(4));
+        assertEquals("e", rows.getRightText(4));
+        assertEquals(4, rows.getRightLineNumber(4));
+        assertEquals(4, rows.getMaxLineNumber());
+    }
+
+    @Test
+    public void testFoldedBlockTakesOneRow() {
+        List<String> oldLines = Arrays.asList("a", "b", "c", "d", "e", "f");
+        List<String> newLines = Arrays.asList("a", "b", "c", "d", "e", "x");
+        DiffRows rows = new DiffRows(DiffUtils.fold(DiffUtils.diff(oldLines, newLines), 1));
+
+        assertEquals(3, rows.getRowCount());
+        assertEquals(DiffUtils.DiffType.FOLDED, rows.getType(0));
+        assertEquals(4, rows.getFoldedLineCount(0));
+        assertEquals(0, rows.getLeftLineNumber(0));
+        assertNull(rows.getLeftText(0));
+        assertEquals(0, rows.getBlockIndex(0));
+        assertEquals(5, rows.getLeftLineNumber(1));
+        assertEquals(6, rows.getRightLineNumber(2));
+    }
+
+    @Test
+    public void testFindRowWrapsAroundAndSkipsPlaceholders() {
+        List<String> oldLines = Arrays.asList("x", "foo", "a", "b", "c", "d", "foo");
+        List<String> newLines = Arrays.asList("y", "foo", "a", "b", "c", "d", "bar");
+        DiffRows rows = new DiffRows(DiffUtils.fold(DiffUtils.diff(oldLines, newLines), 1));
+        Pattern foo = Pattern.compile("foo");
+
+        // x/y | foo | (a b c) | d | foo/bar
+        assertEquals(5, rows.getRowCount());
+        assertEquals(1, rows.findRow(foo, 0, true));
+        assertEquals(4, rows.findRow(foo, 2, true));
+        assertEquals(1, rows.findRow(foo, 3, false));
+        assertEquals(4, rows.findRow(foo, 0, false));
+        assertEquals(1, rows.findRow(foo, 5, true));
+        assertEquals(4, rows.findRow(Pattern.compile("bar"), 0, true));
+        assertEquals(-1, rows.findRow(Pattern.compile("c"), 0, true));
+    }
+
+    @Test
+    public void testFindRowStopsWhenInterruptedInsideAMatch() throws InterruptedException {
+        DiffRows rows = new DiffRows(DiffUtils.diff(Arrays.asList("a".repeat(64)), Arrays.asList("b")));
+        Thread searcher = Thread.currentThread();
+        Thread interrupter = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            searcher.interrupt();
+        });
+        interrupter.start();
+        try {
+            // the back reference makes this backtrack for ages on the 64 a's
+            rows.findRow(Pattern.compile("(a+)+\\1b"), 0, true);
+            fail("expected CancellationException");
+        } catch (CancellationException e) {
+            // expected
+        } finally {
+            interrupter.join();
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testFindMatchesReturnsOffsetPairs() {
+        assertArrayEquals(new int[] {1, 3, 5, 7}, DiffRows.findMatches(Pattern.compile("ab"), "xab\tyab"));
+        assertArrayEquals(new int[0], DiffRows.findMatches(Pattern.compile("ab"), "none"));
+        assertArrayEquals(new int[0], DiffRows.findMatches(Pattern.compile("ab"), null));
+
+        int[] many = DiffRows.findMatches(Pattern.compile("a"), "a".repeat(100));
+        assertEquals(200, many.length);
+        assertEquals(99, many[198]);
+    }
+
+    @Test
+    public void testEmptyDiff() {
+        DiffRows rows = new DiffRows(Collections.emptyList());
+        assertEquals(0, rows.getRowCount());
+        assertEquals(0, rows.getMaxLineNumber());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRowOutOfRange() {
+        new DiffRows(DiffUtils.diff(Arrays.asList("a"), Arrays.asList("a"))).getType(1);
+    }
+}
@@ -7,6 +7,9 @@ package jp.hatano.gitfilehistory;
 
 import org.junit.Test;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -85,4 +88,174 @@ public class DiffUtilsTest {
         assertEquals(DiffUtils.DiffType.EQUAL, diffs.get(2).type);
         assertEquals(Arrays.asList("line3"), diffs.get(2).lines);
     }
-}
\ No newline at end of file
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] uniqueLines(String prefix, int count) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            content.append(prefix).append(' ').append(i).append('\n');
+        }
+        return bytes(content.toString());
+    }
+
+    @Test
+    public void testByteDiffWithEachAlgorithm() {
+        byte[] oldContent = bytes("line1\nold\nline3\nline4\n");
+        byte[] newContent = bytes("line1\nnew\nline3\n");
+
+        for (DiffUtils.Algorithm algorithm : DiffUtils.Algorithm.values()) {
+            List<DiffUtils.Diff> diffs = DiffUtils.diff(oldContent, newContent, StandardCharsets.UTF_8, algorithm, 1000);
+
+            assertEquals(algorithm.name(), 4, diffs.size());
+            assertEquals(DiffUtils.DiffType.EQUAL, diffs.get(0).type);
+            assertEquals(Arrays.asList("line1"), diffs.get(0).lines);
+            assertEquals(DiffUtils.DiffType.CHANGE, diffs.get(1).type);
+            assertEquals(Arrays.asList("old"), diffs.get(1).oldLines);
+            assertEquals(Arrays.asList("new"), diffs.get(1).newLines);
+            assertEquals(DiffUtils.DiffType.EQUAL, diffs.get(2).type);
+            assertEquals(DiffUtils.DiffType.DELETE, diffs.get(3).type);
+            assertEquals(Arrays.asList("line4"), diffs.get(3).lines);
+        }
+    }
+
+    @Test
+    public void testByteDiffIgnoresLineEndings() {
+        List<DiffUtils.Diff> diffs = DiffUtils.diff(bytes("a\r\nb\r\n"), bytes("a\nb"), StandardCharsets.UTF_8);
+
+        assertEquals(1, diffs.size());
+        assertEquals(DiffUtils.DiffType.EQUAL, diffs.get(0).type);
+        assertEquals(Arrays.asList("a", "b"), diffs.get(0).lines);
+        assertFalse(DiffUtils.hasChanges(diffs));
+    }
+
+    @Test
+    public void testByteDiffDecodesWithCharset() {
+        Charset sjis = Charset.forName("Shift_JIS");
+        List<DiffUtils.Diff> diffs = DiffUtils.diff("日本\n".getBytes(sjis), "日本語\n".getBytes(sjis), sjis);
+
+        assertEquals(1, diffs.size());
+        assertEquals(Arrays.asList("日本"), diffs.get(0).oldLines);
+        assertEquals(Arrays.asList("日本語"), diffs.get(0).newLines);
+    }
+
+    @Test
+    public void testCoarseDiffKeepsCommonHeadAndTail() {
+        List<String> oldLines = Arrays.asList("a", "b", "c", "d");
+        List<String> newLines = Arrays.asList("a", "x", "y", "d");
+        LineInterner interner = new LineInterner();
+        IntSequence oldIds = interner.intern(oldLines);
+        IntSequence newIds = interner.intern(newLines);
+
+        List<DiffUtils.Diff> diffs = DiffUtils.toDiffs(DiffUtils.coarseDiff(oldIds, newIds), oldLines, newLines);
+
+        assertEquals(3, diffs.size());
+        assertEquals(DiffUtils.DiffType.CHANGE, diffs.get(1).type);
+        assertEquals(Arrays.asList("b", "c"), diffs.get(1).oldLines);
+        assertEquals(Arrays.asList("x", "y"), diffs.get(1).newLines);
+    }
+
+    @Test
+    public void testComparisonLimitFallsBackToCoarseDiff() {
+        StringBuilder oldContent = new StringBuilder();
+        StringBuilder newContent = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            oldContent.append(i % 7).append('\n');
+            newContent.append(i % 5).append('\n');
+        }
+        byte[] oldBytes = oldContent.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] newBytes = newContent.toString().getBytes(StandardCharsets.UTF_8);
+
+        DiffUtils.Stats stats = new DiffUtils.Stats();
+        List<DiffUtils.Diff> diffs = DiffUtils.diff(oldBytes, newBytes, StandardCharsets.UTF_8, DiffUtils.Algorithm.MYERS,
+                new DiffUtils.Deadline(60_000, 4096), stats);
+
+        assertTrue(stats.isOverBudget());
+        assertFalse(stats.isTimedOut());
+        assertEquals(1, stats.getEdits());
+        assertTrue(DiffUtils.hasChanges(diffs));
+
+        DiffUtils.diff(oldBytes, newBytes, StandardCharsets.UTF_8, DiffUtils.Algorithm.MYERS, 60_000, stats);
+        assertFalse(stats.isOverBudget());
+        assertTrue(stats.getEdits() > 1);
+    }
+
+    @Test
+    public void testLimitsApplyToUniqueLines() {
+        byte[] oldBytes = uniqueLines("old", 20_000);
+        byte[] newBytes = uniqueLines("new", 20_000);
+
+        DiffUtils.Stats stats = new DiffUtils.Stats();
+        List<DiffUtils.Diff> diffs = DiffUtils.diff(oldBytes, newBytes, StandardCharsets.UTF_8, DiffUtils.Algorithm.MYERS,
+                new DiffUtils.Deadline(60_000, 4096), stats);
+        assertTrue(stats.isOverBudget());
+        assertEquals(1, diffs.size());
+        assertEquals(DiffUtils.DiffType.CHANGE, diffs.get(0).type);
+
+        long start = System.nanoTime();
+        DiffUtils.diff(oldBytes, newBytes, StandardCharsets.UTF_8, DiffUtils.Algorithm.MYERS,
+                new DiffUtils.Deadline(100, Long.MAX_VALUE), stats);
+        assertTrue(stats.isTimedOut());
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+    }
+
+    @Test
+    public void testHistogramFallbackHonoursComparisonLimit() {
+        StringBuilder oldContent = new StringBuilder();
+        StringBuilder newContent = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            oldContent.append("a\n");
+            newContent.append(i == 1000 ? "a\n" : "b\n");
+        }
+
+        // the shared line repeats beyond the chain length, so histogram hands the region to Myers
+        DiffUtils.Stats stats = new DiffUtils.Stats();
+        DiffUtils.diff(oldContent.toString().getBytes(StandardCharsets.UTF_8),
+                newContent.toString().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8,
+                DiffUtils.Algorithm.HISTOGRAM, new DiffUtils.Deadline(60_000, 4096), stats);
+
+        assertEquals(DiffUtils.Algorithm.HISTOGRAM, stats.getAlgorithm());
+        assertTrue(stats.isOverBudget());
+    }
+
+    @Test
+    public void testFoldKeepsContextAroundChanges() {
+        List<String> oldLines = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            oldLines.add("line " + i);
+        }
+        List<String> newLines = new ArrayList<>(oldLines);
+        newLines.set(9, "changed");
+
+        List<DiffUtils.Diff> folded = DiffUtils.fold(DiffUtils.diff(oldLines, newLines), 2);
+
+        List<DiffUtils.DiffType> types = new ArrayList<>();
+        folded.forEach(diff -> types.add(diff.type));
+        assertEquals(Arrays.asList(DiffUtils.DiffType.FOLDED, DiffUtils.DiffType.EQUAL, DiffUtils.DiffType.CHANGE,
+                DiffUtils.DiffType.EQUAL, DiffUtils.DiffType.FOLDED), types);
+        assertEquals(7, folded.get(0).lines.size());
+        assertEquals(Arrays.asList("line 8", "line 9"), folded.get(1).lines);
+        assertEquals(Arrays.asList("line 11", "line 12"), folded.get(3).lines);
+        assertEquals(8, folded.get(4).lines.size());
+        assertTrue(DiffUtils.hasChanges(folded));
+    }
+
+    @Test
+    public void testFoldLeavesShortRunsAndExpandRestoresLines() {
+        List<String> oldLines = Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h");
+        List<String> newLines = Arrays.asList("a", "b", "c", "d", "e", "f", "g", "x");
+
+        List<DiffUtils.Diff> folded = DiffUtils.fold(DiffUtils.diff(oldLines, newLines), 6);
+        assertEquals(2, folded.size());
+        assertEquals(DiffUtils.DiffType.EQUAL, folded.get(0).type);
+
+        folded = DiffUtils.fold(DiffUtils.diff(oldLines, newLines), 3);
+        assertEquals(DiffUtils.DiffType.FOLDED, folded.get(0).type);
+        List<DiffUtils.Diff> expanded = DiffUtils.expand(folded, 0);
+        assertEquals(DiffUtils.DiffType.EQUAL, expanded.get(0).type);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), expanded.get(0).lines);
+        assertEquals(DiffUtils.DiffType.FOLDED, folded.get(0).type); // the input is left alone
+    }
+}
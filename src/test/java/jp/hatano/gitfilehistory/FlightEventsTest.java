@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class FlightEventsTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testBundledSettingsRecordGitAndDiffEvents() throws Exception {
+        File repoDir = tempFolder.newFolder("repo");
+        new SyntheticRepoGenerator(new SyntheticRepoGenerator.Spec().commits(5).fileLines(200)).generate(repoDir);
+        Configuration configuration;
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream("/gitfilehistory.jfc"),
+                StandardCharsets.UTF_8)) {
+            configuration = Configuration.create(reader);
+        }
+        Path output = tempFolder.getRoot().toPath().resolve("test.jfr");
+        int oldLines;
+        List<CommitInfo> commits;
+
+        try (Recording recording = new Recording(configuration)) {
+            // the diff and file reads of this small repository are below the bundled thresholds
+            recording.enable(FlightEvents.PREFIX + "FileRead").withoutThreshold();
+            recording.enable(FlightEvents.PREFIX + "Diff").withoutThreshold();
+            recording.start();
+            try (GitService service = new GitService(repoDir)) {
+                commits = service.loadCommitsForFile("src/Main.java", "UTF-8");
+                oldLines = service.getFileContent(commits.get(1), "src/Main.java", "UTF-8").split("\n", -1).length - 1;
+                DiffLoader loader = new DiffLoader(service, new DiffCache(), null);
+                loader.load(commits.get(1), commits.get(0), "src/Main.java", "UTF-8", DiffUtils.Algorithm.MYERS);
+                loader.load(commits.get(1), commits.get(0), "src/Main.java", "UTF-8", DiffUtils.Algorithm.MYERS);
+                service.generatePatch(commits.get(1), commits.get(0), "src/Main.java");
+            }
+            recording.stop();
+            recording.dump(output);
+        }
+
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(output).stream()
+                .filter(event -> event.getEventType().getName().startsWith(FlightEvents.PREFIX))
+                .collect(Collectors.toList());
+        Map<String, RecordedEvent> events = recorded.stream()
+                .collect(Collectors.toMap(event -> event.getEventType().getName(), Function.identity(), (a, b) -> a));
+
+        RecordedEvent history = events.get(FlightEvents.PREFIX + "HistoryLoad");
+        assertNotNull(history);
+        assertEquals("src/Main.java", history.getString("path"));
+        assertEquals(repoDir.getAbsolutePath(), history.getString("repository"));
+        assertEquals(5, history.getInt("commits"));
+
+        RecordedEvent read = events.get(FlightEvents.PREFIX + "FileRead");
+        assertNotNull(read);
+        assertEquals(40, read.getString("commit").length());
+        assertTrue(read.getLong("bytes") > 0);
+
+        List<RecordedEvent> diffs = recorded.stream()
+                .filter(event -> event.getEventType().getName().equals(FlightEvents.PREFIX + "Diff"))
+                .collect(Collectors.toList());
+        assertEquals(2, diffs.size());
+        RecordedEvent diff = diffs.get(0);
+        assertEquals("src/Main.java", diff.getString("path"));
+        assertEquals(commits.get(1).getCommit().getName(), diff.getString("oldCommit"));
+        assertEquals(commits.get(0).getCommit().getName(), diff.getString("newCommit"));
+        assertEquals(40, diff.getString("newBlob").length());
+        assertFalse(diff.getBoolean("cacheHit"));
+        assertEquals("MYERS", diff.getString("algorithm"));
+        assertEquals(oldLines, diff.getInt("oldLines"));
+        assertTrue(diff.getInt("edits") > 0);
+        assertFalse(diff.getBoolean("timedOut"));
+        RecordedEvent hit = diffs.get(1);
+        assertTrue(hit.getBoolean("cacheHit"));
+        assertEquals(diff.getString("newBlob"), hit.getString("newBlob"));
+
+        RecordedEvent patch = events.get(FlightEvents.PREFIX + "PatchGenerate");
+        assertNotNull(patch);
+        assertTrue(patch.getLong("bytes") > 0);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GitFileHistoryCliTest {
+
+    @Rule
+    public TestRepository repo = new TestRepository();
+
+    private ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private String run(int expectedStatus, String... args) {
+        List<String> all = new ArrayList<>(Arrays.asList("-C", repo.getDirectory().getPath()));
+        all.addAll(Arrays.asList(args));
+        StringWriter out = new StringWriter();
+        int status = GitFileHistoryCli.run(all.toArray(new String[0]), out, new PrintStream(err, true));
+        assertEquals(err.toString(), expectedStatus, status);
+        return out.toString();
+    }
+
+    @Test
+    public void testLogPrintsJsonLinesNewestFirst() throws Exception {
+        RevCommit first = repo.commitFile("a.txt", "one\n", "first \"quoted\"");
+        RevCommit second = repo.commitFile("a.txt", "one\ntwo\n", "second");
+
+        String[] lines = run(0, "log", "a.txt").split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"hash\":\"" + second.getId().name() + "\""));
+        assertTrue(lines[0].contains("\"branches\":[\"master\"]"));
+        assertTrue(lines[1].contains("\"message\":\"first \\\"quoted\\\"\""));
+        assertTrue(lines[1].contains("\"time\":" + first.getAuthorIdent().getWhenAsInstant().getEpochSecond()));
+        assertEquals(1, run(0, "log", "-n", "1", "a.txt").split("\n").length);
+    }
+
+    @Test
+    public void testUnifiedDiffMatchesGitHunks() throws Exception {
+        StringBuilder oldText = new StringBuilder();
+        StringBuilder newText = new StringBuilder();
+        for (int i = 1; i <= 20; i++) {
+            oldText.append("line ").append(i).append('\n');
+            newText.append(i == 2 ? "two" : i == 15 ? "fifteen" : "line " + i).append('\n');
+        }
+        repo.commitFile("a.txt", oldText.toString(), "first");
+        repo.commitFile("a.txt", newText.toString(), "second");
+
+        String diff = run(0, "diff", "a.txt", "HEAD~1", "HEAD");
+
+        String expected = "--- a/a.txt\n+++ b/a.txt\n"
+                + "@@ -1,5 +1,5 @@\n line 1\n-line 2\n+two\n line 3\n line 4\n line 5\n"
+                + "@@ -12,7 +12,7 @@\n line 12\n line 13\n line 14\n-line 15\n+fifteen\n line 16\n line 17\n line 18\n";
+        assertEquals(expected, diff);
+        assertEquals("--- a/a.txt\n+++ b/a.txt\n@@ -2 +2 @@\n-line 2\n+two\n@@ -15 +15 @@\n-line 15\n+fifteen\n",
+                run(0, "diff", "--context", "0", "a.txt", "HEAD~1", "HEAD"));
+        assertEquals("", run(0, "diff", "a.txt", "HEAD", "WORKTREE"));
+    }
+
+    @Test
+    public void testSideBySideAndPatchAndHtml() throws Exception {
+        repo.commitFile("a.txt", "keep\nold\n", "first");
+        repo.writeFile("a.txt", "keep\nnew\nadded\n");
+
+        String sideBySide = run(0, "diff", "--side-by-side", "--width", "40", "a.txt", "HEAD");
+        String[] rows = sideBySide.split("\n");
+        assertEquals(3, rows.length);
+        assertTrue(rows[0].matches("1 keep +1 keep"));
+        assertTrue(rows[1].matches("2 old + \\| 2 new"));
+        assertTrue(rows[2].matches(" +> 3 added"));
+
+        assertTrue(run(0, "patch", "a.txt", "HEAD").contains("+added"));
+        String html = run(0, "html", "a.txt", "HEAD", "WORKTREE");
+        assertTrue(html.startsWith("<!DOCTYPE html>"));
+        assertTrue(html.contains("Uncommitted Changes"));
+    }
+
+    @Test
+    public void testErrorsAndUsage() throws Exception {
+        repo.commitFile("a.txt", "one\n", "first");
+
+        assertEquals("", run(2, "frobnicate"));
+        assertEquals("", run(2, "diff", "a.txt"));
+        assertEquals("", run(2, "diff", "--page-rows", "10", "a.txt", "HEAD"));
+        assertEquals("", run(1, "diff", "a.txt", "no-such-revision"));
+        assertTrue(err.toString().contains("Unknown revision: no-such-revision"));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GitServiceTest {
+
+    @Rule
+    public TestRepository repo = new TestRepository();
+
+    @Test
+    public void testLoadCommitsForFileDecoratesBranches() throws Exception {
+        RevCommit base = repo.commitFile("a.txt", "one\n", "base");
+        repo.git().branchCreate().setName("feature").call();
+        repo.commitFile("b.txt", "other\n", "unrelated");
+        repo.git().checkout().setName("feature").call();
+        RevCommit featureChange = repo.commitFile("a.txt", "one\ntwo\n", "feature change");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+
+            assertEquals(2, commits.size());
+            assertEquals(featureChange.getId(), commits.get(0).getCommit().getId());
+            assertEquals(Arrays.asList("feature"), commits.get(0).branchNames);
+            assertEquals(base.getId(), commits.get(1).getCommit().getId());
+            assertEquals(Arrays.asList("feature", "master"), commits.get(1).branchNames);
+        }
+    }
+
+    @Test
+    public void testLoadCommitsForFileAddsUncommittedChanges() throws Exception {
+        repo.commitFile("a.txt", "one\n", "base");
+        repo.writeFile("a.txt", "edited\n");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+
+            assertEquals(2, commits.size());
+            assertTrue(commits.get(0).isUncommitted());
+            assertEquals("edited\n", service.getFileContent(commits.get(0), "a.txt", "UTF-8"));
+            assertEquals("one\n", service.getFileContent(commits.get(1), "a.txt", "UTF-8"));
+        }
+    }
+
+    @Test
+    public void testLoadCommitsForFileStreamsBatchesNewestFirst() throws Exception {
+        List<RevCommit> expected = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            expected.add(0, repo.commitFile("a.txt", "rev " + i + "\n", "rev " + i));
+        }
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<List<CommitInfo>> batches = new ArrayList<>();
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8", batches::add);
+
+            assertTrue(batches.size() > 1);
+            List<CommitInfo> streamed = new ArrayList<>();
+            batches.forEach(streamed::addAll);
+            assertEquals(commits, streamed);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getId(), streamed.get(i).getCommit().getId());
+            }
+        }
+    }
+
+    @Test
+    public void testBlameAttributesLinesToTheirLastChange() throws Exception {
+        RevCommit first = repo.commitFile("a.txt", "one\ntwo\nthree\n", "first");
+        RevCommit second = repo.commitFile("a.txt", "one\nTWO\nthree\nfour\n", "second");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+            int[] reported = new int[4];
+            Blame blame = service.blame(commits.get(0), "a.txt", (start, end) -> Arrays.fill(reported, start, end, 1));
+
+            assertTrue(blame.isComplete());
+            assertEquals(4, blame.getLineCount());
+            assertEquals(first.getId(), blame.getCommit(0).getCommit().getId());
+            assertEquals(second.getId(), blame.getCommit(1).getCommit().getId());
+            assertEquals(first.getId(), blame.getCommit(2).getCommit().getId());
+            assertEquals(second.getId(), blame.getCommit(3).getCommit().getId());
+            assertEquals("Tester", blame.getCommit(1).author);
+            assertEquals("TWO", blame.lines(StandardCharsets.UTF_8).get(1));
+            assertArrayEquals(new int[] {1, 1, 1, 1}, reported);
+        }
+    }
+
+    @Test
+    public void testBlameReusesTheCachedBlameOfAnOlderRevision() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            content.append("line ").append(i).append('\n');
+            repo.commitFile("a.txt", content.toString(), "add line " + i);
+            repo.commitFile("b.txt", "unrelated " + i + "\n", "unrelated " + i);
+        }
+
+        try (GitService service = new GitService(repo.getDirectory());
+             GitService uncached = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+            service.blame(commits.get(1), "a.txt", (start, end) -> { });
+            assertEquals(1, service.getBlameCache().size());
+
+            long hits = Metrics.counter("blame.cacheHits").get();
+            Blame blame = service.blame(commits.get(0), "a.txt", (start, end) -> { });
+            assertTrue(Metrics.counter("blame.cacheHits").get() > hits);
+            assertEquals(2, service.getBlameCache().size());
+
+            Blame expected = uncached.blame(commits.get(0), "a.txt", (start, end) -> { });
+            for (int line = 0; line < expected.getLineCount(); line++) {
+                assertEquals(expected.getCommit(line), blame.getCommit(line));
+                assertEquals(commits.get(commits.size() - 1 - line), blame.getCommit(line));
+            }
+        }
+    }
+
+    @Test
+    public void testBlameOfWorkingTreeAttributesEditedLinesToIt() throws Exception {
+        RevCommit base = repo.commitFile("a.txt", "one\ntwo\n", "base");
+        repo.writeFile("a.txt", "one\nedited\n");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            CommitInfo worktree = service.resolveCommit(GitService.WORKTREE);
+            Blame blame = service.blame(worktree, "a.txt", (start, end) -> { });
+
+            assertEquals(base.getId(), blame.getCommit(0).getCommit().getId());
+            assertTrue(blame.getCommit(1).isUncommitted());
+            assertEquals(0, service.getBlameCache().size());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HistoryIndexTest {
+
+    @Rule
+    public TestRepository repo = new TestRepository();
+
+    private HistoryIndex index;
+
+    @Before
+    public void setUp() {
+        index = new HistoryIndex(repo.git().getRepository(), repo.git());
+    }
+
+    private List<RevCommit> load(String path) throws Exception {
+        return index.load(path, repo.git().branchList().call());
+    }
+
+    @Test
+    public void testIndexIsWrittenAndReused() throws Exception {
+        RevCommit first = repo.commitFile("a.txt", "1");
+        repo.commitFile("b.txt", "x");
+        RevCommit second = repo.commitFile("a.txt", "2");
+
+        assertEquals(Arrays.asList(second, first), load("a.txt"));
+        File[] files = new File(repo.git().getRepository().getDirectory(), "gitfilehistory/history").listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+
+        assertEquals(Arrays.asList(second, first), load("a.txt"));
+    }
+
+    @Test
+    public void testIncrementalUpdateAddsNewCommits() throws Exception {
+        RevCommit first = repo.commitFile("a.txt", "1");
+        assertEquals(Arrays.asList(first), load("a.txt"));
+
+        repo.git().branchCreate().setName("feature").call();
+        RevCommit second = repo.commitFile("a.txt", "2");
+        repo.git().checkout().setName("feature").call();
+        RevCommit third = repo.commitFile("a.txt", "3");
+
+        assertEquals(Arrays.asList(third, second, first), load("a.txt"));
+    }
+
+    @Test
+    public void testRewrittenBranchDropsUnreachableCommits() throws Exception {
+        RevCommit first = repo.commitFile("a.txt", "1");
+        RevCommit second = repo.commitFile("a.txt", "2");
+        assertEquals(Arrays.asList(second, first), load("a.txt"));
+
+        repo.git().reset().setMode(ResetCommand.ResetType.HARD).setRef(first.name()).call();
+        RevCommit replacement = repo.commitFile("a.txt", "2'");
+
+        List<RevCommit> commits = new ArrayList<>(load("a.txt"));
+        assertEquals(Arrays.asList(replacement, first), commits);
+    }
+
+    @Test
+    public void testMissingIndexedCommitRebuildsWithoutDuplicates() throws Exception {
+        RevCommit first = repo.commitFile("a.txt", "1");
+        RevCommit second = repo.commitFile("a.txt", "2");
+        load("a.txt");
+        File[] files = new File(repo.git().getRepository().getDirectory(), "gitfilehistory/history").listFiles();
+        assertNotNull(files);
+        // an indexed commit that has since been pruned, listed after commits that still parse
+        Files.write(files[0].toPath(), ("commit " + "ab".repeat(20) + " 0\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        List<RevCommit> streamed = new ArrayList<>();
+        List<RevCommit> commits = index.load("a.txt", repo.git().branchList().call(), streamed::add);
+
+        assertEquals(Arrays.asList(second, first), commits);
+        assertEquals(Arrays.asList(second, first), streamed);
+        assertEquals(Arrays.asList(second, first), load("a.txt"));
+    }
+
+    @Test
+    public void testMergeHidingIndexedCommitsMatchesFreshWalk() throws Exception {
+        RevCommit created = repo.commitFile("f.txt", "1", "A");
+        repo.git().branchCreate().setName("side").call();
+        repo.commitFile("g.txt", "x", "B");
+        repo.git().checkout().setName("side").call();
+        RevCommit sideChange = repo.commitFile("f.txt", "2", "C");
+        assertEquals(Arrays.asList(sideChange, created), load("f.txt"));
+
+        // the merge keeps master's f.txt, so a path-limited walk no longer reaches C
+        repo.git().checkout().setName("master").call();
+        repo.git().merge().include(sideChange).setStrategy(MergeStrategy.OURS).setMessage("merge side").call();
+        repo.git().branchDelete().setBranchNames("side").setForce(true).call();
+        List<RevCommit> incremental = load("f.txt");
+
+        FileUtils.delete(new File(repo.git().getRepository().getDirectory(), "gitfilehistory"), FileUtils.RECURSIVE);
+        List<RevCommit> fresh = load("f.txt");
+
+        assertEquals(Arrays.asList(created), fresh);
+        assertEquals(fresh, incremental);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class HistorySearchTest {
+
+    @Rule
+    public TestRepository repo = new TestRepository();
+
+    @Test
+    public void testReportsCommitsChangingTheMatchCount() throws Exception {
+        RevCommit created = repo.commitFile("a.txt", "alpha\n", "create");
+        RevCommit added = repo.commitFile("a.txt", "alpha\nneedle\n", "add needle");
+        repo.commitFile("a.txt", "alpha\nneedle\nbeta\n", "unrelated edit");
+        RevCommit doubled = repo.commitFile("a.txt", "needle\nneedle\nbeta\n", "second needle");
+        repo.commitFile("a.txt", "alpha\nneedle\nbeta\n", "back to one needle");
+        RevCommit removed = repo.commitFile("a.txt", "alpha\nneedle\nbeta\n".replace("needle", "thread"), "remove needle");
+        // same content as an earlier revision; its blob is scanned only once
+        RevCommit readded = repo.commitFile("a.txt", "alpha\nneedle\nbeta\n", "re-add needle");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+            assertEquals(7, commits.size());
+
+            List<HistorySearch.Hit> hits = Collections.synchronizedList(new ArrayList<>());
+            int[] lastProgress = new int[2];
+            int blobs = new HistorySearch(service, "a.txt", "UTF-8").search(commits, Pattern.compile("needle"),
+                    new HistorySearch.Listener() {
+                        @Override
+                        public void hit(HistorySearch.Hit hit) {
+                            hits.add(hit);
+                        }
+
+                        @Override
+                        public void progress(int scanned, int total) {
+                            lastProgress[0] = scanned;
+                            lastProgress[1] = total;
+                        }
+                    });
+
+            assertEquals(5, blobs);
+            assertArrayEquals(new int[] {7, 7}, lastProgress);
+            hits.sort((h1, h2) -> Integer.compare(h1.index, h2.index));
+            assertEquals(5, hits.size());
+
+            assertEquals(readded.getId(), hits.get(0).commit.getCommit().getId());
+            assertTrue(hits.get(0).isIntroduction());
+            assertEquals(removed.getId(), hits.get(1).commit.getCommit().getId());
+            assertFalse(hits.get(1).isIntroduction());
+            assertEquals(1, hits.get(1).matchesBefore);
+            assertEquals(0, hits.get(1).matchesAfter);
+            // "back to one needle" removes one of two
+            assertEquals(1, hits.get(2).matchesAfter);
+            assertEquals(doubled.getId(), hits.get(3).commit.getCommit().getId());
+            assertEquals(2, hits.get(3).matchesAfter);
+            assertEquals(added.getId(), hits.get(4).commit.getCommit().getId());
+            assertNotEquals(created.getId(), hits.get(hits.size() - 1).commit.getCommit().getId());
+        }
+    }
+
+    @Test
+    public void testComparesEachCommitWithItsParentAcrossBranches() throws Exception {
+        RevCommit base = repo.commitFile("a.txt", "alpha\n", "base");
+        repo.git().branchCreate().setName("feature").setStartPoint(base).call();
+        repo.git().checkout().setName("feature").call();
+        RevCommit added = repo.commitFile("a.txt", "alpha\nneedle\n", "add needle on feature");
+        repo.git().checkout().setName("master").call();
+        repo.commitFile("a.txt", "alpha\nbeta\n", "edit on master");
+        repo.git().checkout().setName("feature").call();
+        repo.commitFile("a.txt", "alpha\nneedle\ngamma\n", "edit on feature");
+        repo.git().checkout().setName("master").call();
+        repo.commitFile("a.txt", "alpha\nbeta\ndelta\n", "edit on master again");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            // newest first, so the list alternates between the two branches
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+            assertEquals(5, commits.size());
+
+            List<HistorySearch.Hit> hits = Collections.synchronizedList(new ArrayList<>());
+            new HistorySearch(service, "a.txt", "UTF-8").search(commits, Pattern.compile("needle"),
+                    new HistorySearch.Listener() {
+                        @Override
+                        public void hit(HistorySearch.Hit hit) {
+                            hits.add(hit);
+                        }
+
+                        @Override
+                        public void progress(int scanned, int total) {
+                        }
+                    });
+
+            assertEquals(1, hits.size());
+            assertEquals(added.getId(), hits.get(0).commit.getCommit().getId());
+            assertEquals(base.getId(), hits.get(0).parentId);
+            assertEquals(0, hits.get(0).matchesBefore);
+            assertEquals(1, hits.get(0).matchesAfter);
+        }
+    }
+
+    @Test
+    public void testInterruptStopsSlowRegexInsideOneMatch() throws Exception {
+        // the back reference keeps this backtracking exponentially and it never finds a match,
+        // so only the character reads can notice the interrupt
+        repo.commitFile("a.txt", "a".repeat(64) + "\n", "slow");
+
+        try (GitService service = new GitService(repo.getDirectory())) {
+            List<CommitInfo> commits = service.loadCommitsForFile("a.txt", "UTF-8");
+            Throwable[] thrown = new Throwable[1];
+            Thread searcher = new Thread(() -> {
+                try {
+                    new HistorySearch(service, "a.txt", "UTF-8").search(commits, Pattern.compile("(a+)+\\1b"),
+                            new HistorySearch.Listener() {
+                                @Override
+                                public void hit(HistorySearch.Hit hit) {
+                                }
+
+                                @Override
+                                public void progress(int scanned, int total) {
+                                }
+                            });
+                } catch (Throwable e) {
+                    thrown[0] = e;
+                }
+            });
+            searcher.start();
+            Thread.sleep(200);
+            searcher.interrupt();
+            searcher.join(5_000);
+
+            assertFalse(searcher.isAlive());
+            assertTrue(thrown[0] instanceof InterruptedException);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (searchThreadsAlive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertFalse("the pool thread is still matching", searchThreadsAlive());
+        }
+    }
+
+    private static boolean searchThreadsAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().startsWith("history-search-") && thread.isAlive());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HtmlReportWriterTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testEscapeToWriterMatchesEscapeHtml() throws Exception {
+        String text = "a<b>&\"c\"'d' plain";
+        StringWriter out = new StringWriter();
+        HtmlReportWriter.escapeHtml(out, text);
+        assertEquals(HtmlReportWriter.escapeHtml(text), out.toString());
+    }
+
+    @Test
+    public void testSingleFileReport() throws Exception {
+        List<DiffUtils.Diff> diffs = DiffUtils.diff(Arrays.asList("a", "<b>", "c"), Arrays.asList("a", "x", "c"));
+        File file = tempFolder.newFile("report.html");
+
+        List<File> files = new HtmlReportWriter("src/A.java", "old", "new").write(file, diffs);
+
+        assertEquals(Arrays.asList(file), files);
+        String html = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(html.contains("<strong>File:</strong> src/A.java"));
+        assertTrue(html.contains("&lt;b&gt;"));
+        assertTrue(html.contains("<tr class='modified'>"));
+        assertTrue(html.endsWith("</table></body></html>"));
+    }
+
+    @Test
+    public void testPagedReportWritesEveryRowOnce() throws Exception {
+        List<String> oldLines = new ArrayList<>();
+        List<String> newLines = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            oldLines.add("line " + i);
+            newLines.add(i % 10 == 0 ? "changed " + i : "line " + i);
+        }
+        List<DiffUtils.Diff> diffs = DiffUtils.diff(oldLines, newLines);
+        int rows = HtmlReportWriter.countRows(diffs);
+        File file = tempFolder.newFile("report.html");
+
+        List<File> files = new HtmlReportWriter("a.txt", "old", "new").setPageRows(20).write(file, diffs);
+
+        int pages = (rows + 19) / 20;
+        assertEquals(1 + pages, files.size());
+        String index = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(index.contains("<a href='report_page1.html'>Page 1</a>"));
+
+        int writtenRows = 0;
+        for (File page : files.subList(1, files.size())) {
+            String html = new String(Files.readAllBytes(page.toPath()), StandardCharsets.UTF_8);
+            writtenRows += html.split("<tr ", -1).length - 1;
+        }
+        assertEquals(rows, writtenRows);
+        String last = new String(Files.readAllBytes(files.get(files.size() - 1).toPath()), StandardCharsets.UTF_8);
+        assertTrue(last.contains(">line 94<"));
+    }
+
+    @Test
+    public void testPagesThroughALargeUnchangedBlockReadingEachLineOnce() throws Exception {
+        int[] reads = new int[1];
+        List<String> lines = new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                reads[0]++;
+                return "line " + (index + 1);
+            }
+
+            @Override
+            public int size() {
+                return 1000;
+            }
+        };
+        List<DiffUtils.Diff> diffs = Arrays.asList(new DiffUtils.Diff(DiffUtils.DiffType.EQUAL, lines),
+                new DiffUtils.Diff(DiffUtils.DiffType.INSERT, Arrays.asList("added")));
+        File file = tempFolder.newFile("report.html");
+
+        List<File> files = new HtmlReportWriter("a.txt", "old", "new").setPageRows(100).write(file, diffs);
+
+        assertEquals(1 + 11, files.size());
+        assertEquals(1000, reads[0]);
+        String second = new String(Files.readAllBytes(files.get(2).toPath()), StandardCharsets.UTF_8);
+        assertEquals(100, second.split("<tr ", -1).length - 1);
+        assertTrue(second.contains("<td class='line-num'>101</td><td class='content left-content'>line 101</td>"
+                + "<td class='line-num'>101</td>"));
+        assertTrue(second.contains(">line 200<"));
+        assertFalse(second.contains(">line 100<"));
+        assertFalse(second.contains(">line 201<"));
+        String last = new String(Files.readAllBytes(files.get(11).toPath()), StandardCharsets.UTF_8);
+        assertTrue(last.contains("<td class='line-num'>1001</td><td class='content'>added</td>"));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LineInternerTest {
+
+    private static DiffText text(String content) {
+        return new DiffText(content.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testEqualLinesShareIdsAcrossTexts() {
+        LineInterner interner = new LineInterner();
+        IntSequence a = interner.intern(text("x\ny\nx\n"));
+        IntSequence b = interner.intern(text("y\r\nz\nx"));
+
+        assertEquals(a.ids[0], a.ids[2]);
+        assertNotEquals(a.ids[0], a.ids[1]);
+        assertEquals(a.ids[1], b.ids[0]);
+        assertEquals(a.ids[0], b.ids[2]);
+        assertEquals(3, interner.size());
+    }
+
+    @Test
+    public void testManyDistinctLinesGrowTheTable() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            content.append("line ").append(i % 2500).append('\n');
+        }
+        LineInterner interner = new LineInterner();
+        IntSequence ids = interner.intern(text(content.toString()));
+
+        assertEquals(2500, interner.size());
+        for (int i = 0; i < 2500; i++) {
+            assertEquals(i, ids.ids[i]);
+            assertEquals(i, ids.ids[i + 2500]);
+        }
+    }
+
+    @Test
+    public void testStringLines() {
+        LineInterner interner = new LineInterner();
+        IntSequence ids = interner.intern(Arrays.asList("a", "b", "a"));
+
+        assertArrayEquals(new int[] { 0, 1, 0 }, ids.ids);
+    }
+
+    @Test
+    public void testStringAndRawLinesNeverShareIds() {
+        LineInterner interner = new LineInterner();
+        IntSequence raw = interner.intern(text("a\nb\n"));
+        IntSequence strings = interner.intern(Arrays.asList("c", "d", "c"));
+        IntSequence more = interner.intern(text("b\ne\n"));
+
+        assertArrayEquals(new int[] { 0, 1 }, raw.ids);
+        assertArrayEquals(new int[] { 2, 3, 2 }, strings.ids);
+        assertArrayEquals(new int[] { 1, 4 }, more.ids);
+        assertEquals(5, interner.size());
+    }
+
+    @Test
+    public void testInternedLinesStillCountComparisonsOfDistinctLines() {
+        StringBuilder oldContent = new StringBuilder();
+        StringBuilder newContent = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            oldContent.append("old ").append(i).append('\n');
+            newContent.append("new ").append(i).append('\n');
+        }
+        LineInterner interner = new LineInterner();
+        IntSequence oldIds = interner.intern(text(oldContent.toString()));
+        IntSequence newIds = interner.intern(text(newContent.toString()));
+        assertEquals(2000, interner.size()); // no id, and so no hash, is shared
+
+        try {
+            new MyersDiffEngine().diff(oldIds, newIds, new DiffUtils.Deadline(60_000, 4096));
+            fail("expected DiffLimitException");
+        } catch (DiffUtils.DiffLimitException e) {
+            assertFalse(e.timedOut);
+        }
+    }
+}
@@ -8,7 +8,12 @@ package jp.hatano.gitfilehistory;
 import org.junit.Test;
 
 import javax.swing.JTextPane;
+import java.awt.FontMetrics;
+import java.awt.Insets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -49,4 +54,99 @@ public class LineWrapperTest {
         assertEquals(1, result.size());
         assertEquals("    Indented text", result.get(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testWrapKeepsIndentOnContinuationLines() {
+        JTextPane textPane = new JTextPane();
+        textPane.setSize(120, 100);
+        LineWrapper wrapper = new LineWrapper(textPane);
+
+        List<String> result = wrapper.wrap("  alpha beta gamma delta epsilon zeta eta theta");
+
+        assertTrue(result.size() > 1);
+        for (String line : result) {
+            assertTrue(line.startsWith("  "));
+            assertFalse(line.startsWith("   "));
+        }
+    }
+
+    @Test
+    public void testWordLongerThanWidthIsNotSplit() {
+        JTextPane textPane = new JTextPane();
+        textPane.setSize(60, 100);
+        LineWrapper wrapper = new LineWrapper(textPane);
+        String word = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+        List<String> result = wrapper.wrap("x " + word + " y");
+
+        assertEquals(Arrays.asList("x", word, "y"), result);
+    }
+
+    @Test
+    public void testMatchesWordByWordMeasurement() {
+        Random random = new Random(42);
+        String[] words = { "", "a", "int", "return", "value;", "日本語", "\tx", "minified.call(a,b,c)" };
+        for (int width : new int[] { 50, 120, 300 }) {
+            JTextPane textPane = new JTextPane();
+            textPane.setSize(width, 100);
+            LineWrapper wrapper = new LineWrapper(textPane);
+            for (int n = 0; n < 200; n++) {
+                StringBuilder line = new StringBuilder(random.nextBoolean() ? "    " : "");
+                int count = random.nextInt(80);
+                for (int i = 0; i < count; i++) {
+                    line.append(i > 0 ? " " : "").append(words[random.nextInt(words.length)]);
+                }
+                String text = line.toString();
+                assertEquals(text, referenceWrap(textPane, text), wrapper.wrap(text));
+            }
+        }
+    }
+
+    @Test
+    public void testMemoizedLongLineGivesSameResult() {
+        JTextPane textPane = new JTextPane();
+        textPane.setSize(200, 100);
+        StringBuilder line = new StringBuilder();
+        while (line.length() < LineWrapper.MEMO_MIN_LENGTH * 2) {
+            line.append("token ");
+        }
+        String text = line.toString();
+
+        List<String> first = new LineWrapper(textPane).wrap(text);
+        List<String> second = new LineWrapper(textPane).wrap(new String(text));
+
+        assertEquals(first, second);
+        assertEquals(referenceWrap(textPane, text), first);
+    }
+
+    /** The original string-building implementation, kept as the specification. */
+    private static List<String> referenceWrap(JTextPane textPane, String text) {
+        FontMetrics fontMetrics = textPane.getFontMetrics(textPane.getFont());
+        Insets insets = textPane.getInsets();
+        int wrapWidth = textPane.getWidth() - insets.left - insets.right;
+        List<String> wrappedLines = new ArrayList<>();
+        if (text.isEmpty() || wrapWidth <= 0) {
+            wrappedLines.add(text);
+            return wrappedLines;
+        }
+        int indentLength = 0;
+        while (indentLength < text.length() && Character.isWhitespace(text.charAt(indentLength))) {
+            indentLength++;
+        }
+        String indent = text.substring(0, indentLength);
+        StringBuilder currentLine = new StringBuilder(indent);
+        for (String word : text.substring(indentLength).split(" ", -1)) {
+            if (currentLine.length() > indent.length() && fontMetrics.stringWidth(currentLine + " " + word) > wrapWidth) {
+                wrappedLines.add(currentLine.toString());
+                currentLine = new StringBuilder(indent).append(word);
+            } else {
+                if (currentLine.length() > indent.length()) {
+                    currentLine.append(" ");
+                }
+                currentLine.append(word);
+            }
+        }
+        wrappedLines.add(currentLine.toString());
+        return wrappedLines;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MatchHighlightPainterTest {
+
+    @Test
+    public void testFirstEndingAfter() {
+        int[] ends = {3, 7, 7, 12};
+        assertEquals(0, MatchHighlightPainter.firstEndingAfter(ends, 0));
+        assertEquals(1, MatchHighlightPainter.firstEndingAfter(ends, 3));
+        assertEquals(3, MatchHighlightPainter.firstEndingAfter(ends, 7));
+        assertEquals(4, MatchHighlightPainter.firstEndingAfter(ends, 12));
+        assertEquals(0, MatchHighlightPainter.firstEndingAfter(new int[0], 5));
+    }
+
+    @Test
+    public void testFirstStartingAt() {
+        int[] starts = {2, 5, 9};
+        assertEquals(0, MatchHighlightPainter.firstStartingAt(starts, 0));
+        assertEquals(1, MatchHighlightPainter.firstStartingAt(starts, 5));
+        assertEquals(2, MatchHighlightPainter.firstStartingAt(starts, 6));
+        assertEquals(3, MatchHighlightPainter.firstStartingAt(starts, 10));
+    }
+
+    @Test
+    public void testLargeMatchSetLookup() {
+        int n = 200_000;
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = i * 10;
+            ends[i] = i * 10 + 4;
+        }
+        assertEquals(123_457, MatchHighlightPainter.firstEndingAfter(ends, 1_234_566));
+        assertEquals(123_457, MatchHighlightPainter.firstStartingAt(starts, 1_234_566));
+    }
+}
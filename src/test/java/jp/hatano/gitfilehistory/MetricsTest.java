@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.junit.Test;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void testTimerAndCounterAccumulate() {
+        Metrics.Timer timer = Metrics.timer("test.timer");
+        Metrics.Counter counter = Metrics.counter("test.counter");
+        assertSame(timer, Metrics.timer("test.timer"));
+        long count = timer.getCount();
+        long total = timer.getTotalNanos();
+        long value = counter.get();
+
+        timer.record(3_000_000);
+        timer.record(1_000_000);
+        counter.increment();
+        counter.add(41);
+
+        assertEquals(count + 2, timer.getCount());
+        assertEquals(total + 4_000_000, timer.getTotalNanos());
+        assertTrue(timer.getMaxNanos() >= 3_000_000);
+        assertEquals(value + 42, counter.get());
+
+        String report = Metrics.report();
+        assertTrue(report.contains("test.timer"));
+        assertTrue(report.contains("test.counter"));
+    }
+
+    @Test
+    public void testDiffPhasesAreRecorded() {
+        long lines = Metrics.counter("diff.lines").get();
+        long runs = Metrics.timer("diff.algorithm").getCount();
+
+        DiffUtils.diff("a\nb\nc\n".getBytes(StandardCharsets.UTF_8), "a\nx\nc\n".getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8);
+
+        assertEquals(lines + 6, Metrics.counter("diff.lines").get());
+        assertEquals(runs + 1, Metrics.timer("diff.algorithm").getCount());
+    }
+
+    @Test
+    public void testExportedOverJmx() throws Exception {
+        Metrics.registerMBean();
+        Metrics.registerMBean(); // a second registration is ignored
+        Metrics.counter("test.jmx").add(5);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        Map<String, Long> counters = JMX.newMXBeanProxy(server, name, MetricsMXBean.class).getCounters();
+        assertTrue(counters.get("test.jmx") >= 5);
+        assertTrue(((String) server.getAttribute(name, "Report")).contains("test.jmx"));
+    }
+}
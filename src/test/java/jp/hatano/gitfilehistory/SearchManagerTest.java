@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class SearchManagerTest {
+
+    @Test
+    public void testFindLiteralIncludesOverlappingOccurrences() {
+        assertArrayEquals(new int[] {0, 1, 2}, SearchManager.findLiteral("aaaa", "aa", false, null));
+        assertArrayEquals(new int[] {0, 2}, SearchManager.nonOverlapping(new int[] {0, 1, 2}, 2));
+    }
+
+    @Test
+    public void testFindLiteralIgnoreCase() {
+        assertArrayEquals(new int[] {0, 4}, SearchManager.findLiteral("Foo foo", "FOO", true, null));
+        assertArrayEquals(new int[] {4}, SearchManager.findLiteral("Foo foo", "foo", false, null));
+    }
+
+    @Test
+    public void testRefiningQueryOnlyChecksPreviousOccurrences() {
+        // "aab" overlaps the first non-overlapping match of "aa", so refining needs every occurrence
+        String content = "aaab";
+        int[] occurrences = SearchManager.findLiteral(content, "aa", false, null);
+        assertArrayEquals(new int[] {1}, SearchManager.findLiteral(content, "aab", false, occurrences));
+    }
+
+    @Test
+    public void testLiteralMatchesAgreeWithMatcher() {
+        Random random = new Random(42);
+        for (int n = 0; n < 200; n++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 200; i++) {
+                sb.append("abAB \n".charAt(random.nextInt(6)));
+            }
+            String content = sb.toString();
+            boolean ignoreCase = random.nextBoolean();
+            String prefix = content.substring(10, 11);
+            String query = content.substring(10, 12 + random.nextInt(3));
+
+            int[] refined = SearchManager.findLiteral(content, query, ignoreCase,
+                    SearchManager.findLiteral(content, prefix, ignoreCase, null));
+            int[] expected = matcherStarts(content, query, ignoreCase);
+            assertArrayEquals(expected, SearchManager.nonOverlapping(refined, query.length()));
+            assertArrayEquals(expected, SearchManager.nonOverlapping(
+                    SearchManager.findLiteral(content, query, ignoreCase, null), query.length()));
+        }
+    }
+
+    @Test
+    public void testFindRegex() {
+        int[][] matches = SearchManager.findRegex("a1 b22 c", SearchManager.compile("[0-9]+", false));
+        assertArrayEquals(new int[] {1, 4}, matches[0]);
+        assertArrayEquals(new int[] {2, 6}, matches[1]);
+    }
+
+    private static int[] matcherStarts(String content, String query, boolean ignoreCase) {
+        Matcher matcher = SearchManager.compile(Pattern.quote(query), ignoreCase).matcher(content);
+        List<Integer> starts = new ArrayList<>();
+        while (matcher.find()) {
+            starts.add(matcher.start());
+        }
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
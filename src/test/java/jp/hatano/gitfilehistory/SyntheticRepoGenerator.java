@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.PackInserter;
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+/**
+ * Generates local repositories of a given shape from a seed, so that scaling problems can be
+ * reproduced without real repositories. The same spec always yields the same commit ids.
+ * <p>
+ * Every step commits a few line edits to the target file on {@code master}. Optionally, every
+ * n-th step is a merge of a side commit, other commits touch only a noise file, a binary file
+ * changes along with the target, and branches fork from points spread over the history, each
+ * with one commit of its own. Objects are written straight into packs without a working tree,
+ * so 10k branches and a million commits are feasible; {@code master} is checked out at the end.
+ * From the command line:
+ * <pre>
+ * java -cp &lt;test classpath&gt; jp.hatano.gitfilehistory.SyntheticRepoGenerator [--seed n] [--commits n]
+ *     [--branches n] [--merge-every n] [--noise-commits n] [--lines n] [--line-length n]
+ *     [--edits n] [--encoding charset] [--binary-every n] [--binary-size n] [--path p] &lt;directory&gt;
+ * </pre>
+ */
+public class SyntheticRepoGenerator {
+    private static final String NOISE_PATH = "src/Noise.java";
+    private static final String BINARY_PATH = "assets/data.bin";
+    private static final String[] WORDS = {
+            "int", "String", "final", "return", "if", "for", "while", "value", "count", "index",
+            "list", "map", "result", "buffer", "length", "offset", "diff", "line", "commit", "path",
+            "=", "+", "(", ")", "{", "}", ";", "null", "new", "this",
+            "値", "変更", "履歴", "café", "Größe"};
+    /** Steps between pack flushes, bounding the memory of the pack inserter. */
+    private static final int FLUSH_INTERVAL = 20_000;
+
+    /** Shape of a generated repository. */
+    public static class Spec {
+        long seed = 1;
+        int commits = 100;
+        int branches;
+        int mergeEvery;
+        int noiseCommits;
+        int fileLines = 200;
+        int lineLength = 40;
+        int editsPerCommit = 3;
+        Charset encoding = StandardCharsets.UTF_8;
+        int binaryEvery;
+        int binarySize = 4096;
+        String targetPath = "src/Main.java";
+
+        public Spec seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /** Steps on {@code master}; each commits to the target file. */
+        public Spec commits(int commits) {
+            this.commits = commits;
+            return this;
+        }
+
+        /** Branches besides {@code master}. */
+        public Spec branches(int branches) {
+            this.branches = branches;
+            return this;
+        }
+
+        /** Makes every n-th step a merge of a side commit that also changes the target; 0 for none. */
+        public Spec mergeEvery(int mergeEvery) {
+            this.mergeEvery = mergeEvery;
+            return this;
+        }
+
+        /** Commits touching only a noise file after each step. */
+        public Spec noiseCommits(int noiseCommits) {
+            this.noiseCommits = noiseCommits;
+            return this;
+        }
+
+        public Spec fileLines(int fileLines) {
+            this.fileLines = fileLines;
+            return this;
+        }
+
+        /** Average line length in characters; lines vary from half to one and a half of it. */
+        public Spec lineLength(int lineLength) {
+            this.lineLength = lineLength;
+            return this;
+        }
+
+        public Spec editsPerCommit(int editsPerCommit) {
+            this.editsPerCommit = editsPerCommit;
+            return this;
+        }
+
+        /** Encoding of the text files; words it cannot encode are left out. */
+        public Spec encoding(Charset encoding) {
+            this.encoding = encoding;
+            return this;
+        }
+
+        /** Changes a binary file along with every n-th step; 0 for none. */
+        public Spec binaryEvery(int binaryEvery) {
+            this.binaryEvery = binaryEvery;
+            return this;
+        }
+
+        public Spec binarySize(int binarySize) {
+            this.binarySize = binarySize;
+            return this;
+        }
+
+        public Spec targetPath(String targetPath) {
+            this.targetPath = targetPath;
+            return this;
+        }
+    }
+
+    /** What was generated. */
+    public static class Result {
+        /** Tip of {@code master}. */
+        public final ObjectId head;
+        /** Commits changing the target file, merges included. */
+        public final int targetCommits;
+        public final int totalCommits;
+        public final int merges;
+        public final List<String> branches;
+
+        Result(ObjectId head, int targetCommits, int totalCommits, int merges, List<String> branches) {
+            this.head = head;
+            this.targetCommits = targetCommits;
+            this.totalCommits = totalCommits;
+            this.merges = merges;
+            this.branches = branches;
+        }
+    }
+
+    private final Spec spec;
+    private final Random random;
+    private final String[] words;
+    private final Map<String, ObjectId> files = new HashMap<>();
+    private ObjectInserter inserter;
+    private long clock = 1_600_000_000L;
+    private int totalCommits;
+
+    public SyntheticRepoGenerator(Spec spec) {
+        this.spec = spec;
+        this.random = new Random(spec.seed);
+        CharsetEncoder encoder = spec.encoding.newEncoder();
+        this.words = Arrays.stream(WORDS).filter(encoder::canEncode).toArray(String[]::new);
+    }
+
+    /** Creates the repository in {@code directory}, which must not contain one yet. */
+    public Result generate(File directory) throws IOException, GitAPIException {
+        try (Git git = Git.init().setDirectory(directory).setInitialBranch("master").call()) {
+            Repository repository = git.getRepository();
+            List<String> branchNames = new ArrayList<>();
+            BatchRefUpdate refUpdate = repository.getRefDatabase().newBatchUpdate();
+            ObjectId head;
+            int targetCommits = 0;
+            int merges = 0;
+            List<String> lines = new ArrayList<>();
+            List<String> noiseLines = new ArrayList<>();
+
+            inserter = newInserter(repository);
+            try {
+                for (int i = 0; i < spec.fileLines; i++) {
+                    lines.add(randomLine());
+                }
+                for (int i = 0; i < Math.max(1, spec.fileLines / 4); i++) {
+                    noiseLines.add(randomLine());
+                }
+                files.put(NOISE_PATH, blob(noiseLines));
+                head = null;
+                int nextBranch = 0;
+                for (int step = 0; step < spec.commits; step++) {
+                    if (spec.binaryEvery > 0 && step % spec.binaryEvery == 0) {
+                        byte[] data = new byte[spec.binarySize];
+                        random.nextBytes(data);
+                        files.put(BINARY_PATH, inserter.insert(Constants.OBJ_BLOB, data));
+                    }
+                    if (head != null && spec.mergeEvery > 0 && step % spec.mergeEvery == spec.mergeEvery - 1) {
+                        // the side commit rewrites the last line, master edits above it, the merge has both
+                        String last = lines.get(lines.size() - 1);
+                        String rewritten = randomLine();
+                        lines.set(lines.size() - 1, rewritten);
+                        files.put(spec.targetPath, blob(lines));
+                        ObjectId side = commit("Side change " + step, head);
+                        lines.set(lines.size() - 1, last);
+                        edit(lines);
+                        files.put(spec.targetPath, blob(lines));
+                        ObjectId main = commit("Change " + step, head);
+                        lines.set(lines.size() - 1, rewritten);
+                        files.put(spec.targetPath, blob(lines));
+                        head = commit("Merge side change " + step, main, side);
+                        targetCommits += 3;
+                        merges++;
+                    } else {
+                        edit(lines);
+                        files.put(spec.targetPath, blob(lines));
+                        head = head == null ? commit("Change " + step) : commit("Change " + step, head);
+                        targetCommits++;
+                    }
+                    for (int n = 0; n < spec.noiseCommits; n++) {
+                        edit(noiseLines);
+                        files.put(NOISE_PATH, blob(noiseLines));
+                        head = commit("Noise " + step + "." + n, head);
+                    }
+                    while (nextBranch < spec.branches && (long) nextBranch * spec.commits / spec.branches == step) {
+                        String name = String.format("feature/%05d", nextBranch++);
+                        String branchFile = "branches/" + name.replace('/', '-') + ".txt";
+                        files.put(branchFile, inserter.insert(Constants.OBJ_BLOB, (name + "\n").getBytes(StandardCharsets.UTF_8)));
+                        ObjectId tip = commit("Start " + name, head);
+                        files.remove(branchFile);
+                        refUpdate.addCommand(new ReceiveCommand(ObjectId.zeroId(), tip, Constants.R_HEADS + name));
+                        branchNames.add(name);
+                    }
+                    if (step % FLUSH_INTERVAL == FLUSH_INTERVAL - 1) {
+                        inserter.flush();
+                    }
+                }
+                inserter.flush();
+            } finally {
+                inserter.close();
+            }
+
+            if (head != null) {
+                refUpdate.addCommand(new ReceiveCommand(ObjectId.zeroId(), head, Constants.R_HEADS + "master"));
+                try (RevWalk walk = new RevWalk(repository)) {
+                    refUpdate.setAllowNonFastForwards(true).execute(walk, NullProgressMonitor.INSTANCE);
+                }
+                for (ReceiveCommand command : refUpdate.getCommands()) {
+                    if (command.getResult() != ReceiveCommand.Result.OK) {
+                        throw new IOException("Failed to create " + command.getRefName() + ": " + command.getResult());
+                    }
+                }
+                git.packRefs().setAll(true).call();
+                git.reset().setMode(ResetCommand.ResetType.HARD).call();
+            }
+            return new Result(head, targetCommits, totalCommits, merges, branchNames);
+        }
+    }
+
+    private static ObjectInserter newInserter(Repository repository) {
+        if (repository.getObjectDatabase() instanceof ObjectDirectory) {
+            PackInserter packInserter = ((ObjectDirectory) repository.getObjectDatabase()).newPackInserter();
+            packInserter.checkExisting(false);
+            // generated repositories are throwaway, so favour speed over pack size
+            packInserter.setCompressionLevel(Deflater.BEST_SPEED);
+            return packInserter;
+        }
+        return repository.newObjectInserter();
+    }
+
+    /** Replaces, deletes or inserts lines above the last one, which side commits rewrite. */
+    private void edit(List<String> lines) {
+        for (int e = 0; e < spec.editsPerCommit; e++) {
+            int index = lines.size() > 1 ? random.nextInt(lines.size() - 1) : 0;
+            switch (random.nextInt(3)) {
+                case 0:
+                    if (lines.size() > 1) {
+                        lines.remove(index);
+                    } else {
+                        lines.add(index, randomLine()); // never empty the file
+                    }
+                    break;
+                case 1:
+                    lines.add(index, randomLine());
+                    break;
+                default:
+                    if (lines.isEmpty()) {
+                        lines.add(randomLine());
+                    } else {
+                        lines.set(index, randomLine());
+                    }
+                    break;
+            }
+        }
+    }
+
+    private String randomLine() {
+        int length = spec.lineLength / 2 + random.nextInt(spec.lineLength + 1);
+        StringBuilder line = new StringBuilder(length + 8);
+        int indent = random.nextInt(4) * 4;
+        for (int i = 0; i < indent && line.length() < length; i++) {
+            line.append(' ');
+        }
+        while (line.length() < length) {
+            if (line.length() > indent) {
+                line.append(' ');
+            }
+            line.append(words[random.nextInt(words.length)]);
+        }
+        return line.toString();
+    }
+
+    private byte[] encode(List<String> lines) {
+        StringBuilder text = new StringBuilder(lines.size() * (spec.lineLength + 1));
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        return text.toString().getBytes(spec.encoding);
+    }
+
+    private ObjectId blob(List<String> lines) throws IOException {
+        return inserter.insert(Constants.OBJ_BLOB, encode(lines));
+    }
+
+    private ObjectId commit(String message, ObjectId... parents) throws IOException {
+        PersonIdent ident = new PersonIdent("Generator", "generator@example.com",
+                Instant.ofEpochSecond(clock += 60), ZoneOffset.UTC);
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(tree(files));
+        commit.setParentIds(parents);
+        commit.setAuthor(ident);
+        commit.setCommitter(ident);
+        commit.setMessage(message);
+        totalCommits++;
+        return inserter.insert(commit);
+    }
+
+    /** Writes the tree of {@code paths}, which are relative to it, and its subtrees. */
+    private ObjectId tree(Map<String, ObjectId> paths) throws IOException {
+        // git orders entries by their bytes, with directories compared as "name/"
+        TreeMap<String, ObjectId> entries = new TreeMap<>(
+                (a, b) -> Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8)));
+        Map<String, Map<String, ObjectId>> directories = new HashMap<>();
+        for (Map.Entry<String, ObjectId> path : paths.entrySet()) {
+            int slash = path.getKey().indexOf('/');
+            if (slash < 0) {
+                entries.put(path.getKey(), path.getValue());
+            } else {
+                directories.computeIfAbsent(path.getKey().substring(0, slash), d -> new HashMap<>())
+                        .put(path.getKey().substring(slash + 1), path.getValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, ObjectId>> directory : directories.entrySet()) {
+            entries.put(directory.getKey() + "/", tree(directory.getValue()));
+        }
+        TreeFormatter formatter = new TreeFormatter();
+        for (Map.Entry<String, ObjectId> entry : entries.entrySet()) {
+            String name = entry.getKey();
+            if (name.endsWith("/")) {
+                formatter.append(name.substring(0, name.length() - 1), FileMode.TREE, entry.getValue());
+            } else {
+                formatter.append(name, FileMode.REGULAR_FILE, entry.getValue());
+            }
+        }
+        return inserter.insert(formatter);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Spec spec = new Spec();
+        File directory = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                directory = new File(arg);
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException(arg + " needs a value");
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--seed": spec.seed(Long.parseLong(value)); break;
+                case "--commits": spec.commits(Integer.parseInt(value)); break;
+                case "--branches": spec.branches(Integer.parseInt(value)); break;
+                case "--merge-every": spec.mergeEvery(Integer.parseInt(value)); break;
+                case "--noise-commits": spec.noiseCommits(Integer.parseInt(value)); break;
+                case "--lines": spec.fileLines(Integer.parseInt(value)); break;
+                case "--line-length": spec.lineLength(Integer.parseInt(value)); break;
+                case "--edits": spec.editsPerCommit(Integer.parseInt(value)); break;
+                case "--encoding": spec.encoding(Charset.forName(value)); break;
+                case "--binary-every": spec.binaryEvery(Integer.parseInt(value)); break;
+                case "--binary-size": spec.binarySize(Integer.parseInt(value)); break;
+                case "--path": spec.targetPath(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (directory == null) {
+            throw new IllegalArgumentException("No directory given");
+        }
+        long start = System.nanoTime();
+        Result result = new SyntheticRepoGenerator(spec).generate(directory);
+        System.out.printf("%s: %d commits (%d changing %s, %d merges), %d branches, head %s, %.1f s%n",
+                directory, result.totalCommits, result.targetCommits, spec.targetPath, result.merges,
+                result.branches.size(), result.head != null ? result.head.name() : "-", (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SyntheticRepoGeneratorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testSameSeedGivesSameCommits() throws Exception {
+        SyntheticRepoGenerator.Spec spec = new SyntheticRepoGenerator.Spec().seed(7).commits(30).branches(3).mergeEvery(5);
+
+        SyntheticRepoGenerator.Result first = new SyntheticRepoGenerator(spec).generate(tempFolder.newFolder("a"));
+        SyntheticRepoGenerator.Result second = new SyntheticRepoGenerator(spec).generate(tempFolder.newFolder("b"));
+        SyntheticRepoGenerator.Result other = new SyntheticRepoGenerator(spec.seed(8)).generate(tempFolder.newFolder("c"));
+
+        assertEquals(first.head, second.head);
+        assertNotEquals(first.head, other.head);
+    }
+
+    @Test
+    public void testHistoryMatchesSpec() throws Exception {
+        File repoDir = tempFolder.newFolder("repo");
+        SyntheticRepoGenerator.Result result = new SyntheticRepoGenerator(new SyntheticRepoGenerator.Spec()
+                .commits(40).branches(10).mergeEvery(4).noiseCommits(1).binaryEvery(10)).generate(repoDir);
+
+        assertEquals(10, result.merges);
+        assertEquals(30 + 3 * 10, result.targetCommits);
+        assertEquals(result.targetCommits + 40 + 10, result.totalCommits);
+        assertEquals(10, result.branches.size());
+
+        try (GitService service = new GitService(repoDir)) {
+            List<CommitInfo> commits = service.loadCommitsForFile("src/Main.java", "UTF-8");
+            // the checked-out file is the tip of master, so there is no uncommitted row
+            assertEquals(result.targetCommits, commits.size());
+            // branches fork from the first step onwards, so the oldest commit is on all of them
+            assertEquals(List.of("master"), commits.get(0).branchNames);
+            assertEquals(11, commits.get(commits.size() - 1).branchNames.size());
+            assertTrue(service.getFileBytes(commits.get(commits.size() - 1), "assets/data.bin").length == 4096);
+
+            DiffLoader loader = new DiffLoader(service, new DiffCache(), null);
+            List<DiffUtils.Diff> diffs = loader.load(commits.get(1), commits.get(0), "src/Main.java", "UTF-8",
+                    DiffUtils.Algorithm.AUTO);
+            assertTrue(DiffUtils.hasChanges(diffs));
+        }
+    }
+
+    @Test
+    public void testEncodingIsApplied() throws Exception {
+        File repoDir = tempFolder.newFolder("repo");
+        Charset shiftJis = Charset.forName("Shift_JIS");
+        new SyntheticRepoGenerator(new SyntheticRepoGenerator.Spec().commits(3).fileLines(500).encoding(shiftJis))
+                .generate(repoDir);
+
+        try (GitService service = new GitService(repoDir)) {
+            CommitInfo head = service.resolveCommit("HEAD");
+            String text = service.getFileContent(head, "src/Main.java", "Shift_JIS");
+            assertTrue(text.contains("値") || text.contains("変更") || text.contains("履歴"));
+            assertFalse(text.contains("café"));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2026 Manami Hatano
+ *
+ * Licensed under the MIT License. See LICENSE.md in project root for details.
+ */
+package jp.hatano.gitfilehistory;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.rules.ExternalResource;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+/**
+ * A fresh repository on {@code master} in a temporary folder for each test, with commits
+ * one minute apart so that their order does not depend on the clock.
+ * For tests that only need a history of a certain shape, see {@link SyntheticRepoGenerator}.
+ */
+public class TestRepository extends ExternalResource {
+    private final TemporaryFolder folder = new TemporaryFolder();
+    private File directory;
+    private Git git;
+    private int clock = 1_700_000_000;
+
+    @Override
+    protected void before() throws Throwable {
+        folder.create();
+        directory = folder.newFolder("repo");
+        git = Git.init().setDirectory(directory).setInitialBranch("master").call();
+    }
+
+    @Override
+    protected void after() {
+        git.close();
+        folder.delete();
+    }
+
+    /** The working tree. */
+    public File getDirectory() {
+        return directory;
+    }
+
+    public Git git() {
+        return git;
+    }
+
+    /** Writes {@code content} to {@code path} in the working tree without committing it. */
+    public void writeFile(String path, String content) throws IOException {
+        File file = new File(directory, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Writes and commits {@code path} with the content as commit message. */
+    public RevCommit commitFile(String path, String content) throws Exception {
+        return commitFile(path, content, content);
+    }
+
+    public RevCommit commitFile(String path, String content, String message) throws Exception {
+        writeFile(path, content);
+        git.add().addFilepattern(path).call();
+        PersonIdent ident = new PersonIdent("Tester", "tester@example.com", Instant.ofEpochSecond(clock += 60), ZoneOffset.UTC);
+        return git.commit().setMessage(message).setAuthor(ident).setCommitter(ident).call();
+    }
+}